@@ -19,6 +19,7 @@
 package dendroscope.algorithms.clusternet;
 
 import dendroscope.consensus.*;
+import dendroscope.util.ParallelExecutor;
 import jloda.graph.*;
 import jloda.phylo.PhyloTree;
 import jloda.phylo.PhyloTreeUtils;
@@ -149,38 +150,20 @@ public class ClusterNetwork {
 
         EdgeSet newEdges = new EdgeSet(tree);
 
-        Stack<Node> stack = new Stack<>();
-        NodeSet visited = new NodeSet(tree);
+        // the parents of a cluster are the minimal preceding clusters that contain it, or the root, if there are none
+        final BitSet[] parents = computeHasseParents(clusters);
         for (int i = 0; i < clusters.length; i++) {
-            Node node = nodes[i];
-            Cluster cluster = clusters[i];
-            visited.clear();
-            stack.push(root);
-            visited.add(root);
-            while (stack.size() > 0) {
-                Node v = stack.pop();
-                boolean isBelow = false;
-                for (Edge e = v.getFirstOutEdge(); e != null; e = v.getNextOutEdge(e))
-                    if (newEdges.contains(e)) {
-                        {
-                            Node w = e.getTarget();
-                            int j = node2id.getValue(w);
-                            if (Cluster.contains(clusters[j], cluster)) {
-                                isBelow = true;
-                                if (!visited.contains(w)) {
-                                    visited.add(w);
-                                    stack.push(w);
-                                }
-                            }
-                        }
-                    }
-                if (!isBelow) {
-                    Edge e = tree.newEdge(v, node);
-                    newEdges.add(e);
-                }
+            if (parents[i].isEmpty())
+                newEdges.add(tree.newEdge(root, nodes[i]));
+            else {
+                for (int j = parents[i].nextSetBit(0); j != -1; j = parents[i].nextSetBit(j + 1))
+                    newEdges.add(tree.newEdge(nodes[j], nodes[i]));
             }
         }
 
+        Stack<Node> stack = new Stack<>();
+        NodeSet visited = new NodeSet(tree);
+
         // set labels:
         stack.push(root);
         visited.clear();
@@ -253,6 +236,51 @@ public class ClusterNetwork {
         }
     }
 
+    /**
+     * computes the Hasse diagram of a list of clusters sorted by decreasing cardinality. For each taxon, the index of
+     * all clusters containing it is built once, so the ancestors of a cluster, i.e. the preceding clusters that
+     * contain it, are obtained by intersecting the index sets of its taxa. The parents of a cluster are those ancestors
+     * that are not ancestors of any other of its ancestors. Both steps are run in parallel over all clusters
+     *
+     * @param clusters sorted by decreasing cardinality
+     * @return for each cluster, the indices of its parents
+     */
+    private static BitSet[] computeHasseParents(final Cluster[] clusters) {
+        int maxTaxon = 0;
+        for (Cluster cluster : clusters)
+            maxTaxon = Math.max(maxTaxon, cluster.length());
+
+        final BitSet[] taxon2clusters = new BitSet[maxTaxon];
+        for (int t = 0; t < maxTaxon; t++)
+            taxon2clusters[t] = new BitSet(clusters.length);
+        for (int i = 0; i < clusters.length; i++) {
+            for (int t = clusters[i].nextSetBit(0); t != -1; t = clusters[i].nextSetBit(t + 1))
+                taxon2clusters[t].set(i);
+        }
+
+        final BitSet[] ancestors = new BitSet[clusters.length];
+        ParallelExecutor.forEach(clusters.length, new ParallelExecutor.ItemAction() {
+            public void apply(int i) {
+                final BitSet set = new BitSet(i);
+                set.set(0, i);
+                for (int t = clusters[i].nextSetBit(0); t != -1 && !set.isEmpty(); t = clusters[i].nextSetBit(t + 1))
+                    set.and(taxon2clusters[t]);
+                ancestors[i] = set;
+            }
+        });
+
+        final BitSet[] parents = new BitSet[clusters.length];
+        ParallelExecutor.forEach(clusters.length, new ParallelExecutor.ItemAction() {
+            public void apply(int i) {
+                final BitSet set = (BitSet) ancestors[i].clone();
+                for (int j = ancestors[i].nextSetBit(0); j != -1; j = ancestors[i].nextSetBit(j + 1))
+                    set.andNot(ancestors[j]);
+                parents[i] = set;
+            }
+        });
+        return parents;
+    }
+
     /**
      * find node that represents a given cluster, or null
      *
@@ -20,6 +20,7 @@ package dendroscope.algorithms.gallnet;
 
 import dendroscope.algorithms.clusternet.ClusterNetwork;
 import dendroscope.algorithms.utils.Compact;
+import dendroscope.algorithms.utils.IncompatibilityMatrix;
 import dendroscope.consensus.Cluster;
 import dendroscope.consensus.Split;
 import dendroscope.consensus.SplitSystem;
@@ -180,16 +181,11 @@ public class ComputeGalledNetwork {
         progressListener.setMaximum(-1);
 
         // compute incompatibility graph:
-        boolean[][] incompatible = new boolean[clusters.length][clusters.length];
-        for (int i = 0; i < clusters.length; i++) {
-            for (int j = i + 1; j < clusters.length; j++) {
-                incompatible[i][j] = incompatible[j][i] = Cluster.incompatible(clusters[i], clusters[j]);
-            }
-        }
+        IncompatibilityMatrix incompatible = new IncompatibilityMatrix(clusters);
 
         int totalReticulate = 0; // total number of reticulate nodes
 
-        BitSet[] components = computeComponents(incompatible);
+        BitSet[] components = incompatible.computeComponents();
         int numberOfNonTrivialComponents = 0;
         for (BitSet component : components)
             if (component.cardinality() > 1)
@@ -400,48 +396,4 @@ public class ComputeGalledNetwork {
             }
         }
     }
-
-    /**
-     * determines incompatibity components
-     *
-     * @param incompatible
-     * @return all incompatibity components
-     */
-    private static BitSet[] computeComponents(boolean[][] incompatible) {
-        int[] componentNumber = new int[incompatible.length];
-        for (int i = 0; i < componentNumber.length; i++)
-            componentNumber[i] = -1;
-
-        int number = 0;
-        for (int i = 0; i < incompatible.length; i++) {
-            if (componentNumber[i] == -1)
-                computeComponentsRec(incompatible, i, number++, componentNumber);
-        }
-
-        BitSet[] components = new BitSet[number];
-        for (int i = 0; i < components.length; i++)
-            components[i] = new BitSet();
-
-        for (int c = 0; c < incompatible.length; c++) {
-            components[componentNumber[c]].set(c);
-        }
-        return components;
-    }
-
-    /**
-     * recursively does the work
-     *
-     * @param incompatible
-     * @param i
-     * @param number
-     * @param componentNumber
-     */
-    private static void computeComponentsRec(boolean[][] incompatible, int i, int number, int[] componentNumber) {
-        componentNumber[i] = number;
-        for (int j = 0; j < incompatible.length; j++) {
-            if (i != j && incompatible[i][j] && componentNumber[j] == -1) {
-                computeComponentsRec(incompatible, j, number, componentNumber);
-            }
-        }
-    }
 }
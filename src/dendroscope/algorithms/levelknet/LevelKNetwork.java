@@ -22,10 +22,12 @@ import dendroscope.algorithms.clusternet.ClusterNetwork;
 import dendroscope.algorithms.levelknet.cass.CassAlgorithm;
 import dendroscope.algorithms.utils.Compact;
 import dendroscope.algorithms.utils.HasseDiagram;
+import dendroscope.algorithms.utils.IncompatibilityMatrix;
 import dendroscope.consensus.Cluster;
 import dendroscope.consensus.Split;
 import dendroscope.consensus.SplitSystem;
 import dendroscope.consensus.Taxa;
+import dendroscope.util.ParallelExecutor;
 import jloda.graph.Edge;
 import jloda.graph.Node;
 import jloda.graph.NodeArray;
@@ -35,9 +37,13 @@ import jloda.swing.util.Alert;
 import jloda.swing.util.ProgressDialog;
 import jloda.util.Basic;
 import jloda.util.CanceledException;
+import jloda.util.ProgramProperties;
 import jloda.util.ProgressListener;
+import jloda.util.ProgressSilent;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * compute a level-k network from a set of clusters
@@ -52,6 +58,8 @@ public class LevelKNetwork {
 
     private final boolean DEBUG = false; // when this is true, report lots of stuff
 
+    public static final String COMPONENT_TIMEOUT_SECONDS = "levelk-component-timeout-seconds";
+
     /**
      * constructor
      *
@@ -108,14 +116,9 @@ public class LevelKNetwork {
         System.err.println("Clusters: " + clusters.length);
 
         // compute incompatibility graph:
-        boolean[][] incompatible = new boolean[clusters.length][clusters.length];
-        for (int i = 0; i < clusters.length; i++) {
-            for (int j = i + 1; j < clusters.length; j++) {
-                incompatible[i][j] = incompatible[j][i] = Cluster.incompatible(clusters[i], clusters[j]);
-            }
-        }
+        IncompatibilityMatrix incompatible = new IncompatibilityMatrix(clusters);
 
-        BitSet[] components = computeComponents(incompatible);
+        BitSet[] components = incompatible.computeComponents();
         BitSet[] component2taxa = new BitSet[components.length];
         Cluster[][] component2clusters = new Cluster[components.length][];
         Cluster[] component2representative = new Cluster[components.length];
@@ -167,29 +170,67 @@ public class LevelKNetwork {
         }
 
         // process all non-trivial components
-        progressListener.setMaximum(5 * (component2clusters.length + 1));
-        progressListener.setCancelable(false);
         if (progressListener instanceof ProgressDialog) {
             ((ProgressDialog) progressListener).setCancelButtonText("Skip");
         }
 
-        int nontrivialComponentNumber = 0;
-        Map<Integer, List<PhyloTree>> component2networks = new HashMap<>();
-
+        // solve the non-trivial components concurrently, largest first, as each is independent of the others
+        final int timeoutSeconds = ProgramProperties.get(COMPONENT_TIMEOUT_SECONDS, 0);
+        final AtomicBoolean skip = new AtomicBoolean(false);
+        final List<Integer> nontrivial = new ArrayList<>();
+        final Map<Integer, Integer> component2number = new HashMap<>();
         for (int n = 0; n < component2clusters.length; n++) {
             if (component2clusters[n].length > 1) {
-                nontrivialComponentNumber++;
-                try {
-                    progressListener.setProgress(5 * n);
-                    progressListener.setTasks("Minimal network", "Processing component " + nontrivialComponentNumber);
-                    List<PhyloTree> result = processComponent(component2taxa[n], component2clusters[n], progressListener, nontrivialComponentNumber);
-                    component2networks.put(n, result);
-                } catch (Exception e) {
-                    Basic.caught(e);
-                    new Alert(null, "Cass algorithm failed: " + e.getMessage());
+                nontrivial.add(n);
+                component2number.put(n, nontrivial.size());
+            }
+        }
+        nontrivial.sort((a, b) -> Integer.compare(component2clusters[b].length, component2clusters[a].length));
+
+        final Map<Integer, Future<List<PhyloTree>>> component2future = new HashMap<>();
+        for (final Integer n : nontrivial) {
+            component2future.put(n, ParallelExecutor.getPool().submit(new Callable<List<PhyloTree>>() {
+                public List<PhyloTree> call() throws Exception {
+                    return processComponent(component2taxa[n], component2clusters[n], new ComponentProgress(skip, timeoutSeconds), component2number.get(n));
                 }
+            }));
+        }
+
+        progressListener.setMaximum(nontrivial.size());
+        progressListener.setProgress(0);
+        progressListener.setCancelable(true);
+        Map<Integer, List<PhyloTree>> component2networks = new HashMap<>();
+
+        for (Integer n : nontrivial) {
+            final Future<List<PhyloTree>> future = component2future.get(n);
+            try {
+                while (true) {
+                    try {
+                        component2networks.put(n, future.get(100, TimeUnit.MILLISECONDS));
+                        break;
+                    } catch (TimeoutException ex) {
+                        int done = 0;
+                        for (Future<List<PhyloTree>> other : component2future.values()) {
+                            if (other.isDone())
+                                done++;
+                        }
+                        progressListener.setTasks("Minimal network", "Solved " + done + " of " + nontrivial.size() + " components");
+                        progressListener.setProgress(done);
+                        if (progressListener.isUserCancelled() && !skip.get()) {
+                            System.err.println("User canceled calculation of minimal networks, will construct cluster networks for remaining components");
+                            skip.set(true);
+                        }
+                    }
+                }
+            } catch (ExecutionException e) {
+                Basic.caught(e.getCause());
+                new Alert(null, "Cass algorithm failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Basic.caught(e);
             }
         }
+        progressListener.setCancelable(false);
+        progressListener.setUserCancelled(false);
 
         List<PhyloTree> networks = new LinkedList<>();
         networks.add(originalBackboneTree);
@@ -241,50 +282,6 @@ public class LevelKNetwork {
     }
 
 
-    /**
-     * determines incompatibility components
-     *
-     * @param incompatible
-     * @return all incompatibity components
-     */
-    public static BitSet[] computeComponents(boolean[][] incompatible) {
-        int[] componentNumber = new int[incompatible.length];
-        Arrays.fill(componentNumber, -1);
-
-        int number = 0;
-        for (int i = 0; i < incompatible.length; i++) {
-            if (componentNumber[i] == -1)
-                computeComponentsRec(incompatible, i, number++, componentNumber);
-        }
-
-        BitSet[] components = new BitSet[number];
-        for (int i = 0; i < components.length; i++)
-            components[i] = new BitSet();
-
-        for (int c = 0; c < incompatible.length; c++) {
-            components[componentNumber[c]].set(c);
-        }
-        return components;
-    }
-
-    /**
-     * recursively does the work
-     *
-     * @param incompatible
-     * @param i
-     * @param number
-     * @param componentNumber
-     */
-    private static void computeComponentsRec(boolean[][] incompatible, int i, int number, int[] componentNumber) {
-        componentNumber[i] = number;
-        for (int j = 0; j < incompatible.length; j++) {
-            if (i != j && incompatible[i][j] && componentNumber[j] == -1) {
-                computeComponentsRec(incompatible, j, number, componentNumber);
-            }
-        }
-    }
-
-
     /**
      * process an individual component in the incompatibility graph
      *
@@ -298,20 +295,13 @@ public class LevelKNetwork {
         // try to compute level-k solution for component:
         List<PhyloTree> componentNetworks = new LinkedList<>();
         try {
-            progressListener.setCancelable(true);
-
             System.err.println("Running new implementation of Cass algorithm:");
             CassAlgorithm cassAlgorithm = new CassAlgorithm();
             int level = cassAlgorithm.apply(clusters, componentNetworks, isComputeOnlyOne(), isCheckTrees(), progressListener);
             System.err.println("done (level=" + level + ")");
 
         } catch (CanceledException ex) {
-            System.err.println("User canceled calculation of minimal network on compoonent " + componentNumber + ", will construct cluster network");
-            progressListener.setCancelable(false);
-            progressListener.setUserCancelled(false);
-            if (progressListener instanceof ProgressDialog) {
-                ((ProgressDialog) progressListener).show();
-            }
+            System.err.println("Calculation of minimal network on component " + componentNumber + " canceled or timed out, will construct cluster network");
         }
 
         if (componentNetworks.size() == 0) // solve component using level-k network failed, construct cluster network
@@ -484,6 +474,25 @@ public class LevelKNetwork {
         return list.toArray(new Node[list.size()]);
     }
 
+    /**
+     * progress listener for a single component. Reports cancellation when all remaining components are to be skipped,
+     * or when the time allowed for the component has run out
+     */
+    private static class ComponentProgress extends ProgressSilent {
+        private final AtomicBoolean skip;
+        private final long deadline;
+
+        ComponentProgress(AtomicBoolean skip, int timeoutSeconds) {
+            this.skip = skip;
+            this.deadline = (timeoutSeconds > 0 ? System.currentTimeMillis() + 1000L * timeoutSeconds : Long.MAX_VALUE);
+        }
+
+        public void checkForCancel() throws CanceledException {
+            if (skip.get() || System.currentTimeMillis() > deadline)
+                throw new CanceledException();
+        }
+    }
+
     public boolean isComputeOnlyOne() {
         return computeOnlyOne;
     }
@@ -40,7 +40,6 @@ public class CassAlgorithm {
     public static final boolean PRINT_EXTRA_INFO = false;
     public static final int DUMMY_NUMBER = 9999;
     private static final int MAX_CIRCLE_SIZE = 5;
-    public static int FOUND = 0; // number of networks found
 
     public static final Vector stringTaxa = new Vector();
     public static String leafShape = "circle";
@@ -117,7 +116,6 @@ public class CassAlgorithm {
 
     public static Vector minSL(ClusterSet CS, ProgressListener progressListener, boolean isOnlyOne, boolean checkTrees) throws CanceledException {
         int k = 0;
-        FOUND = 0;
         Vector output = new Vector();
         boolean found = false;
 
@@ -298,14 +296,13 @@ public class CassAlgorithm {
 
                     // output this solution
                     networks.add(top.network);
-                    FOUND++;
-                    if (FOUND == 1) {
+                    if (networks.size() == 1) {
                         System.err.println("Network found");
                     }
                     if (isOnlyOne) {
                         return networks;
                     } else {
-                        if (FOUND == 1) {
+                        if (networks.size() == 1) {
                             System.err.println("Starting search for alternative solutions");
                         }
                         continue;
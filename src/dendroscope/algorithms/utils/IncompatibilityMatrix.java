@@ -0,0 +1,161 @@
+/*
+ *   IncompatibilityMatrix.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.algorithms.utils;
+
+import dendroscope.util.ParallelExecutor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * the incompatibility graph of a set of clusters, stored as one row of packed bits per cluster.
+ * Rows are computed in parallel, comparing the clusters word by word
+ */
+public class IncompatibilityMatrix {
+    private final int size;
+    private final long[][] rows;
+
+    /**
+     * computes the incompatibility graph
+     *
+     * @param clusters
+     */
+    public IncompatibilityMatrix(BitSet[] clusters) {
+        size = clusters.length;
+        final int words = (size + 63) >>> 6;
+        rows = new long[size][words];
+
+        final long[][] bits = new long[size][];
+        for (int i = 0; i < size; i++)
+            bits[i] = clusters[i].toLongArray();
+
+        // upper triangle, each row is written by one task only
+        ParallelExecutor.forEach(size, new ParallelExecutor.ItemAction() {
+            public void apply(int i) {
+                final long[] row = rows[i];
+                for (int j = i + 1; j < size; j++) {
+                    if (incompatible(bits[i], bits[j]))
+                        row[j >>> 6] |= (1L << j);
+                }
+            }
+        });
+        // lower triangle, mirrored from the upper triangle
+        ParallelExecutor.forEach(size, new ParallelExecutor.ItemAction() {
+            public void apply(int i) {
+                final long[] row = rows[i];
+                for (int j = 0; j < i; j++) {
+                    if ((rows[j][i >>> 6] & (1L << i)) != 0)
+                        row[j >>> 6] |= (1L << j);
+                }
+            }
+        });
+    }
+
+    /**
+     * number of clusters
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * are clusters i and j incompatible?
+     *
+     * @param i
+     * @param j
+     * @return true, if incompatible
+     */
+    public boolean get(int i, int j) {
+        return (rows[i][j >>> 6] & (1L << j)) != 0;
+    }
+
+    /**
+     * determines the connected components of the incompatibility graph. Components are numbered in the order of
+     * their first cluster and each neighborhood is visited a word at a time
+     *
+     * @return all incompatibility components
+     */
+    public BitSet[] computeComponents() {
+        final long[] unvisited = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++)
+            unvisited[i >>> 6] |= (1L << i);
+
+        final List<BitSet> components = new ArrayList<>();
+        final int[] queue = new int[size];
+
+        for (int start = 0; start < size; start++) {
+            if ((unvisited[start >>> 6] & (1L << start)) != 0) {
+                final BitSet component = new BitSet();
+                unvisited[start >>> 6] &= ~(1L << start);
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                while (head < tail) {
+                    final int i = queue[head++];
+                    component.set(i);
+                    final long[] row = rows[i];
+                    for (int w = 0; w < row.length; w++) {
+                        long next = row[w] & unvisited[w];
+                        if (next != 0) {
+                            unvisited[w] &= ~next;
+                            while (next != 0) {
+                                queue[tail++] = (w << 6) + Long.numberOfTrailingZeros(next);
+                                next &= next - 1;
+                            }
+                        }
+                    }
+                }
+                components.add(component);
+            }
+        }
+        return components.toArray(new BitSet[0]);
+    }
+
+    /**
+     * are two clusters, given as words, incompatible? This is the case if they intersect and neither contains the other
+     *
+     * @param a
+     * @param b
+     * @return true, if incompatible
+     */
+    private static boolean incompatible(long[] a, long[] b) {
+        boolean intersects = false;
+        boolean aMinusB = false;
+        boolean bMinusA = false;
+        final int common = Math.min(a.length, b.length);
+        for (int w = 0; w < common; w++) {
+            if ((a[w] & b[w]) != 0)
+                intersects = true;
+            if ((a[w] & ~b[w]) != 0)
+                aMinusB = true;
+            if ((b[w] & ~a[w]) != 0)
+                bMinusA = true;
+        }
+        if (!intersects)
+            return false;
+        if (a.length > common)
+            aMinusB = true; // toLongArray drops trailing zero words, so longer array has a set bit beyond
+        if (b.length > common)
+            bMinusA = true;
+        return aMinusB && bMinusA;
+    }
+}
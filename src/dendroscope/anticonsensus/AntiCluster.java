@@ -18,110 +18,115 @@
  */
 package dendroscope.anticonsensus;
 
-import jloda.graph.Node;
-import jloda.phylo.PhyloTree;
-
-import java.util.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * representing anti-clusters
+ * representing anti-clusters. Taxa and witness are sets of taxon ids, P1 and P2 are sets of tree numbers.
+ * Taxon ids are resolved to labels using the id-to-label table of the anti-consensus computation
  * thomas bonfert, 10.2009
  */
 
 public class AntiCluster {
 
-    private final PhyloTree tree;
-    private final Vector<PhyloTree> P_1;
-    private final Vector<PhyloTree> P_2;
-    private HashSet<Node> witness;
-    private final HashSet<Node> nodes;
-    private final Node ancestor;
-    private final ArrayList<String> taxa;
-    private String concatenatedTaxa;
-
-    public AntiCluster(PhyloTree t, Node ancestor) {
-        this.tree = t;
-        this.ancestor = ancestor;
-        this.nodes = new HashSet<>();
-        this.P_1 = new Vector<>();
-        this.P_2 = new Vector<>();
-        this.witness = new HashSet<>();
-        this.taxa = new ArrayList<>();
-        this.concatenatedTaxa = "";
-    }
-
-    public void add(Node n) {
-        this.nodes.add(n);
-        addSorted(this.taxa, this.tree.getLabel(n));
+    private final BitSet taxa;
+    private final int tree;
+    private final BitSet P_1;
+    private final BitSet P_2;
+    private BitSet witness;
+    private final String[] id2taxon;
+    private final String concatenatedTaxa;
+
+    /**
+     * constructor
+     *
+     * @param taxa     taxon ids of the cluster
+     * @param tree     number of the tree the cluster was taken from
+     * @param id2taxon taxon labels, indexed by taxon id
+     */
+    public AntiCluster(BitSet taxa, int tree, String[] id2taxon) {
+        this.taxa = taxa;
+        this.tree = tree;
+        this.id2taxon = id2taxon;
+        final StringBuilder buf = new StringBuilder();
+        for (String label : getLabels(taxa)) {
+            buf.append(label);
+        }
+        this.concatenatedTaxa = buf.toString();
+        this.P_1 = new BitSet();
+        this.P_2 = new BitSet();
+        this.witness = new BitSet();
     }
 
-    private void addSorted(ArrayList<String> taxa, String taxon) {
-        Comparator comparator = new Comparator() {
-            public int compare(Object o1, Object o2) {
-                String taxon1 = (String) o1;
-                String taxon2 = (String) o2;
-                return taxon1.compareTo(taxon2);
-            }
-        };
-        int insertionPoint = Collections.binarySearch(taxa, taxon, comparator);
-        if (insertionPoint < 0) insertionPoint = -1 * insertionPoint - 1;
-        taxa.add(insertionPoint, taxon);
+    public String getConcatenatedTaxa() {
+        return this.concatenatedTaxa;
     }
 
-    public void setConcatenatedTaxa() {
-
-        for (String aTaxa : this.taxa) {
-            this.concatenatedTaxa += aTaxa;
+    /**
+     * gets the sorted labels of a set of taxon ids
+     *
+     * @param taxa
+     * @return labels
+     */
+    public List<String> getLabels(BitSet taxa) {
+        final List<String> labels = new ArrayList<>(taxa.cardinality());
+        for (int t = taxa.nextSetBit(0); t != -1; t = taxa.nextSetBit(t + 1)) {
+            labels.add(id2taxon[t]);
         }
+        Collections.sort(labels);
+        return labels;
     }
 
-
-    public String getConcatenatedTaxa() {
-        return this.concatenatedTaxa;
+    public List<String> getTaxonLabels() {
+        return getLabels(this.taxa);
     }
 
-    public void addTreeToP1(PhyloTree t) {
-        this.P_1.add(t);
+    public List<String> getWitnessLabels() {
+        return getLabels(this.witness);
     }
 
-    public void addTreeToP2(PhyloTree t) {
-        this.P_2.add(t);
+    public void addTreeToP1(int t) {
+        this.P_1.set(t);
     }
 
-    public void setWitness(HashSet<Node> nodes) {
-        this.witness = nodes;
+    public void addTreeToP2(int t) {
+        this.P_2.set(t);
     }
 
-    public boolean removeTreeFromP2(PhyloTree t) {
-        return (this.P_2.remove(t));
+    public void setWitness(BitSet taxa) {
+        this.witness = taxa;
     }
 
-    public HashSet<Node> getNodes() {
-        return this.nodes;
+    public boolean removeTreeFromP2(int t) {
+        final boolean contained = this.P_2.get(t);
+        this.P_2.clear(t);
+        return contained;
     }
 
-    public Node getAncestor() {
-        return this.ancestor;
+    public BitSet getTaxa() {
+        return this.taxa;
     }
 
-    public Vector<PhyloTree> getP1() {
+    public BitSet getP1() {
         return this.P_1;
     }
 
-    public Vector<PhyloTree> getP2() {
+    public BitSet getP2() {
         return this.P_2;
     }
 
-    public HashSet<Node> getWitness() {
+    public BitSet getWitness() {
         return this.witness;
     }
 
-    public PhyloTree getTree() {
+    public int getTree() {
         return this.tree;
     }
 
     public boolean equals(AntiCluster cluster) {
-        return (this.getConcatenatedTaxa().compareTo(cluster.getConcatenatedTaxa()) == 0);
+        return this.taxa.equals(cluster.getTaxa());
     }
 
 
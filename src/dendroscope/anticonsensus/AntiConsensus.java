@@ -19,153 +19,134 @@
 package dendroscope.anticonsensus;
 
 import dendroscope.core.TreeData;
-import dendroscope.util.LCA_LSACalculation;
+import dendroscope.util.ParallelExecutor;
 import jloda.graph.Edge;
 import jloda.graph.Node;
-import jloda.graph.NodeSet;
 import jloda.phylo.PhyloTree;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * this class calculates the anti-consensus for a given set of trees
  * <p/>
+ * Each tree is reduced to a compact index holding the parent and the set of taxa below each node. Leaf sets,
+ * witnesses and the lowest common ancestors of taxon sets are computed on taxon bit sets. A first pass over the
+ * trees collects the distinct clusters. Each cluster is then processed as a sequence of steps, each step needing
+ * one tree. The trees are read in windows of at most a given number of trees, and all clusters whose next step
+ * needs a tree of the current window are advanced, in parallel. If trees are requested again after their window
+ * has been discarded, the trees are read again, so that at most one window of trees is indexed at any time
+ * <p/>
  * thomas bonfert, 11.2009
  */
 
 public class AntiConsensus {
+    /**
+     * a source of trees that can be read more than once
+     */
+    public interface TreeSource {
+        /**
+         * opens the trees for reading. If the iterator is closeable, it is closed after reading
+         *
+         * @return iterator over the trees, always in the same order
+         */
+        Iterator<? extends PhyloTree> open() throws IOException;
+    }
 
-    private final TreeData[] trees;
+    private final TreeSource source;
+    private Iterator<? extends PhyloTree> input; // for trees that can only be read once
+    private final int maxIndexedTrees;
     private final Vector<AntiCluster> antiClusters;
 
+    private final Map<String, Integer> taxon2id = new ConcurrentHashMap<>();
+    private final AtomicInteger numberOfTaxa = new AtomicInteger();
+    private String[] id2taxon;
+    private int numberOfTrees;
+
     public AntiConsensus(TreeData[] trees) {
-        this.trees = trees;
+        this(() -> Arrays.asList(trees).iterator(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * anti-consensus of a stream of trees that can only be read once, so all trees are indexed at the same time.
+     * Trees are numbered 0, 1, 2,... in the order given
+     *
+     * @param trees
+     */
+    public AntiConsensus(Iterator<? extends PhyloTree> trees) {
+        this.source = null;
+        this.input = trees;
+        this.maxIndexedTrees = Integer.MAX_VALUE;
+        this.antiClusters = new Vector<>();
+    }
+
+    /**
+     * anti-consensus of trees that can be read repeatedly. Trees are numbered 0, 1, 2,... in the order given
+     *
+     * @param source
+     * @param maxIndexedTrees maximal number of trees indexed at the same time
+     */
+    public AntiConsensus(TreeSource source, int maxIndexedTrees) {
+        this.source = source;
+        this.maxIndexedTrees = Math.max(1, maxIndexedTrees);
         this.antiClusters = new Vector<>();
     }
 
     public AntiCluster[] apply() {
         long startTime = new Date().getTime();
         try {
+            //determine all distinct clusters and the first tree containing each, keeping the first window of trees
+            final Map<BitSet, Integer> cluster2tree = new LinkedHashMap<>();
+            final List<TreeIndex> firstWindow = new ArrayList<>();
             //check if all inputed trees are on the same set of taxa
-            if (!checkTaxasets())
+            if (!readClusters(cluster2tree, firstWindow))
                 throw new Exception("ERROR: trees are not on the same set of taxa");
-            //determine all clusters of each tree
-            Vector<AntiClusterSet> clusters = new Vector<>(this.trees.length);
-            Vector<Hashtable<String, Node>> leaves = new Vector<>(this.trees.length);
-            Vector<LCA_LSACalculation> lcaCalculations = new Vector<>(this.trees.length);
-            for (int i = 0; i < this.trees.length; i++) {
-                PhyloTree tmpTree = this.trees[i];
-                tmpTree.setName(Integer.toString(i));
-                clusters.add(determineClusters(tmpTree));
-                leaves.add(collectLeaves(tmpTree));
-                lcaCalculations.add(new LCA_LSACalculation(tmpTree));
-            }
             long seconds = (new Date().getTime() - startTime);
             System.err.println("Preprocessing required " + seconds / 1000.0 + " seconds");
-            //now iterate over all trees
-            for (int i = 0; i < trees.length; i++) {
-                PhyloTree tree_1 = this.trees[i];
-                LCA_LSACalculation lcaCalculation_1 = lcaCalculations.get(i);
-                AntiClusterSet clusterSet = clusters.get(i);
-                //iterate over all clusters contained in the current tree
-                Iterator<AntiCluster> clusterSetIt = clusterSet.getClusters();
-                while (clusterSetIt.hasNext()) {
-                    AntiCluster cluster = clusterSetIt.next();
-                    cluster.addTreeToP1(tree_1);
-                    Node v_T1 = calculateV_T(lcaCalculation_1, cluster.getNodes(), true);
-                    Node v_T1_Plus = calculateV_T_Plus(v_T1);
-                    HashSet<Node> witness = getLeavesBelow(v_T1_Plus);
-                    witness.removeAll(cluster.getNodes());
-                    cluster.setWitness(witness);
-                    for (int j = 0; j < this.trees.length; j++) {
-                        PhyloTree tree_2 = this.trees[j];
-                        if (!tree_2.equals(tree_1)) {
-                            HashSet<Node> witness_T2 = getNodesInOtherTree(tree_1, cluster.getWitness(), leaves, j);
-                            HashSet<Node> cluster_T2 = getNodesInOtherTree(tree_1, cluster.getNodes(), leaves, j);
-                            LCA_LSACalculation lcaCalculation_2 = lcaCalculations.get(j);
-                            Node lcaWitness_T2 = lcaCalculation_2.getLca(witness_T2, false);
-                            AntiClusterSet clusterSet_T2 = clusters.get(j);
-                            boolean isCluster = clusterSet_T2.contains(cluster);
-                            Node v_T2 = calculateV_T(lcaCalculation_2, cluster_T2, isCluster);
-                            Node lca = lcaCalculation_2.getLCA(lcaWitness_T2, v_T2);
-                            if (!(lca.equals(lcaWitness_T2) || lca.equals(v_T2))) {
-                                cluster.addTreeToP2(tree_2);
-                            } else {
-                                if (!isCluster) {
-                                    cluster.getP2().clear();
-                                    cluster.getWitness().clear();
-                                    removeNeedlessCluster(clusters, cluster);
-                                    break;
-                                }
-                                cluster.addTreeToP1(tree_2);
-                                Node v_T2_Plus = calculateV_T_Plus(v_T2);
-                                HashSet<Node> leavesBelow = getLeavesBelow(v_T2_Plus);
-                                leavesBelow.removeAll(cluster_T2);
-                                witness_T2.addAll(leavesBelow);
-                                cluster.setWitness(getNodesInOtherTree(tree_2, witness_T2, leaves, i));
-                                Vector<PhyloTree> q = cluster.getP2();
-                                boolean processNewCluster = false;
-                                while (!q.isEmpty()) {
-                                    PhyloTree tree_3 = q.get(0);
-                                    int treeNumber = Integer.valueOf(tree_3.getName());
-                                    q.remove(0);
-                                    HashSet<Node> witness_T3 = getNodesInOtherTree(tree_1, cluster.getWitness(), leaves, treeNumber);
-                                    HashSet<Node> cluster_T3 = getNodesInOtherTree(tree_1, cluster.getNodes(), leaves, treeNumber);
-                                    LCA_LSACalculation lcaCalculation_3 = lcaCalculations.get(treeNumber);
-                                    AntiClusterSet clusterSet_T3 = clusters.get(treeNumber);
-                                    isCluster = clusterSet_T3.contains(cluster);
-                                    Node lcaWitness_T3 = lcaCalculation_3.getLca(witness_T3, false);
-                                    Node v_T3 = calculateV_T(lcaCalculation_3, cluster_T3, isCluster);
-                                    Node v_T3_Plus = calculateV_T_Plus(v_T3);
-                                    lca = lcaCalculation_3.getLCA(lcaWitness_T3, v_T3);
-                                    if (lcaWitness_T3.getId() == 1 || v_T3.getId() == 1 || lca.getId() != 1) {
-                                        if (!clusters.get(treeNumber).contains(cluster)) {
-                                            processNewCluster = true;
-                                            break;
-                                        }
-                                        cluster.addTreeToP1(tree_3);
-                                        cluster.removeTreeFromP2(tree_3);
-                                        leavesBelow = getLeavesBelow(v_T3_Plus);
-                                        leavesBelow.removeAll(cluster_T3);
-                                        witness_T3.addAll(leavesBelow);
-                                        cluster.setWitness(getNodesInOtherTree(tree_3, witness_T3, leaves, i));
-                                        q = cluster.getP2();
-                                    }
-                                }
-                                if (processNewCluster) {
-                                    cluster.getP2().clear();
-                                    cluster.getWitness().clear();
-                                    removeNeedlessCluster(clusters, cluster);
-                                    break;
-                                }
-                            }
 
-                        }
+            final List<ClusterProcess> active = new ArrayList<>(cluster2tree.size());
+            for (Map.Entry<BitSet, Integer> entry : cluster2tree.entrySet()) {
+                active.add(new ClusterProcess(entry.getKey(), entry.getValue()));
+            }
+            final List<ClusterProcess> processes = new ArrayList<>(active);
+
+            if (firstWindow.size() == numberOfTrees) { // all trees fit into one window
+                advance(active, firstWindow.toArray(new TreeIndex[0]), 0);
+            } else {
+                firstWindow.clear();
+                int passes = 0;
+                while (!active.isEmpty()) {
+                    readWindows(active);
+                    passes++;
+                }
+                System.err.println("Passes over trees: " + passes);
+            }
+
+            for (ClusterProcess process : processes) {
+                final AntiCluster cluster = process.result;
+                //the current cluster is an anti-cluster
+                if (cluster != null) {
+                    antiClusters.add(cluster);
+
+                    //this can be deleted
+                    System.out.println("found the following anti-cluster: ");
+                    System.out.println("cluster: " + cluster.getConcatenatedTaxa());
+                    System.out.println("trees in P1: " + cluster.getP1().cardinality());
+                    for (int t = cluster.getP1().nextSetBit(0); t != -1; t = cluster.getP1().nextSetBit(t + 1)) {
+                        System.out.println(t);
                     }
-                    //the current cluster is an anti-cluster
-                    if (cluster.getP2().size() > 0) {
-                        antiClusters.add(cluster);
-
-                        //this can be deleted
-                        System.out.println("found the following anti-cluster: ");
-                        System.out.println("cluster: " + cluster.getConcatenatedTaxa());
-                        System.out.println("trees in P1: " + cluster.getP1().size());
-                        Vector<PhyloTree> p1 = cluster.getP1();
-                        for (PhyloTree aP1 : p1) {
-                            System.out.println(aP1.getName());
-                        }
-                        System.out.println("trees in P2: " + cluster.getP2().size());
-                        Vector<PhyloTree> p2 = cluster.getP2();
-                        for (PhyloTree aP2 : p2) {
-                            System.out.println(aP2.getName());
-                        }
-                        System.out.println("witness:");
-                        HashSet<Node> tmpWitness = cluster.getWitness();
-                        for (Node tmpNode : tmpWitness) {
-                            System.out.println(tree_1.getLabel(tmpNode));
-                        }
-                        System.out.println();
+                    System.out.println("trees in P2: " + cluster.getP2().cardinality());
+                    for (int t = cluster.getP2().nextSetBit(0); t != -1; t = cluster.getP2().nextSetBit(t + 1)) {
+                        System.out.println(t);
                     }
+                    System.out.println("witness:");
+                    for (String label : cluster.getWitnessLabels()) {
+                        System.out.println(label);
+                    }
+                    System.out.println();
                 }
             }
             seconds = (new Date().getTime() - startTime);
@@ -177,143 +158,413 @@ public class AntiConsensus {
         return antiClusters.toArray(new AntiCluster[antiClusters.size()]);
     }
 
-    private boolean checkTaxasets() {
-        for (int i = 0; i < this.trees.length; i++) {
-            for (int j = i + 1; j < this.trees.length; j++) {
-                PhyloTree tmpTree_1 = this.trees[i];
-                PhyloTree tmpTree_2 = this.trees[j];
-                NodeSet set1 = tmpTree_1.computeSetOfLeaves();
-                NodeSet set2 = tmpTree_2.computeSetOfLeaves();
-                for (Node tmpNode_1 : set1) {
-                    Iterator<Node> setIt2 = set2.iterator();
-                    boolean contains = false;
-                    while (setIt2.hasNext()) {
-                        Node tmpNode_2 = setIt2.next();
-                        if (tmpTree_1.getLabel(tmpNode_1).equals(tmpTree_2.getLabel(tmpNode_2))) {
-                            contains = true;
-                            break;
-                        }
+    /**
+     * first pass: reads all trees, collects the distinct clusters and the first tree containing each and checks that
+     * all trees are on the same taxa. The indices of the first trees are kept, as long as they fit into one window
+     *
+     * @param cluster2tree
+     * @param firstWindow
+     * @return true, if all trees on the same taxa
+     */
+    private boolean readClusters(final Map<BitSet, Integer> cluster2tree, final List<TreeIndex> firstWindow) throws IOException {
+        final BitSet[] firstTaxa = new BitSet[1];
+        final boolean[] sameTaxa = {true};
+        numberOfTrees = readTrees(16 * ParallelExecutor.getPool().getParallelism(), new WindowAction() {
+            public void apply(TreeIndex[] window, int offset) {
+                for (int k = 0; k < window.length; k++) {
+                    final TreeIndex tree = window[k];
+                    if (firstTaxa[0] == null)
+                        firstTaxa[0] = tree.taxa;
+                    else if (!tree.taxa.equals(firstTaxa[0]))
+                        sameTaxa[0] = false;
+                    for (int v = 1; v < tree.below.length; v++) {
+                        if (!tree.below[v].isEmpty())
+                            cluster2tree.putIfAbsent(tree.below[v], offset + k);
                     }
-                    if (!contains)
-                        return false;
                 }
+                if (offset == firstWindow.size() && firstWindow.size() + window.length <= maxIndexedTrees)
+                    firstWindow.addAll(Arrays.asList(window));
             }
+        });
+        id2taxon = new String[numberOfTaxa.get() + 1];
+        for (Map.Entry<String, Integer> entry : taxon2id.entrySet()) {
+            id2taxon[entry.getValue()] = entry.getKey();
         }
-        return true;
+        return sameTaxa[0];
     }
 
-    private AntiClusterSet determineClusters(PhyloTree tree) {
-        AntiClusterSet clusterSet = new AntiClusterSet();
-        for (Node n = tree.getFirstNode(); n != null; n = tree.getNextNode(n)) {
-            if (!n.equals(tree.getRoot())) {
-                AntiCluster cluster = new AntiCluster(tree, n);
-                if (n.getOutDegree() == 0)
-                    cluster.add(n);
-                else
-                    determineClusterRec(n, cluster);
-                cluster.setConcatenatedTaxa();
-                clusterSet.add(cluster);
+    /**
+     * one further pass: reads all trees a window at a time and advances the active clusters
+     *
+     * @param active clusters not yet processed, processed clusters are removed
+     */
+    private void readWindows(final List<ClusterProcess> active) throws IOException {
+        readTrees(maxIndexedTrees, new WindowAction() {
+            public void apply(TreeIndex[] window, int offset) {
+                advance(active, window, offset);
             }
-        }
-        return clusterSet;
+        });
     }
 
-    private void determineClusterRec(Node n, AntiCluster cluster) {
-        for (Edge f = n.getFirstOutEdge(); f != null; f = n.getNextOutEdge(f)) {
-            Node w = f.getTarget();
-            if (w.getOutDegree() == 0) {
-                cluster.add(w);
-            } else
-                determineClusterRec(w, cluster);
-        }
+    /**
+     * advances all active clusters as far as possible using the given window of trees
+     *
+     * @param active
+     * @param window
+     * @param offset number of the first tree in the window
+     */
+    private void advance(List<ClusterProcess> active, final TreeIndex[] window, final int offset) {
+        final ClusterProcess[] processes = active.toArray(new ClusterProcess[0]);
+        ParallelExecutor.forEach(processes.length, new ParallelExecutor.ItemAction() {
+            public void apply(int c) {
+                processes[c].advance(window, offset);
+            }
+        });
+        active.removeIf(process -> process.done);
     }
 
-    private void removeNeedlessCluster(Vector<AntiClusterSet> clusters, AntiCluster cluster) {
-        for (AntiClusterSet tmpSet : clusters) {
-            tmpSet.remove(cluster);
-        }
+    /**
+     * action applied to each window of indexed trees
+     */
+    private interface WindowAction {
+        /**
+         * @param window indices of the trees of the window
+         * @param offset number of the first tree in the window
+         */
+        void apply(TreeIndex[] window, int offset);
     }
 
-    private Hashtable<String, Node> collectLeaves(PhyloTree tree) {
-        Hashtable<String, Node> leaves = new Hashtable<>();
-        for (Node n : tree.computeSetOfLeaves()) {
-            leaves.put(tree.getLabel(n), n);
+    /**
+     * reads and indexes all trees, a window at a time, indexing the trees of a window in parallel batches
+     *
+     * @param windowSize maximal number of trees per window
+     * @param action     applied to each window
+     * @return number of trees read
+     */
+    private int readTrees(int windowSize, WindowAction action) throws IOException {
+        final Iterator<? extends PhyloTree> it;
+        if (source != null)
+            it = source.open();
+        else if (input != null) {
+            it = input;
+            input = null;
+        } else
+            throw new IOException("Trees can only be read once");
+        try {
+            final int batchSize = Math.min(windowSize, 16 * ParallelExecutor.getPool().getParallelism());
+            final List<TreeIndex> window = new ArrayList<>();
+            final List<PhyloTree> batch = new ArrayList<>(batchSize);
+            int count = 0;
+            while (it.hasNext()) {
+                batch.add(it.next());
+                if (batch.size() == batchSize || window.size() + batch.size() == windowSize || !it.hasNext()) {
+                    final TreeIndex[] indices = new TreeIndex[batch.size()];
+                    ParallelExecutor.forEach(batch.size(), new ParallelExecutor.ItemAction() {
+                        public void apply(int k) {
+                            indices[k] = new TreeIndex(batch.get(k));
+                        }
+                    });
+                    window.addAll(Arrays.asList(indices));
+                    batch.clear();
+                }
+                if (window.size() == windowSize || (!it.hasNext() && !window.isEmpty())) {
+                    action.apply(window.toArray(new TreeIndex[0]), count);
+                    count += window.size();
+                    window.clear();
+                }
+            }
+            return count;
+        } finally {
+            if (it instanceof Closeable)
+                ((Closeable) it).close();
         }
-        return leaves;
     }
 
     /**
-     * calculates v_T(C) for any set of nodes
-     *
-     * @param lcaCalculation
-     * @param nodes
-     * @return v_T(nodes)
+     * the processing of one cluster of tree i, which determines whether it is an anti-cluster. Each step needs one
+     * tree: first tree i, then each other tree in turn. Whenever a tree is added to P1, the trees in P2 are
+     * re-examined with the enlarged witness, each is removed from P2
      */
-    private Node calculateV_T(LCA_LSACalculation lcaCalculation, HashSet<Node> nodes, boolean isCluster) {
-        if (isCluster) {
-            Node returnValue = lcaCalculation.getLca(nodes, false);
-            if (returnValue.getFirstInEdge() != null)
-                returnValue = returnValue.getFirstInEdge().getSource();
-            return returnValue;
-        } else
-            return (lcaCalculation.getLca(nodes, false));
+    private class ClusterProcess {
+        private final BitSet cluster;
+        private final int i;
+        private AntiCluster antiCluster;
+        private int j = 0; // next tree to compare with
+        private boolean reexamine = false;
+        private boolean done = false;
+        private AntiCluster result;
+
+        ClusterProcess(BitSet cluster, int i) {
+            this.cluster = cluster;
+            this.i = i;
+        }
 
+        /**
+         * the number of the tree needed by the next step
+         *
+         * @return tree number or -1, if done
+         */
+        private int getNextTree() {
+            if (done)
+                return -1;
+            if (antiCluster == null)
+                return i;
+            if (reexamine && !antiCluster.getP2().isEmpty())
+                return antiCluster.getP2().nextSetBit(0);
+            reexamine = false;
+            if (j == i)
+                j++;
+            if (j >= numberOfTrees) {
+                finish(antiCluster.getP2().isEmpty() ? null : antiCluster);
+                return -1;
+            }
+            return j;
+        }
+
+        private void finish(AntiCluster result) {
+            this.result = result;
+            done = true;
+        }
+
+        /**
+         * performs all steps whose tree is contained in the given window
+         *
+         * @param window
+         * @param offset number of the first tree in the window
+         */
+        void advance(TreeIndex[] window, int offset) {
+            int t;
+            while ((t = getNextTree()) != -1 && t >= offset && t < offset + window.length) {
+                final TreeIndex tree = window[t - offset];
+                if (antiCluster == null)
+                    start(tree);
+                else if (reexamine)
+                    reexamine(tree, t);
+                else
+                    compare(tree, t);
+            }
+        }
+
+        private void start(TreeIndex tree_1) {
+            antiCluster = new AntiCluster(cluster, i, id2taxon);
+            antiCluster.addTreeToP1(i);
+            int v_T1 = tree_1.calculateV_T(cluster, true);
+            int v_T1_Plus = tree_1.calculateV_T_Plus(v_T1);
+            antiCluster.setWitness(getLeavesBelowExcept(tree_1, v_T1_Plus, cluster));
+        }
+
+        private void compare(TreeIndex tree_2, int treeNumber) {
+            j++;
+            int lcaWitness_T2 = tree_2.getLca(antiCluster.getWitness());
+            boolean isCluster = tree_2.isCluster(cluster);
+            int v_T2 = tree_2.calculateV_T(cluster, isCluster);
+            int lca = tree_2.getLca(lcaWitness_T2, v_T2);
+            if (!(lca == lcaWitness_T2 || lca == v_T2)) {
+                antiCluster.addTreeToP2(treeNumber);
+            } else {
+                if (!isCluster) {
+                    finish(null);
+                    return;
+                }
+                antiCluster.addTreeToP1(treeNumber);
+                antiCluster.setWitness(union(antiCluster.getWitness(), getLeavesBelowExcept(tree_2, tree_2.calculateV_T_Plus(v_T2), cluster)));
+                reexamine = true;
+            }
+        }
+
+        private void reexamine(TreeIndex tree_3, int treeNumber) {
+            antiCluster.getP2().clear(treeNumber);
+            boolean isCluster = tree_3.isCluster(cluster);
+            int lcaWitness_T3 = tree_3.getLca(antiCluster.getWitness());
+            int v_T3 = tree_3.calculateV_T(cluster, isCluster);
+            int v_T3_Plus = tree_3.calculateV_T_Plus(v_T3);
+            int lca = tree_3.getLca(lcaWitness_T3, v_T3);
+            if (lcaWitness_T3 == TreeIndex.ROOT || v_T3 == TreeIndex.ROOT || lca != TreeIndex.ROOT) {
+                if (!isCluster) {
+                    finish(null);
+                    return;
+                }
+                antiCluster.addTreeToP1(treeNumber);
+                antiCluster.setWitness(union(antiCluster.getWitness(), getLeavesBelowExcept(tree_3, v_T3_Plus, cluster)));
+            }
+        }
     }
 
-    private Node calculateV_T_Plus(Node v_T) {
-        if (v_T.getOutDegree() >= 3)
-            return v_T;
-        else if (v_T.getFirstInEdge() != null)
-            return v_T.getFirstInEdge().getSource();
+    /**
+     * gets the id of a taxon, registering new taxa
+     *
+     * @param label
+     * @return id
+     */
+    private int getTaxonId(String label) {
+        return taxon2id.computeIfAbsent(label, k -> numberOfTaxa.incrementAndGet());
+    }
 
-        else
-            return v_T;
+    /**
+     * gets the label of a taxon id, as used in the taxon sets of the computed anti-clusters
+     *
+     * @param id
+     * @return label or null
+     */
+    public String getTaxonLabel(int id) {
+        return (id2taxon != null && id > 0 && id < id2taxon.length ? id2taxon[id] : null);
     }
 
     /**
-     * calculates all descending leave nodes of v.
+     * gets the number of trees read
+     *
+     * @return number of trees
      */
-    public HashSet<Node> getLeavesBelow(Node v) {
-        HashSet<Node> nodes = new HashSet<>();
-        if (v.getOutDegree() == 0) {
-            nodes.add(v);
-            return nodes;
-        } else {
-            getLeaveNodesRec(v, nodes);
-            return nodes;
-        }
+    public int getNumberOfTrees() {
+        return numberOfTrees;
     }
 
-    private void getLeaveNodesRec(Node v, HashSet<Node> nodes) {
-        for (Edge f = v.getFirstOutEdge(); f != null; f = v.getNextOutEdge(f)) {
-            Node w = f.getTarget();
-            if (w.getOutDegree() == 0)
-                nodes.add(w);
-            else
-                getLeaveNodesRec(w, nodes);
-        }
+    /**
+     * calculates all taxa below v, excluding the given ones
+     */
+    private static BitSet getLeavesBelowExcept(TreeIndex tree, int v, BitSet except) {
+        final BitSet taxa = (BitSet) tree.below[v].clone();
+        taxa.andNot(except);
+        return taxa;
     }
 
+    private static BitSet union(BitSet a, BitSet b) {
+        final BitSet result = (BitSet) a.clone();
+        result.or(b);
+        return result;
+    }
 
     /**
-     * the given nodes have to be leaves in the given tree.
-     * the function collects these nodes in the tree with index 'treeIndex'
+     * is a a subset of b?
      *
-     * @param tree
-     * @param nodes
-     * @param leaves
-     * @param treeIndex
-     * @return
+     * @return true, if subset
+     */
+    private static boolean isSubset(BitSet a, BitSet b) {
+        for (int t = a.nextSetBit(0); t != -1; t = a.nextSetBit(t + 1)) {
+            if (!b.get(t))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * a tree reduced to the parent and the taxa below each node. Nodes are numbered in pre-order, the root is 0
      */
+    private class TreeIndex {
+        static final int ROOT = 0;
 
-    private HashSet<Node> getNodesInOtherTree(PhyloTree tree, HashSet<Node> nodes, Vector<Hashtable<String, Node>> leaves,
-                                              int treeIndex) {
+        final int[] parent;
+        final int[] outDegree;
+        final BitSet[] below;
+        final BitSet taxa;
+        final int[] taxon2leaf;
 
-        HashSet<Node> newNodes = new HashSet<>();
-        Hashtable<String, Node> leaveNodes = leaves.get(treeIndex);
-        for (Node nextNode : nodes) {
-            newNodes.add(leaveNodes.get(tree.getLabel(nextNode)));
+        TreeIndex(PhyloTree tree) {
+            final int n = tree.getNumberOfNodes();
+            parent = new int[n];
+            outDegree = new int[n];
+            below = new BitSet[n];
+
+            final Deque<Node> stack = new ArrayDeque<>();
+            final Deque<Integer> parents = new ArrayDeque<>();
+            final Map<Integer, Integer> taxon2node = new HashMap<>();
+            int count = 0;
+            if (tree.getRoot() != null) {
+                stack.push(tree.getRoot());
+                parents.push(-1);
+            }
+            while (!stack.isEmpty()) {
+                final Node v = stack.pop();
+                final int index = count++;
+                parent[index] = parents.pop();
+                outDegree[index] = v.getOutDegree();
+                below[index] = new BitSet();
+                if (v.getOutDegree() == 0 && tree.getLabel(v) != null) {
+                    final int taxon = getTaxonId(tree.getLabel(v));
+                    below[index].set(taxon);
+                    taxon2node.put(taxon, index);
+                }
+                for (Edge e = v.getFirstOutEdge(); e != null; e = v.getNextOutEdge(e)) {
+                    if (e == e.getTarget().getFirstInEdge()) { // visit each node once
+                        stack.push(e.getTarget());
+                        parents.push(index);
+                    }
+                }
+            }
+            // children come after their parents in pre-order
+            for (int v = count - 1; v > 0; v--) {
+                below[parent[v]].or(below[v]);
+            }
+            taxa = (count > 0 ? below[ROOT] : new BitSet());
+
+            taxon2leaf = new int[taxa.length()];
+            for (Map.Entry<Integer, Integer> entry : taxon2node.entrySet()) {
+                taxon2leaf[entry.getKey()] = entry.getValue();
+            }
+        }
+
+        /**
+         * gets the lowest common ancestor of a set of taxa: starting at a leaf, the first ancestor that has all taxa below
+         *
+         * @param taxa
+         * @return lca, or the root, if the set is empty
+         */
+        int getLca(BitSet taxa) {
+            final int t = taxa.nextSetBit(0);
+            if (t == -1 || t >= taxon2leaf.length)
+                return ROOT;
+            int v = taxon2leaf[t];
+            while (v != ROOT && !isSubset(taxa, below[v]))
+                v = parent[v];
+            return v;
+        }
+
+        /**
+         * gets the lowest common ancestor of two nodes
+         *
+         * @param a
+         * @param b
+         * @return lca
+         */
+        int getLca(int a, int b) {
+            int v = a;
+            while (v != ROOT && !isSubset(below[b], below[v]))
+                v = parent[v];
+            return v;
+        }
+
+        /**
+         * is the given set of taxa a cluster of this tree?
+         *
+         * @param taxa
+         * @return true, if cluster
+         */
+        boolean isCluster(BitSet taxa) {
+            return below[getLca(taxa)].equals(taxa);
+        }
+
+        /**
+         * calculates v_T(C) for any set of taxa
+         *
+         * @param taxa
+         * @param isCluster
+         * @return v_T(taxa)
+         */
+        int calculateV_T(BitSet taxa, boolean isCluster) {
+            final int v = getLca(taxa);
+            if (isCluster && v != ROOT)
+                return parent[v];
+            else
+                return v;
+        }
+
+        int calculateV_T_Plus(int v_T) {
+            if (outDegree[v_T] >= 3)
+                return v_T;
+            else if (v_T != ROOT)
+                return parent[v_T];
+            else
+                return v_T;
         }
-        return newNodes;
     }
 }
@@ -0,0 +1,210 @@
+/*
+ *   ConcurrentLookupTable.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.autumn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * bounded lookup table used for memoization by the autumn algorithms. The table is split into lock-striped segments,
+ * each of which is a small LRU map guarded by its own monitor, so that worker threads only contend when they
+ * hit the same segment. Eviction is thus LRU per segment and approximately LRU for the whole table
+ */
+public class ConcurrentLookupTable<K, V> {
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * constructor
+     *
+     * @param capacity maximal number of entries
+     */
+    public ConcurrentLookupTable(int capacity) {
+        this(capacity, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor
+     *
+     * @param capacity         maximal number of entries
+     * @param concurrencyLevel expected number of concurrently accessing threads
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLookupTable(int capacity, int concurrencyLevel) {
+        int numberOfSegments = 1;
+        while (numberOfSegments < concurrencyLevel && numberOfSegments < (1 << 16))
+            numberOfSegments <<= 1;
+        segments = (Segment<K, V>[]) new Segment[numberOfSegments];
+        segmentMask = numberOfSegments - 1;
+        final int segmentCapacity = Math.max(1, (capacity + numberOfSegments - 1) / numberOfSegments);
+        for (int i = 0; i < numberOfSegments; i++)
+            segments[i] = new Segment<>(segmentCapacity, evictions);
+    }
+
+    /**
+     * get the segment responsible for the given key
+     *
+     * @param key
+     * @return segment
+     */
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * gets the value for the given key
+     *
+     * @param key
+     * @return value or null
+     */
+    public V get(K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        final V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null)
+            hits.increment();
+        else
+            misses.increment();
+        return value;
+    }
+
+    /**
+     * puts a value into the table
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * atomically combines the given value with the present one, if any, as in {@link Map#merge}
+     *
+     * @param key
+     * @param value
+     * @param remappingFunction
+     */
+    public void merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.merge(key, value, remappingFunction);
+        }
+    }
+
+    /**
+     * removes an entry
+     *
+     * @param key
+     * @return value removed, or null
+     */
+    public V remove(K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    /**
+     * gets the number of entries
+     *
+     * @return size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * clears the table and resets all counts
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * report size and usage counts
+     *
+     * @return string
+     */
+    public String toString() {
+        return "size=" + size() + " hits=" + getHits() + " misses=" + getMisses() + " evictions=" + getEvictions();
+    }
+
+    /**
+     * one segment of the table, an access-ordered map that drops its least-recently used entry when full
+     */
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
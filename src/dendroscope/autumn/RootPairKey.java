@@ -0,0 +1,194 @@
+/*
+ *   RootPairKey.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.autumn;
+
+import jloda.graph.Edge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * canonical compact key for a pair of rooted trees, used as key in memo tables.
+ * Each tree is encoded as the lexicographically sorted list of its clusters, packed into a long[] of fixed word width,
+ * so the key does not depend on the order of children. A 64-bit fingerprint is computed once, and
+ * full comparison of the packed arrays is only performed when two fingerprints agree
+ */
+public class RootPairKey {
+    private final long[] data;
+    private final long fingerprint;
+
+    /**
+     * constructor
+     *
+     * @param data packed encoding
+     */
+    private RootPairKey(long[] data) {
+        this.data = data;
+        this.fingerprint = computeFingerprint(data);
+    }
+
+    /**
+     * creates the key for two trees in sparse form, that is, each leaf is represented by its first taxon only.
+     * Two pairs of trees obtain the same key if and only if they have the same sparse bracket representation,
+     * up to the order of children
+     *
+     * @param root1
+     * @param root2
+     * @return key
+     */
+    public static RootPairKey createSparse(Root root1, Root root2) {
+        final List<BitSet> clusters1 = new ArrayList<>();
+        final BitSet taxa1 = collectSparseClustersRec(root1, clusters1);
+        if (clusters1.size() == 0) // tree is a single leaf
+            clusters1.add(taxa1);
+        final List<BitSet> clusters2 = new ArrayList<>();
+        final BitSet taxa2 = collectSparseClustersRec(root2, clusters2);
+        if (clusters2.size() == 0)
+            clusters2.add(taxa2);
+
+        final int words = Math.max(1, (Math.max(taxa1.length(), taxa2.length()) + 63) >>> 6);
+        return new RootPairKey(pack(words, clusters1, clusters2));
+    }
+
+    /**
+     * recursively collects the sparse cluster of every internal node
+     *
+     * @param v
+     * @param clusters
+     * @return sparse cluster below v
+     */
+    private static BitSet collectSparseClustersRec(Root v, List<BitSet> clusters) {
+        final BitSet cluster = new BitSet();
+        if (v.getOutDegree() == 0) {
+            int t = v.getTaxa().nextSetBit(0);
+            if (t != -1)
+                cluster.set(t);
+        } else {
+            for (Edge e = v.getFirstOutEdge(); e != null; e = v.getNextOutEdge(e)) {
+                cluster.or(collectSparseClustersRec((Root) e.getTarget(), clusters));
+            }
+            clusters.add(cluster);
+        }
+        return cluster;
+    }
+
+    /**
+     * packs both lists of clusters into a single array. Layout: words, number of clusters in first list,
+     * followed by the sorted clusters of the first and then of the second list, each using exactly words entries
+     *
+     * @param words
+     * @param clusters1
+     * @param clusters2
+     * @return packed array
+     */
+    private static long[] pack(int words, List<BitSet> clusters1, List<BitSet> clusters2) {
+        final long[] data = new long[2 + words * (clusters1.size() + clusters2.size())];
+        data[0] = words;
+        data[1] = clusters1.size();
+        int pos = packSorted(words, clusters1, data, 2);
+        packSorted(words, clusters2, data, pos);
+        return data;
+    }
+
+    /**
+     * packs a list of clusters in sorted order
+     *
+     * @param words
+     * @param clusters
+     * @param data
+     * @param pos
+     * @return next position
+     */
+    private static int packSorted(int words, List<BitSet> clusters, long[] data, int pos) {
+        final long[][] rows = new long[clusters.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = Arrays.copyOf(clusters.get(i).toLongArray(), words);
+        }
+        Arrays.sort(rows, new Comparator<long[]>() {
+            public int compare(long[] a, long[] b) {
+                return Arrays.compareUnsigned(a, b);
+            }
+        });
+        for (long[] row : rows) {
+            System.arraycopy(row, 0, data, pos, words);
+            pos += words;
+        }
+        return pos;
+    }
+
+    /**
+     * computes a 64-bit fingerprint of the packed data
+     *
+     * @param data
+     * @return fingerprint
+     */
+    private static long computeFingerprint(long[] data) {
+        long h = 0x9E3779B97F4A7C15L ^ data.length;
+        for (long value : data) {
+            h = mix64(h ^ value) * 0x9E3779B97F4A7C15L;
+        }
+        return mix64(h);
+    }
+
+    /**
+     * finalization step of 64-bit murmur hash
+     *
+     * @param z
+     * @return mixed value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * gets the 64-bit fingerprint
+     *
+     * @return fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * gets the approximate number of bytes used by this key
+     *
+     * @return bytes
+     */
+    public int getSizeInBytes() {
+        return 32 + 16 + 8 * data.length;
+    }
+
+    public int hashCode() {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof RootPairKey))
+            return false;
+        final RootPairKey that = (RootPairKey) other;
+        return fingerprint == that.fingerprint && Arrays.equals(data, that.data);
+    }
+}
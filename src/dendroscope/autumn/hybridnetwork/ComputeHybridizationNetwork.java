@@ -28,7 +28,6 @@ import dendroscope.consensus.Taxa;
 import dendroscope.core.TreeData;
 import jloda.graph.Edge;
 import jloda.util.*;
-import org.apache.commons.collections.map.LRUMap;
 
 import java.io.IOException;
 import java.util.*;
@@ -44,7 +43,13 @@ public class ComputeHybridizationNetwork {
 
     private int numberOfLookups = 0;
 
-    private final LRUMap lookupTable = new LRUMap(1000000);
+    /**
+     * program property that sets the memory budget of the lookup table in MB, by default a quarter of the max heap size
+     */
+    public static final String LOOKUP_TABLE_MB = "autumn-lookup-table-MB";
+
+    private final NetworkLookupTable lookupTable = new NetworkLookupTable(1024L * 1024L
+            * ProgramProperties.get(LOOKUP_TABLE_MB, (int) (Runtime.getRuntime().maxMemory() / (4 * 1024 * 1024))));
 
     private long nextTime = 0;
     private long waitTime = 1000;
@@ -175,7 +180,7 @@ public class ComputeHybridizationNetwork {
         System.err.println("Total networks: " + result.size());
         System.err.println("Time: " + ((System.currentTimeMillis() - startTime) / 1000) + " secs");
 
-        System.err.println("(Size lookup table: " + lookupTable.size() + ", number of times used: " + numberOfLookups + ")");
+        System.err.println("(Lookup table: " + lookupTable + ", number of times used: " + numberOfLookups + ")");
         lookupTable.clear();
         System.gc();
 
@@ -210,7 +215,7 @@ public class ComputeHybridizationNetwork {
         if (true) // use caching
         {
             String key = root1.toStringTree() + root2.toStringTree() + (candidateHybrids != null ? Basic.toString(candidateHybrids) : "");
-            Pair<Integer, Collection<Root>> cachedResults = (Pair<Integer, Collection<Root>>) lookupTable.get(key);
+            Pair<Integer, Collection<Root>> cachedResults = lookupTable.get(key);
             if (cachedResults != null) {
                 totalResults.addAll(cachedResults.getSecond());
 
@@ -223,10 +228,11 @@ public class ComputeHybridizationNetwork {
                 return cachedResults.getFirst();
             } else {
                 TreeSet<Root> newResults = new TreeSet<Root>(new NetworkComparator());
+                long startNanos = System.nanoTime();
                 int h = computeRec(root1, root2, isReduced, candidateHybrids, k, newResults, depth);
 
                 if (h > 0)
-                    lookupTable.put(key, new Pair<Integer, Collection<Root>>(h, newResults));
+                    lookupTable.put(key, h, newResults, System.nanoTime() - startNanos);
                 totalResults.addAll(newResults);
                 return h;
             }
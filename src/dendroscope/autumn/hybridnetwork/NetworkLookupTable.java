@@ -0,0 +1,434 @@
+/*
+ *   NetworkLookupTable.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.autumn.hybridnetwork;
+
+import dendroscope.autumn.Root;
+import jloda.graph.Edge;
+import jloda.graph.Graph;
+import jloda.graph.Node;
+import jloda.util.Basic;
+import jloda.util.Pair;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * lookup table for sets of networks computed by the autumn algorithm, bounded by an estimated number of bytes.
+ * <p>
+ * As in ConcurrentLookupTable, the table is split into lock-striped segments, so that worker threads only contend
+ * when they hit the same segment. The byte budget is shared by all segments.
+ * Eviction uses the greedy-dual-size rule within a segment: each entry has a priority of aging value plus computation
+ * time per byte, and the entry of lowest priority goes first, so that subproblems that were expensive to compute are
+ * kept longest. An evicted entry is first spilled to a compact deflated byte representation and only dropped when it
+ * is selected for eviction a second time. Encoding and decoding are done outside of all locks
+ */
+public class NetworkLookupTable {
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final AtomicLong nextSerialNumber = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * constructor
+     *
+     * @param maxBytes estimated number of bytes that the table may use
+     */
+    public NetworkLookupTable(long maxBytes) {
+        this(maxBytes, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor
+     *
+     * @param maxBytes         estimated number of bytes that the table may use
+     * @param concurrencyLevel expected number of concurrently accessing threads
+     */
+    public NetworkLookupTable(long maxBytes, int concurrencyLevel) {
+        this.maxBytes = maxBytes;
+        int numberOfSegments = 1;
+        while (numberOfSegments < concurrencyLevel && numberOfSegments < (1 << 16))
+            numberOfSegments <<= 1;
+        segments = new Segment[numberOfSegments];
+        segmentMask = numberOfSegments - 1;
+        for (int i = 0; i < numberOfSegments; i++)
+            segments[i] = new Segment();
+    }
+
+    /**
+     * get the index of the segment responsible for the given key
+     *
+     * @param key
+     * @return segment index
+     */
+    private int segmentIndex(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & segmentMask;
+    }
+
+    /**
+     * gets the hybridization number and networks stored for the given key
+     *
+     * @param key
+     * @return pair of hybridization number and networks, or null
+     */
+    public Pair<Integer, Collection<Root>> get(String key) {
+        final Segment segment = segments[segmentIndex(key)];
+        final int h;
+        final Collection<Root> networks;
+        final byte[] spilled;
+        synchronized (segment) {
+            final Entry entry = segment.key2entry.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (segment.queue.remove(entry)) { // not if currently being spilled
+                entry.priority = segment.agingValue + entry.getCostPerByte();
+                segment.queue.add(entry);
+            }
+            h = entry.h;
+            networks = entry.networks;
+            spilled = entry.spilled;
+        }
+        hits.increment();
+        if (networks != null)
+            return new Pair<>(h, networks);
+        else
+            return new Pair<>(h, decode(spilled));
+    }
+
+    /**
+     * puts a set of networks into the table
+     *
+     * @param key
+     * @param h                hybridization number
+     * @param networks         networks
+     * @param computationNanos time that was required to compute the networks
+     */
+    public void put(String key, int h, Collection<Root> networks, long computationNanos) {
+        final Entry entry = new Entry(key, h, networks, Math.max(1, computationNanos), nextSerialNumber.getAndIncrement());
+        entry.bytes = 2L * key.length() + 64 + estimateBytes(networks);
+        if (entry.bytes > maxBytes) { // too large even for an empty table, try compact form:
+            final byte[] spilled = encode(entry.networks);
+            if (spilled == null)
+                return;
+            entry.spilled = spilled;
+            entry.networks = null;
+            entry.bytes = getSpilledBytes(entry);
+            spills.increment();
+            if (entry.bytes > maxBytes)
+                return;
+        }
+
+        final int index = segmentIndex(key);
+        final Segment segment = segments[index];
+        long delta = entry.bytes;
+        synchronized (segment) {
+            final Entry old = segment.key2entry.put(key, entry);
+            if (old != null && segment.queue.remove(old))
+                delta -= old.bytes;
+            entry.priority = segment.agingValue + entry.getCostPerByte();
+            segment.queue.add(entry);
+        }
+        if (usedBytes.addAndGet(delta) > maxBytes)
+            evict(index);
+    }
+
+    /**
+     * evicts entries until the table is within budget, starting with the given segment. Entries that are chosen for
+     * the first time are encoded without holding the lock of the segment
+     *
+     * @param first index of segment to start with
+     */
+    private void evict(int first) {
+        for (int i = 0; i < segments.length && usedBytes.get() > maxBytes; i++) {
+            final Segment segment = segments[(first + i) & segmentMask];
+            final List<Entry> toSpill = new ArrayList<>();
+            synchronized (segment) {
+                while (usedBytes.get() > maxBytes && segment.queue.size() > 0) {
+                    final Entry victim = segment.queue.first();
+                    segment.queue.remove(victim);
+                    segment.agingValue = victim.priority;
+                    usedBytes.addAndGet(-victim.bytes);
+                    if (victim.networks != null)
+                        toSpill.add(victim); // stays in the table and is found by get() while being encoded
+                    else {
+                        segment.key2entry.remove(victim.key);
+                        evictions.increment();
+                    }
+                }
+            }
+            for (Entry victim : toSpill) {
+                final byte[] spilled = encode(victim.networks);
+                synchronized (segment) {
+                    if (segment.key2entry.get(victim.key) == victim) {
+                        if (spilled != null) {
+                            victim.spilled = spilled;
+                            victim.networks = null;
+                            victim.bytes = getSpilledBytes(victim);
+                            victim.priority = segment.agingValue + victim.getCostPerByte();
+                            segment.queue.add(victim);
+                            usedBytes.addAndGet(victim.bytes);
+                            spills.increment();
+                        } else {
+                            segment.key2entry.remove(victim.key);
+                            evictions.increment();
+                        }
+                    }
+                }
+            }
+            if (toSpill.size() > 0 && usedBytes.get() > maxBytes)
+                i--; // spilled entries may have to be dropped from this segment, too
+        }
+    }
+
+    /**
+     * number of entries
+     *
+     * @return size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.key2entry.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * estimated number of bytes used
+     *
+     * @return bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * erase the table
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.key2entry.clear();
+                segment.queue.clear();
+                segment.agingValue = 0;
+            }
+        }
+        usedBytes.set(0);
+    }
+
+    /**
+     * report size and usage counts
+     *
+     * @return string
+     */
+    public String toString() {
+        return "size=" + size() + " bytes=" + usedBytes.get() + " (max=" + maxBytes + ") hits=" + hits.sum() + " misses=" + misses.sum()
+                + " spilled=" + spills.sum() + " evicted=" + evictions.sum();
+    }
+
+    /**
+     * estimated number of bytes of a spilled entry
+     *
+     * @param entry
+     * @return bytes
+     */
+    private static long getSpilledBytes(Entry entry) {
+        return 2L * entry.key.length() + 64 + 16 + entry.spilled.length;
+    }
+
+    /**
+     * estimates the number of bytes used by a collection of networks
+     *
+     * @param networks
+     * @return bytes
+     */
+    private static long estimateBytes(Collection<Root> networks) {
+        long bytes = 16 + 48L * networks.size();
+        for (Root root : networks) {
+            final Set<Node> nodes = root.getAllNodesBelow();
+            nodes.add(root);
+            for (Node v : nodes) {
+                final Root r = (Root) v;
+                bytes += 96 + 2 * (48 + r.getTaxa().size() / 8) + 64L * v.getOutDegree();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * encodes a collection of networks as a deflated byte array. For each network, nodes are numbered in pre-order
+     * with the root first, and out-edges are listed per node in their original order
+     *
+     * @param networks
+     * @return bytes, or null, if encoding failed
+     */
+    static byte[] encode(Collection<Root> networks) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream outs = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            outs.writeInt(networks.size());
+            for (Root root : networks) {
+                final List<Root> nodes = new ArrayList<>();
+                final Map<Node, Integer> node2id = new HashMap<>();
+                numberNodesRec(root, nodes, node2id);
+                outs.writeInt(nodes.size());
+                for (Root v : nodes) {
+                    writeBitSet(outs, v.getTaxa());
+                    writeBitSet(outs, v.getRemovedTaxa());
+                }
+                for (Root v : nodes) {
+                    outs.writeInt(v.getOutDegree());
+                    for (Edge e = v.getFirstOutEdge(); e != null; e = v.getNextOutEdge(e)) {
+                        outs.writeInt(node2id.get(e.getTarget()));
+                        outs.writeInt(e.getInfo() != null ? (Integer) e.getInfo() : -1);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Basic.caught(e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * decodes a collection of networks, each network is placed in its own graph
+     *
+     * @param data
+     * @return networks
+     */
+    static Collection<Root> decode(byte[] data) {
+        final Collection<Root> networks = new TreeSet<>(new NetworkComparator());
+        try (DataInputStream ins = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            final int numberOfNetworks = ins.readInt();
+            for (int n = 0; n < numberOfNetworks; n++) {
+                final Graph graph = new Graph();
+                final Root[] nodes = new Root[ins.readInt()];
+                for (int i = 0; i < nodes.length; i++) {
+                    nodes[i] = new Root(graph, readBitSet(ins));
+                    nodes[i].setRemovedTaxa(readBitSet(ins));
+                }
+                for (Root v : nodes) {
+                    final int outDegree = ins.readInt();
+                    for (int k = 0; k < outDegree; k++) {
+                        final Edge e = v.newEdge(v, nodes[ins.readInt()]);
+                        final int info = ins.readInt();
+                        if (info != -1)
+                            e.setInfo(info);
+                    }
+                }
+                networks.add(nodes[0]);
+            }
+        } catch (IOException e) {
+            Basic.caught(e);
+        }
+        return networks;
+    }
+
+    /**
+     * recursively number all nodes in pre-order
+     *
+     * @param v
+     * @param nodes
+     * @param node2id
+     */
+    private static void numberNodesRec(Root v, List<Root> nodes, Map<Node, Integer> node2id) {
+        node2id.put(v, nodes.size());
+        nodes.add(v);
+        for (Edge e = v.getFirstOutEdge(); e != null; e = v.getNextOutEdge(e)) {
+            if (!node2id.containsKey(e.getTarget()))
+                numberNodesRec((Root) e.getTarget(), nodes, node2id);
+        }
+    }
+
+    private static void writeBitSet(DataOutputStream outs, BitSet bits) throws IOException {
+        final long[] words = bits.toLongArray();
+        outs.writeShort(words.length);
+        for (long word : words)
+            outs.writeLong(word);
+    }
+
+    private static BitSet readBitSet(DataInputStream ins) throws IOException {
+        final long[] words = new long[ins.readUnsignedShort()];
+        for (int i = 0; i < words.length; i++)
+            words[i] = ins.readLong();
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * one segment of the table, guarded by its own monitor
+     */
+    private static class Segment {
+        final Map<String, Entry> key2entry = new HashMap<>();
+        final SortedSet<Entry> queue = new TreeSet<>();
+        double agingValue = 0;
+    }
+
+    /**
+     * an entry of the table, holding either the networks or their compact encoding
+     */
+    private static class Entry implements Comparable<Entry> {
+        final String key;
+        final int h;
+        final long computationNanos;
+        final long serialNumber;
+        Collection<Root> networks;
+        byte[] spilled;
+        long bytes;
+        double priority;
+
+        Entry(String key, int h, Collection<Root> networks, long computationNanos, long serialNumber) {
+            this.key = key;
+            this.h = h;
+            this.networks = networks;
+            this.computationNanos = computationNanos;
+            this.serialNumber = serialNumber;
+        }
+
+        double getCostPerByte() {
+            return (double) computationNanos / (double) bytes;
+        }
+
+        public int compareTo(Entry that) {
+            if (this.priority < that.priority)
+                return -1;
+            else if (this.priority > that.priority)
+                return 1;
+            else
+                return Long.compare(this.serialNumber, that.serialNumber);
+        }
+    }
+}
@@ -24,7 +24,6 @@ import dendroscope.consensus.Taxa;
 import jloda.graph.Node;
 import jloda.phylo.PhyloTree;
 import jloda.util.*;
-import org.apache.commons.collections.map.LRUMap;
 
 import java.io.IOException;
 import java.util.BitSet;
@@ -41,7 +40,7 @@ public class ComputeHybridNumber {
     final public static int LARGE = 1000;
     public static final boolean checking = false;
 
-    final private LRUMap lookupTable = new LRUMap(5000000);
+    final private ConcurrentLookupTable<RootPairKey, Integer> lookupTable = new ConcurrentLookupTable<>(5000000);
     final private ProgressListener progressListener;
 
     private long startTime = 0;
@@ -200,7 +199,7 @@ public class ComputeHybridNumber {
     protected int done() {
         System.err.println("Best score: " + bestScore.get());
         System.err.println("Time: " + ((System.currentTimeMillis() - startTime) / 1000) + " secs");
-        System.err.println("(Size of lookup table: " + lookupTable.size() + ")");
+        System.err.println("(Lookup table: " + lookupTable + ")");
         lookupTable.clear();
         scheduledThreadPoolExecutor.shutdown();
         System.gc();
@@ -239,23 +238,17 @@ public class ComputeHybridNumber {
 
         BitSet taxa = root1.getTaxa();
 
-        String key = root1.toStringTreeSparse() + root2.toStringTreeSparse();
-        // System.err.println("Key: "+key);
-        Integer value;
-        synchronized (lookupTable) {
-            value = (Integer) lookupTable.get(key);
-            if (value != null)
-                return value;
-        }
+        RootPairKey key = RootPairKey.createSparse(root1, root2);
+        Integer value = lookupTable.get(key);
+        if (value != null)
+            return value;
 
         if (!root2.getTaxa().equals(taxa))
             throw new RuntimeException("Unequal taxon sets: X=" + Basic.toString(root1.getTaxa()) + " vs " + Basic.toString(root2.getTaxa()));
         if (!isReduced) {
             switch (SubtreeReduction.apply(root1, root2, null)) {
                 case ISOMORPHIC:
-                    synchronized (lookupTable) {
-                        lookupTable.put(key, 0);
-                    }
+                    lookupTable.put(key, 0);
                     if (topLevel) {
                         bestScore.lowerTo(0);
                         progressListener.setSubtask("Best score: " + bestScore);
@@ -363,11 +356,7 @@ public class ComputeHybridNumber {
                     progressListener.setSubtask("Current best score: " + bestScore);
                 }
 
-                synchronized (lookupTable) {
-                    Integer old = (Integer) lookupTable.get(key);
-                    if (old == null || total < old)
-                        lookupTable.put(key, total);
-                }
+                lookupTable.merge(key, total, Integer::min);
                 return score1.get() + score2.get();
             }
         }
@@ -471,11 +460,7 @@ public class ComputeHybridNumber {
             return LARGE;
         }
         // return the best value
-        synchronized (lookupTable) {
-            Integer old = (Integer) lookupTable.get(key);
-            if (old == null || old > bestSubH.get())
-                lookupTable.put(key, bestSubH.get());
-        }
+        lookupTable.merge(key, bestSubH.get(), Integer::min);
         return bestSubH.get();
     }
 }
@@ -44,10 +44,12 @@ public class ComputeDisplayedTreesDistance extends
         np.matchIgnoreCase(getSyntax());
 
         List<PhyloTree> trees = new LinkedList<>();
+        List<String> names = new LinkedList<>();
         for (Iterator<TreeViewer> it = multiViewer.getTreeGrid()
                 .getSelectedOrAllIterator(); it.hasNext(); ) {
             TreeViewer viewer = it.next();
             PhyloTree tree = viewer.getPhyloTree();
+            names.add(viewer.getName());
             trees.add(tree);
         }
 
@@ -56,6 +58,8 @@ public class ComputeDisplayedTreesDistance extends
             new Message(getViewer().getFrame(), "Displayed trees distance: "
                     + distance);
             System.out.println("Displayed trees distance: " + distance);
+        } else if (trees.size() > 2) {
+            DistanceMatrixReport.show(getViewer().getFrame(), "Displayed trees", DistanceMethods.computeDisplayedTreesDistances(trees), names);
         } else {
             new Alert(getViewer().getFrame(),
                     "Distance calculation requires two trees or networks\n");
@@ -91,7 +95,7 @@ public class ComputeDisplayedTreesDistance extends
     }
 
     public boolean isApplicable() {
-        return multiViewer.getTreeGrid().getNumberSelectedOrAllViewers() == 2
+        return multiViewer.getTreeGrid().getNumberSelectedOrAllViewers() >= 2
                 && ((MultiViewer) getViewer()).getDir().getDocument()
                 .getNumberOfTrees() > 0;
     }
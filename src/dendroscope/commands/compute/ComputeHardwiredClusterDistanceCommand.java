@@ -20,7 +20,10 @@ package dendroscope.commands.compute;
 
 import dendroscope.commands.CommandBaseMultiViewer;
 import dendroscope.io.DistanceOutput;
+import dendroscope.io.Newick;
+import dendroscope.io.NewickTreeIterator;
 import dendroscope.util.DistanceMethods;
+import dendroscope.util.HardwiredClusterDistance;
 import dendroscope.window.MultiViewer;
 import dendroscope.window.TreeViewer;
 import jloda.phylo.PhyloTree;
@@ -31,6 +34,8 @@ import jloda.util.parse.NexusStreamParser;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -42,7 +47,34 @@ import java.util.List;
 public class ComputeHardwiredClusterDistanceCommand extends CommandBaseMultiViewer implements ICommand {
 
     public void apply(NexusStreamParser np) throws Exception {
-        np.matchIgnoreCase(getSyntax());
+        np.matchIgnoreCase("compute distance method=hardwired");
+        if (np.peekMatchIgnoreCase("file=")) {
+            np.matchIgnoreCase("file=");
+            final String fileName = np.getWordFileNamePunctuation();
+            int burnIn = 0;
+            if (np.peekMatchIgnoreCase("burnIn=")) {
+                np.matchIgnoreCase("burnIn=");
+                burnIn = np.getInt(0, Integer.MAX_VALUE);
+            }
+            int sampleInterval = 1;
+            if (np.peekMatchIgnoreCase("sample=")) {
+                np.matchIgnoreCase("sample=");
+                sampleInterval = np.getInt(1, Integer.MAX_VALUE);
+            }
+            np.matchIgnoreCase(";");
+
+            // trees are streamed from the file, so that large samples need not be loaded into the document:
+            final List<String> names = new ArrayList<>();
+            final double[][] distances;
+            try (NewickTreeIterator trees = Newick.iterator(new File(fileName), burnIn, sampleInterval)) {
+                distances = HardwiredClusterDistance.apply(trees, names);
+            }
+            System.err.println("Trees read: " + names.size());
+            System.out.println("[You can paste the following lines straight into SplitsTree]");
+            System.out.print(DistanceOutput.toNexusString(distances, names.toArray(new String[0])));
+            return;
+        }
+        np.matchIgnoreCase(";");
 
         List<PhyloTree> trees = new LinkedList<>();
         List<String> names = new LinkedList<>();
@@ -58,12 +90,7 @@ public class ComputeHardwiredClusterDistanceCommand extends CommandBaseMultiView
             new Message(getViewer().getFrame(), "Hardwired cluster distance: " + distance);
             System.out.println("Hardwired cluster distance: " + distance);
         } else if (trees.size() > 2) {
-            String[] namesArray = names.toArray(new String[names.size()]);
-            double[][] distances = DistanceMethods.computeHardwiredClusterDistance(trees);
-            System.out.println("[You can paste the following lines straight into SplitsTree]");
-            System.out.print(DistanceOutput.toNexusString(distances, namesArray));
-            new Message(getViewer().getFrame(), "Hardwired cluster distances:\n" + DistanceOutput.toSimpleString(distances, namesArray));
-
+            DistanceMatrixReport.show(getViewer().getFrame(), "Hardwired cluster", DistanceMethods.computeHardwiredClusterDistance(trees), names);
         } else {
             new Alert(getViewer().getFrame(), "Distance calculation requires two trees or networks\n");
         }
@@ -71,12 +98,12 @@ public class ComputeHardwiredClusterDistanceCommand extends CommandBaseMultiView
 
 
     public String getSyntax() {
-        return "compute distance method=hardwired;";
+        return "compute distance method=hardwired [file=<Newick-file> [burnIn=<number>] [sample=<number>]];";
     }
 
 
     public void actionPerformed(ActionEvent ev) {
-        execute(getSyntax());
+        execute("compute distance method=hardwired;");
     }
 
 
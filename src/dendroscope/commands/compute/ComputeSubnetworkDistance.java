@@ -44,10 +44,12 @@ public class ComputeSubnetworkDistance extends
         np.matchIgnoreCase(getSyntax());
 
         List<PhyloTree> trees = new LinkedList<>();
+        List<String> names = new LinkedList<>();
         for (Iterator<TreeViewer> it = multiViewer.getTreeGrid()
                 .getSelectedOrAllIterator(); it.hasNext(); ) {
             TreeViewer viewer = it.next();
             PhyloTree tree = viewer.getPhyloTree();
+            names.add(viewer.getName());
             trees.add(tree);
         }
 
@@ -56,6 +58,8 @@ public class ComputeSubnetworkDistance extends
             new Message(getViewer().getFrame(), "Subnetwork distance: "
                     + distance);
             System.out.println("Subnetwork distance: " + distance);
+        } else if (trees.size() > 2) {
+            DistanceMatrixReport.show(getViewer().getFrame(), "Subnetwork", DistanceMethods.computeSubnetworkDistances(trees), names);
         } else {
             new Alert(getViewer().getFrame(),
                     "Distance calculation requires two trees or networks\n");
@@ -91,7 +95,7 @@ public class ComputeSubnetworkDistance extends
     }
 
     public boolean isApplicable() {
-        return multiViewer.getTreeGrid().getNumberSelectedOrAllViewers() == 2
+        return multiViewer.getTreeGrid().getNumberSelectedOrAllViewers() >= 2
                 && ((MultiViewer) getViewer()).getDir().getDocument()
                 .getNumberOfTrees() > 0;
     }
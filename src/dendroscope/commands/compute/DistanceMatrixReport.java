@@ -0,0 +1,45 @@
+/*
+ *   DistanceMatrixReport.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.commands.compute;
+
+import dendroscope.io.DistanceOutput;
+import jloda.swing.util.Message;
+
+import javax.swing.*;
+import java.util.List;
+
+/**
+ * reports a matrix of distances between more than two trees or networks, used by the distance commands
+ */
+class DistanceMatrixReport {
+    /**
+     * prints the distances as a nexus block and shows them in a message window
+     *
+     * @param frame
+     * @param title     name of the distance, e.g. "Softwired"
+     * @param distances
+     * @param names     names of the trees or networks
+     */
+    static void show(JFrame frame, String title, double[][] distances, List<String> names) {
+        final String[] namesArray = names.toArray(new String[0]);
+        System.out.println("[You can paste the following lines straight into SplitsTree]");
+        System.out.print(DistanceOutput.toNexusString(distances, namesArray));
+        new Message(frame, title + " distances:\n" + DistanceOutput.toSimpleString(distances, namesArray));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *   AntiConsensusCommand.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.commands.consensus;
+
+import dendroscope.anticonsensus.AntiCluster;
+import dendroscope.anticonsensus.AntiConsensus;
+import dendroscope.commands.CommandBaseMultiViewer;
+import dendroscope.core.TreeData;
+import dendroscope.io.Newick;
+import dendroscope.window.TreeViewer;
+import jloda.phylo.PhyloTree;
+import jloda.swing.commands.ICommand;
+import jloda.swing.util.Message;
+import jloda.util.parse.NexusStreamParser;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * compute the anti-clusters of the selected trees or of the trees in a file
+ */
+public class AntiConsensusCommand extends CommandBaseMultiViewer implements ICommand {
+
+    public void apply(NexusStreamParser np) throws Exception {
+        np.matchIgnoreCase("compute anti-consensus");
+        String fileName = null;
+        int burnIn = 0;
+        int sampleInterval = 1;
+        int maxTreesInMemory = 1000;
+        if (np.peekMatchIgnoreCase("file=")) {
+            np.matchIgnoreCase("file=");
+            fileName = np.getWordFileNamePunctuation();
+            if (np.peekMatchIgnoreCase("burnIn=")) {
+                np.matchIgnoreCase("burnIn=");
+                burnIn = np.getInt(0, Integer.MAX_VALUE);
+            }
+            if (np.peekMatchIgnoreCase("sample=")) {
+                np.matchIgnoreCase("sample=");
+                sampleInterval = np.getInt(1, Integer.MAX_VALUE);
+            }
+            if (np.peekMatchIgnoreCase("maxTreesInMemory=")) {
+                np.matchIgnoreCase("maxTreesInMemory=");
+                maxTreesInMemory = np.getInt(1, Integer.MAX_VALUE);
+            }
+        }
+        np.matchIgnoreCase(";");
+
+        final AntiConsensus antiConsensus;
+        final AntiCluster[] antiClusters;
+        if (fileName != null) {
+            // trees are streamed from the file, in passes that index at most the given number of trees at a time:
+            final File file = new File(fileName);
+            final int theBurnIn = burnIn;
+            final int theSampleInterval = sampleInterval;
+            antiConsensus = new AntiConsensus(() -> Newick.iterator(file, theBurnIn, theSampleInterval), maxTreesInMemory);
+            antiClusters = antiConsensus.apply();
+        } else {
+            final Vector<TreeData> trees = new Vector<>();
+            for (Iterator<TreeViewer> it = multiViewer.getTreeGrid().getSelectedOrAllIterator(); it.hasNext(); ) {
+                PhyloTree tree = it.next().getPhyloTree();
+                if (tree.getNumberOfNodes() != 0)
+                    trees.add(new TreeData(tree));
+            }
+            antiConsensus = new AntiConsensus(trees.toArray(new TreeData[trees.size()]));
+            antiClusters = antiConsensus.apply();
+        }
+
+        System.out.println("Anti-consensus of " + antiConsensus.getNumberOfTrees() + " trees, anti-clusters: " + antiClusters.length);
+        for (AntiCluster cluster : antiClusters) {
+            System.out.println("cluster: " + cluster.getTaxonLabels() + " trees in P1: " + cluster.getP1().cardinality()
+                    + " trees in P2: " + cluster.getP2().cardinality() + " witness: " + cluster.getWitnessLabels());
+        }
+        new Message(getViewer().getFrame(), "Anti-clusters found: " + antiClusters.length + " (see message window)");
+    }
+
+    public String getSyntax() {
+        return "compute anti-consensus [file=<Newick-file> [burnIn=<number>] [sample=<number>] [maxTreesInMemory=<number>]];";
+    }
+
+    public void actionPerformed(ActionEvent ev) {
+        execute("compute anti-consensus;");
+    }
+
+    public KeyStroke getAcceleratorKey() {
+        return null;
+    }
+
+    public String getDescription() {
+        return "Compute the anti-clusters of the selected trees";
+    }
+
+    public ImageIcon getIcon() {
+        return null;
+    }
+
+    public String getName() {
+        return "Anti-Consensus...";
+    }
+
+    public String getUndo() {
+        return null;
+    }
+
+    public boolean isApplicable() {
+        return multiViewer.getTreeGrid().getNumberSelectedOrAllViewers() >= 2;
+    }
+
+    public boolean isCritical() {
+        return true;
+    }
+}
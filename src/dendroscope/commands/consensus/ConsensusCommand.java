@@ -23,8 +23,11 @@ import dendroscope.consensus.*;
 import dendroscope.core.Director;
 import dendroscope.core.Document;
 import dendroscope.core.TreeData;
+import dendroscope.io.Newick;
+import dendroscope.io.NewickTreeIterator;
 import dendroscope.window.MultiViewer;
 import dendroscope.window.TreeViewer;
+import jloda.graph.Node;
 import jloda.phylo.PhyloTree;
 import jloda.swing.commands.ICommand;
 import jloda.swing.director.IDirector;
@@ -33,10 +36,9 @@ import jloda.util.parse.NexusStreamParser;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Vector;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
 
 public class ConsensusCommand extends CommandBaseMultiViewer implements ICommand {
     public void apply(NexusStreamParser np) throws Exception {
@@ -79,27 +81,76 @@ public class ConsensusCommand extends CommandBaseMultiViewer implements ICommand
             checkTrees = np.getBoolean();
         }
 
+        // strict and majority consensus from cluster counts: mean edge weights and relative frequencies as
+        // confidences, instead of the Z-closure weights and confidences, so only used if requested
+        boolean useClusterCounts = false;
+        if (np.peekMatchIgnoreCase("use-cluster-counts=")) {
+            np.matchIgnoreCase("use-cluster-counts=");
+            useClusterCounts = np.getBoolean();
+        }
+
         if (which.equals(ComputeNetworkConsensus.LEVEL_K_NETWORK)) {
             ((ComputeNetworkConsensus) consensusMethod).setComputeOnlyOne(computeOnlyOne);
             ((ComputeNetworkConsensus) consensusMethod).setCheckTrees(checkTrees);
         }
 
-        np.matchIgnoreCase(";");
-
-        Vector<TreeData> trees = new Vector<>();
-        for (Iterator<TreeViewer> it = multiViewer.getTreeGrid().getSelectedOrAllIterator(); it.hasNext(); ) {
-            TreeViewer viewer = it.next();
-            PhyloTree tree = (PhyloTree) viewer.getPhyloGraph();
-            if (tree.getNumberOfNodes() != 0) {
-                trees.add(new TreeData(tree));
+        String fileName = null;
+        int burnIn = 0;
+        int sampleInterval = 1;
+        if (np.peekMatchIgnoreCase("file=")) {
+            np.matchIgnoreCase("file=");
+            fileName = np.getWordFileNamePunctuation();
+            if (np.peekMatchIgnoreCase("burnIn=")) {
+                np.matchIgnoreCase("burnIn=");
+                burnIn = np.getInt(0, Integer.MAX_VALUE);
+            }
+            if (np.peekMatchIgnoreCase("sample=")) {
+                np.matchIgnoreCase("sample=");
+                sampleInterval = np.getInt(1, Integer.MAX_VALUE);
             }
+            if (!which.equals(StrictConsensus.NAME) && !which.equals(MajorityConsensus.NAME))
+                throw new IOException("Consensus of trees from file: only supported for methods " + StrictConsensus.NAME + " and " + MajorityConsensus.NAME);
         }
+
+        np.matchIgnoreCase(";");
+
         List<PhyloTree> result = new LinkedList<>();
 
-        if (consensusMethod instanceof ComputeNetworkConsensus)
-            result.addAll(((ComputeNetworkConsensus) consensusMethod).applyAll(getDir().getDocument(), trees.toArray(new TreeData[trees.size()])));
-        else
-            result.add(consensusMethod.apply(getDir().getDocument(), trees.toArray(new TreeData[trees.size()])));
+        if (fileName != null) {
+            // trees are streamed from the file and only their cluster counts are kept:
+            final ConsensusAccumulator accumulator = new ConsensusAccumulator();
+            try (NewickTreeIterator it = Newick.iterator(new File(fileName), burnIn, sampleInterval)) {
+                while (it.hasNext()) {
+                    accumulator.add(it.next());
+                }
+            }
+            System.err.println("Consensus input trees: " + accumulator.getNumberOfTrees() + ", clusters: " + accumulator.getNumberOfClusters());
+            result.add(which.equals(MajorityConsensus.NAME) ? accumulator.getMajorityConsensus() : accumulator.getStrictConsensus());
+        } else {
+            Vector<TreeData> trees = new Vector<>();
+            for (Iterator<TreeViewer> it = multiViewer.getTreeGrid().getSelectedOrAllIterator(); it.hasNext(); ) {
+                TreeViewer viewer = it.next();
+                PhyloTree tree = (PhyloTree) viewer.getPhyloGraph();
+                if (tree.getNumberOfNodes() != 0) {
+                    trees.add(new TreeData(tree));
+                }
+            }
+            if (useClusterCounts && (which.equals(StrictConsensus.NAME) || which.equals(MajorityConsensus.NAME)) && trees.size() > 0 && isTreesOnSameTaxa(trees)) {
+                // if the trees are the enabled trees of the document, its cluster index only processes trees that changed:
+                final ConsensusAccumulator accumulator;
+                if (isAllEnabledTreesSelected())
+                    accumulator = getDir().getDocument().getClusterIndex().getAccumulator();
+                else {
+                    accumulator = new ConsensusAccumulator();
+                    for (TreeData tree : trees)
+                        accumulator.add(tree);
+                }
+                result.add(which.equals(MajorityConsensus.NAME) ? accumulator.getMajorityConsensus() : accumulator.getStrictConsensus());
+            } else if (consensusMethod instanceof ComputeNetworkConsensus)
+                result.addAll(((ComputeNetworkConsensus) consensusMethod).applyAll(getDir().getDocument(), trees.toArray(new TreeData[trees.size()])));
+            else
+                result.add(consensusMethod.apply(getDir().getDocument(), trees.toArray(new TreeData[trees.size()])));
+        }
 
         Director theDir;
         MultiViewer theMultiViewer;
@@ -133,10 +184,56 @@ public class ConsensusCommand extends CommandBaseMultiViewer implements ICommand
         theMultiViewer.updateView(IDirector.TITLE);
     }
 
+    /**
+     * determines whether the trees to be used are exactly the enabled trees of the document, all unmodified in the
+     * viewers, so that the document's cluster index can be used
+     *
+     * @return true, if cluster index can be used
+     */
+    private boolean isAllEnabledTreesSelected() {
+        final Document doc = getDir().getDocument();
+        final Set<Integer> ids = new HashSet<>();
+        for (Iterator<TreeViewer> it = multiViewer.getTreeGrid().getSelectedOrAllIterator(); it.hasNext(); ) {
+            final TreeViewer viewer = it.next();
+            final Integer id = multiViewer.getTreeGrid().getNumberOfViewerInDocument(viewer);
+            if (id == null || viewer.isDirty())
+                return false;
+            ids.add(id);
+        }
+        for (int t = 0; t < doc.getNumberOfTrees(); t++) {
+            if (doc.getTree(t).isDisabled() == ids.contains(t))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * determines whether all given trees are trees, not networks, and have the same taxa, so that their strict and
+     * majority consensus can be computed from cluster counts
+     *
+     * @param trees
+     * @return true, if all trees on same taxa
+     */
+    private static boolean isTreesOnSameTaxa(List<TreeData> trees) {
+        Set<String> firstTaxa = null;
+        for (TreeData tree : trees) {
+            if (tree.getSpecialEdges().size() > 0)
+                return false;
+            final Set<String> taxa = new HashSet<>();
+            for (Node v : tree.computeSetOfLeaves())
+                taxa.add(tree.getLabel(v));
+            if (firstTaxa == null)
+                firstTaxa = taxa;
+            else if (!firstTaxa.equals(taxa))
+                return false;
+        }
+        return true;
+    }
+
     public String getSyntax() {
         return "compute consensus method={" + StrictConsensus.NAME + "|" + LooseConsensus.NAME + "|" + MajorityConsensus.NAME + "|"
                 + ComputeNetworkConsensus.LEVEL_K_NETWORK + "|" + ComputeNetworkConsensus.CLUSTER_NETWORK + "|" + ComputeNetworkConsensus.GALLED_NETWORK + "|"
-                + Distortion1Consensus.NAME + "|" + LSATree.NAME + "|" + PrimordialConsensus.NAME + " [threshold=<number>]};";
+                + Distortion1Consensus.NAME + "|" + LSATree.NAME + "|" + PrimordialConsensus.NAME + " [threshold=<number>]} [use-cluster-counts=<boolean>] [file=<Newick-file> [burnIn=<number>] [sample=<number>]];";
     }
 
     /**
@@ -281,6 +281,22 @@ public class Cluster extends BitSet {
         else return 0;
     }
 
+    /**
+     * 64-bit fingerprint of a bit set
+     *
+     * @param bits
+     * @return fingerprint
+     */
+    public static long fingerprint(BitSet bits) {
+        long h = 0xcbf29ce484222325L;
+        for (long word : bits.toLongArray()) {
+            h ^= word;
+            h *= 0x9E3779B97F4A7C15L;
+            h ^= (h >>> 31);
+        }
+        return h;
+    }
+
     /**
      * extract the set of taxa present in an array of clusters
      *
@@ -0,0 +1,233 @@
+/*
+ *   ConsensusAccumulator.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.consensus;
+
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+import jloda.util.ProgressSilent;
+
+import java.util.*;
+
+/**
+ * accumulates the cluster frequencies of a stream of rooted trees, such as the samples of an MCMC run.
+ * Each tree is reduced to its clusters when it is added and can then be discarded, so memory depends on the number
+ * of distinct clusters, not the number of trees. At any time, the strict, majority or a threshold consensus of the
+ * trees added so far can be obtained. All trees are expected to be on the same set of taxa
+ */
+public class ConsensusAccumulator {
+    private final Taxa taxa = new Taxa();
+    private final Map<BitSet, ClusterCount> cluster2count = new HashMap<>();
+    private BitSet firstTreeTaxa = null;
+    private int numberOfTrees = 0;
+    private boolean warned = false;
+
+    /**
+     * add the clusters of a tree. Networks are skipped
+     *
+     * @param tree
+     * @return true, if added
+     */
+    public boolean add(PhyloTree tree) {
+        final Map<BitSet, Double> clusters = getClusters(tree);
+        if (clusters == null)
+            return false;
+        addClusters(clusters);
+        return true;
+    }
+
+    /**
+     * computes the clusters of a tree, each mapped to the total weight of the edges above it.
+     * Taxa are registered with this accumulator
+     *
+     * @param tree
+     * @return clusters or null, if the tree is empty or is a network
+     */
+    public Map<BitSet, Double> getClusters(PhyloTree tree) {
+        if (tree.getRoot() == null)
+            return null;
+        if (tree.getSpecialEdges().size() > 0) {
+            System.err.println("Tree '" + tree.getName() + "' is network, skipped");
+            return null;
+        }
+        final Map<BitSet, Double> clusters = new HashMap<>();
+        final BitSet treeTaxa = computeClustersRec(tree, tree.getRoot(), clusters);
+
+        if (firstTreeTaxa == null)
+            firstTreeTaxa = treeTaxa;
+        else if (!warned && !firstTreeTaxa.equals(treeTaxa)) {
+            System.err.println("Warning: unequal taxon content, consensus of partial trees is not supported, using cluster counts as is");
+            warned = true;
+        }
+        return clusters;
+    }
+
+    /**
+     * add the clusters of one tree, as computed by getClusters
+     *
+     * @param clusters
+     */
+    public void addClusters(Map<BitSet, Double> clusters) {
+        for (Map.Entry<BitSet, Double> entry : clusters.entrySet()) {
+            final ClusterCount count = cluster2count.computeIfAbsent(entry.getKey(), k -> new ClusterCount());
+            count.count++;
+            count.totalWeight += entry.getValue();
+        }
+        numberOfTrees++;
+    }
+
+    /**
+     * remove the clusters of one tree, as computed by getClusters and previously added
+     *
+     * @param clusters
+     */
+    public void removeClusters(Map<BitSet, Double> clusters) {
+        for (Map.Entry<BitSet, Double> entry : clusters.entrySet()) {
+            final ClusterCount count = cluster2count.get(entry.getKey());
+            if (count != null) {
+                if (--count.count == 0)
+                    cluster2count.remove(entry.getKey());
+                else
+                    count.totalWeight -= entry.getValue();
+            }
+        }
+        numberOfTrees--;
+    }
+
+    /**
+     * recursively computes the clusters below all edges
+     *
+     * @return taxa below v
+     */
+    private BitSet computeClustersRec(PhyloTree tree, Node v, Map<BitSet, Double> clusters) {
+        final BitSet below = new BitSet();
+        final String label = tree.getLabel(v);
+        if (label != null && label.length() > 0 && !PhyloTree.isBootstrapValue(label))
+            below.set(taxa.add(label));
+
+        for (Edge f = v.getFirstOutEdge(); f != null; f = v.getNextOutEdge(f)) {
+            final BitSet cluster = computeClustersRec(tree, f.getTarget(), clusters);
+            if (!cluster.isEmpty())
+                clusters.merge(cluster, tree.getWeight(f), Double::sum);
+            below.or(cluster);
+        }
+        return below;
+    }
+
+    /**
+     * number of trees added
+     *
+     * @return number of trees
+     */
+    public int getNumberOfTrees() {
+        return numberOfTrees;
+    }
+
+    /**
+     * number of distinct clusters seen
+     *
+     * @return number of clusters
+     */
+    public int getNumberOfClusters() {
+        return cluster2count.size();
+    }
+
+    /**
+     * gets the strict consensus of all trees added so far
+     *
+     * @return consensus tree
+     */
+    public PhyloTree getStrictConsensus() {
+        final PhyloTree tree = getConsensus(numberOfTrees - 1);
+        tree.setName("strict-consensus");
+        return tree;
+    }
+
+    /**
+     * gets the majority consensus of all trees added so far
+     *
+     * @return consensus tree
+     */
+    public PhyloTree getMajorityConsensus() {
+        final PhyloTree tree = getConsensus(numberOfTrees / 2);
+        tree.setName("majority-consensus");
+        return tree;
+    }
+
+    /**
+     * gets the consensus of all clusters that appear in more than the given percentage of trees
+     *
+     * @param percentThreshold
+     * @return consensus tree or network
+     */
+    public PhyloTree getThresholdConsensus(double percentThreshold) {
+        final PhyloTree tree = getConsensus((int) Math.floor(percentThreshold * numberOfTrees / 100.0));
+        tree.setName("consensus-" + percentThreshold);
+        return tree;
+    }
+
+    /**
+     * computes the consensus of all clusters that appear in more than minCount trees. As in Utilities.getSplitsFromTrees,
+     * an artificial outgroup is added as last taxon and each cluster becomes a split against the outgroup
+     *
+     * @param minCount
+     * @return consensus tree
+     */
+    private PhyloTree getConsensus(int minCount) {
+        final Taxa allTaxa = new Taxa();
+        for (int t = 1; t <= taxa.maxId(); t++)
+            allTaxa.add(taxa.getLabel(t)); // keep the taxon ids used in the clusters
+        final int outgroupId = allTaxa.add("__outgroup__");
+        final BitSet single = new BitSet();
+        for (int t = 1; t <= taxa.maxId(); t++) {
+            single.clear();
+            single.set(t);
+            if (!cluster2count.containsKey(single)) // taxon only occurs in trees that have been removed
+                allTaxa.remove(taxa.getLabel(t));
+        }
+        final BitSet all = allTaxa.getBits();
+
+        final SplitSystem splits = new SplitSystem();
+        for (Map.Entry<BitSet, ClusterCount> entry : cluster2count.entrySet()) {
+            final ClusterCount count = entry.getValue();
+            if (count.count > minCount && entry.getKey().cardinality() < all.cardinality() - 1) { // root cluster is given by the outgroup split
+                final BitSet complement = (BitSet) all.clone();
+                complement.andNot(entry.getKey());
+                final Split split = new Split(entry.getKey(), complement, count.totalWeight / count.count);
+                split.setConfidence((double) count.count / numberOfTrees);
+                splits.addSplit(split);
+            }
+        }
+        final BitSet oA = (BitSet) all.clone();
+        oA.set(outgroupId, false);
+        final BitSet oB = new BitSet();
+        oB.set(outgroupId);
+        splits.addSplit(new Split(oA, oB, 0));
+
+        return splits.createTreeFromSplits(allTaxa, false, new ProgressSilent());
+    }
+
+    /**
+     * number of trees containing a cluster and the sum of its edge weights
+     */
+    private static class ClusterCount {
+        int count;
+        double totalWeight;
+    }
+}
@@ -21,6 +21,7 @@ package dendroscope.consensus;
 import dendroscope.algorithms.clusternet.ClusterNetwork;
 import dendroscope.core.Document;
 import dendroscope.core.TreeData;
+import dendroscope.util.ParallelExecutor;
 import jloda.graph.Edge;
 import jloda.graph.Node;
 import jloda.graph.NodeDoubleArray;
@@ -32,6 +33,12 @@ import jloda.util.Triplet;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * computes the primordial consensus supertree of a set of gene trees
@@ -53,15 +60,13 @@ public class PrimordialConsensus implements IConsensusTreeMethod {
     public PhyloTree apply(Document doc, TreeData[] trees) throws CanceledException, IOException {
         ProgressListener progressListener = doc.getProgressListener();
 
-        progressListener.setSubtask("Addressing taxa in trees");
+        progressListener.setSubtask("Indexing taxa in trees");
         progressListener.setMaximum(trees.length);
         progressListener.setProgress(0);
 
-        // compute address of all taxa in all trees:
-        TaxId2Address[] taxId2Address = new TaxId2Address[trees.length];
-        Taxa taxa = new Taxa();
-        for (int t = 0; t < trees.length; t++) {
-            PhyloTree tree = trees[t];
+        // compute an LCA index for each tree:
+        final Taxa taxa = new Taxa();
+        for (PhyloTree tree : trees) {
             for (Node v = tree.getFirstNode(); v != null; v = v.getNext()) {
                 if (v.getOutDegree() == 0) {
                     String name = tree.getLabel(v);
@@ -69,8 +74,10 @@ public class PrimordialConsensus implements IConsensusTreeMethod {
                         taxa.add(name);
                 }
             }
-            taxId2Address[t] = new TaxId2Address();
-            computeLabel2AddressRec(tree, taxa, tree.getRoot(), "", taxId2Address[t]);
+        }
+        final TaxonLCAIndex[] lcaIndices = new TaxonLCAIndex[trees.length];
+        for (int t = 0; t < trees.length; t++) {
+            lcaIndices[t] = new TaxonLCAIndex(trees[t], taxa);
             progressListener.incrementProgress();
         }
         if (verbose)
@@ -81,35 +88,75 @@ public class PrimordialConsensus implements IConsensusTreeMethod {
                 System.err.println(taxa.getLabel(i) + " -> " + i);
         }
 
-        progressListener.setSubtask("Computing active rooted triples");
-        progressListener.setMaximum(trees.length);
-        progressListener.setProgress(taxa.size());
-
-        // computing all active triplets:
-        Map<FourTaxa, QuartetTopology> four2topology = new HashMap<>();
+        // computing all active triplets, the loop over the first taxon is run in parallel:
+        final BitSet taxaBits = taxa.getBits();
+        final int[] taxonIds = new int[taxaBits.cardinality()];
+        for (int a = taxaBits.nextSetBit(0), i = 0; a != -1; a = taxaBits.nextSetBit(a + 1))
+            taxonIds[i++] = a;
 
-        SortedSet<Triplet<Integer, Integer, Integer>> missingTriplets = new TreeSet<>();
+        progressListener.setSubtask("Computing active rooted triples");
+        progressListener.setMaximum(taxonIds.length);
+        progressListener.setProgress(0);
 
-        BitSet taxaBits = taxa.getBits();
-        for (int a = taxaBits.nextSetBit(0); a != -1; a = taxaBits.nextSetBit(a + 1)) {
-            for (int b = taxaBits.nextSetBit(a + 1); b != -1; b = taxaBits.nextSetBit(b + 1)) {
-                for (int c = taxaBits.nextSetBit(b + 1); c != -1; c = taxaBits.nextSetBit(c + 1)) {
-                    QuartetTopology topology = computeTopology(a, b, c, taxId2Address);
+        // the workers stop when canceled is set, this thread reports their progress and checks for cancellation:
+        final AtomicBoolean canceled = new AtomicBoolean(false);
+        final AtomicInteger taxaDone = new AtomicInteger(0);
+        final List<QuartetTopology>[] resolvedPerA = new List[taxonIds.length];
+        final List<Triplet<Integer, Integer, Integer>>[] missingPerA = new List[taxonIds.length];
+        final ForkJoinTask<Void> task = ParallelExecutor.submitForEach(taxonIds.length, i -> {
+            if (canceled.get())
+                return;
+            final int a = taxonIds[i];
+            final List<QuartetTopology> resolved = new ArrayList<>();
+            final List<Triplet<Integer, Integer, Integer>> missing = new ArrayList<>();
+            for (int j = i + 1; j < taxonIds.length; j++) {
+                if (canceled.get())
+                    return;
+                final int b = taxonIds[j];
+                for (int k = j + 1; k < taxonIds.length; k++) {
+                    final int c = taxonIds[k];
+                    QuartetTopology topology = computeTopology(a, b, c, lcaIndices);
                     if (topology == null) {
-                        missingTriplets.add(new Triplet<>(a, b, c));
+                        missing.add(new Triplet<>(a, b, c));
                     } else if (topology != unresolved) {
-                        FourTaxa four = new FourTaxa(0, a, b, c);
-                        four2topology.put(four, topology);
-                        if (verbose)
-                            System.err.println("Four: " + Basic.toString(four) + " Quartet: " + topology);
-                    } else {
-                        FourTaxa four = new FourTaxa(0, a, b, c);
-                        if (verbose)
-                            System.err.println("Four: " + Basic.toString(four) + " Quartet: unresolved");
+                        resolved.add(topology);
                     }
                 }
             }
-            progressListener.incrementProgress();
+            resolvedPerA[i] = resolved;
+            missingPerA[i] = missing;
+            taxaDone.incrementAndGet();
+        });
+        try {
+            while (true) {
+                try {
+                    task.get(100, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ex) {
+                    progressListener.setProgress(taxaDone.get());
+                }
+            }
+        } catch (CanceledException ex) {
+            canceled.set(true);
+            task.join();
+            throw ex;
+        } catch (InterruptedException ex) {
+            canceled.set(true);
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+
+        final Map<FourTaxa, QuartetTopology> four2topology = new HashMap<>();
+        final SortedSet<Triplet<Integer, Integer, Integer>> missingTriplets = new TreeSet<>();
+        for (int i = 0; i < taxonIds.length; i++) {
+            for (QuartetTopology topology : resolvedPerA[i]) {
+                FourTaxa four = new FourTaxa(0, topology.get(0), topology.get(1), topology.get(2));
+                four2topology.put(four, topology);
+                if (verbose)
+                    System.err.println("Four: " + Basic.toString(four) + " Quartet: " + topology);
+            }
+            missingTriplets.addAll(missingPerA[i]);
         }
         if (verbose)
             System.err.println("Total number of rooted triples: " + four2topology.size());
@@ -298,31 +345,28 @@ public class PrimordialConsensus implements IConsensusTreeMethod {
      * @param a
      * @param b
      * @param c
-     * @param taxId2Address
+     * @param lcaIndices
      * @return majority topology
      */
-    private QuartetTopology computeTopology(int a, int b, int c, TaxId2Address[] taxId2Address) {
+    private QuartetTopology computeTopology(int a, int b, int c, TaxonLCAIndex[] lcaIndices) {
         int count_ab_c = 0;
         int count_ac_b = 0;
         int count_bc_a = 0;
         boolean seen = false;
 
-        for (TaxId2Address map : taxId2Address) {
-            String addressA = map.get(a);
-            String addressB = map.get(b);
-            String addressC = map.get(c);
-            if (addressA == null || addressB == null || addressC == null)  // taxon not present in this tree
+        for (TaxonLCAIndex index : lcaIndices) {
+            if (!index.contains(a) || !index.contains(b) || !index.contains(c))  // taxon not present in this tree
                 continue;
             seen = true;
 
-            int prefixLengthAB = getCommonPrefix(new String[]{addressA, addressB}).length();
-            int prefixLengthAC = getCommonPrefix(new String[]{addressA, addressC}).length();
-            int prefixLengthBC = getCommonPrefix(new String[]{addressB, addressC}).length();
-            if (prefixLengthAB > prefixLengthAC)
+            int depthAB = index.getLCADepth(a, b);
+            int depthAC = index.getLCADepth(a, c);
+            int depthBC = index.getLCADepth(b, c);
+            if (depthAB > depthAC)
                 count_ab_c++;
-            else if (prefixLengthAC > prefixLengthBC)
+            else if (depthAC > depthBC)
                 count_ac_b++;
-            else if (prefixLengthBC > prefixLengthAC)
+            else if (depthBC > depthAC)
                 count_bc_a++;
         }
 
@@ -337,61 +381,6 @@ public class PrimordialConsensus implements IConsensusTreeMethod {
         return unresolved;
     }
 
-    /**
-     * computes the label2address mapping
-     *
-     * @param v
-     * @param path
-     */
-    private void computeLabel2AddressRec(PhyloTree tree, Taxa taxa, Node v, String path, TaxId2Address taxId2Address) {
-        if (v.getOutDegree() == 0) {
-            Integer taxId = taxa.indexOf(tree.getLabel(v));
-            taxId2Address.put(taxId, path);
-        } else {
-            char count = 0;
-            for (Edge f = v.getFirstOutEdge(); f != null; f = v.getNextOutEdge(f)) {
-                count++;
-                computeLabel2AddressRec(tree, taxa, f.getTarget(), path + count, taxId2Address);
-            }
-        }
-    }
-
-    /**
-     * given a set of addresses, returns the common prefix
-     *
-     * @param addresses
-     * @return prefix
-     */
-    public String getCommonPrefix(String[] addresses) {
-        if (addresses.length == 0)
-            return "";
-        else if (addresses.length == 1)
-            return addresses[0];
-
-        for (int i = 0; ; i++) {
-            int alive = 0;
-            String first = null;
-            for (String address : addresses) {
-                if (i < address.length()) {
-                    alive++;
-                    if (first == null)
-                        first = address;
-                    else {
-                        if (first.charAt(i) != address.charAt(i))
-                            return address.substring(0, i);
-                    }
-                }
-            }
-            if (alive < 2) {
-                assert first != null;
-                if (i > 0)
-                    return first.substring(0, i - 1);
-                else
-                    return "";
-            }
-        }
-    }
-
     /**
      * gets the sorted triplet
      *
@@ -411,7 +400,83 @@ public class PrimordialConsensus implements IConsensusTreeMethod {
         return new Triplet<>(min, mid, max);
     }
 
-    class TaxId2Address extends HashMap<Integer, String> {
+    /**
+     * answers depth-of-LCA queries for pairs of taxa of a tree in constant time, using an Euler tour of the tree and
+     * a sparse table for range-minimum queries over the depths along the tour
+     */
+    static class TaxonLCAIndex {
+        private final int[] taxon2first; // position of first occurrence of taxon in Euler tour, or -1
+        private final int[][] minDepth; // minDepth[k][i]: minimum depth in tour positions i..i+2^k-1
+
+        private int[] depths; // depths along the Euler tour, only used during construction
+        private int length;
+
+        TaxonLCAIndex(PhyloTree tree, Taxa taxa) {
+            taxon2first = new int[taxa.maxId() + 1];
+            Arrays.fill(taxon2first, -1);
+
+            depths = new int[Math.max(1, 2 * tree.getNumberOfNodes())];
+            length = 0;
+            if (tree.getRoot() != null)
+                eulerTourRec(tree, taxa, tree.getRoot(), 0);
+
+            final int levels = 32 - Integer.numberOfLeadingZeros(Math.max(1, length));
+            minDepth = new int[levels][];
+            minDepth[0] = Arrays.copyOf(depths, length);
+            depths = null;
+            for (int k = 1; k < levels; k++) {
+                final int half = 1 << (k - 1);
+                minDepth[k] = new int[length - (1 << k) + 1];
+                for (int i = 0; i < minDepth[k].length; i++)
+                    minDepth[k][i] = Math.min(minDepth[k - 1][i], minDepth[k - 1][i + half]);
+            }
+        }
+
+        private void eulerTourRec(PhyloTree tree, Taxa taxa, Node v, int depth) {
+            if (v.getOutDegree() == 0) {
+                final int taxId = taxa.indexOf(tree.getLabel(v));
+                if (taxId != -1 && taxon2first[taxId] == -1)
+                    taxon2first[taxId] = length;
+            }
+            addDepth(depth);
+            for (Edge f = v.getFirstOutEdge(); f != null; f = v.getNextOutEdge(f)) {
+                eulerTourRec(tree, taxa, f.getTarget(), depth + 1);
+                addDepth(depth);
+            }
+        }
+
+        /**
+         * appends a depth to the Euler tour. The tour of a network can be longer than twice the number of nodes
+         */
+        private void addDepth(int depth) {
+            if (length == depths.length)
+                depths = Arrays.copyOf(depths, 2 * depths.length);
+            depths[length++] = depth;
+        }
+
+        /**
+         * is taxon present in tree?
+         */
+        boolean contains(int taxon) {
+            return taxon < taxon2first.length && taxon2first[taxon] != -1;
+        }
+
+        /**
+         * gets the depth of the lowest common ancestor of two taxa in the tree
+         *
+         * @return depth of LCA
+         */
+        int getLCADepth(int a, int b) {
+            int i = taxon2first[a];
+            int j = taxon2first[b];
+            if (i > j) {
+                final int tmp = i;
+                i = j;
+                j = tmp;
+            }
+            final int k = 31 - Integer.numberOfLeadingZeros(j - i + 1);
+            return Math.min(minDepth[k][i], minDepth[k][j - (1 << k) + 1]);
+        }
     }
 
     class FourTaxa extends BitSet {
@@ -33,6 +33,8 @@ import java.util.TreeSet;
 /**
  * filters splits
  * Daniel Huson, 7.2007
+ * <p>
+ * The majority, strict, loose and percent-threshold filters threshold the counts computed by SplitSupport
  */
 public class SplitFilter {
     /**
@@ -222,26 +224,26 @@ public class SplitFilter {
      * @return majority splits
      */
     public static SplitSystem filterByMajority(ProgressListener progressListener, BitSet[] tree2taxa, SplitSystem[] tree2splits, SplitSystem splits) throws CanceledException {
+        return filterByMajority(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits));
+    }
+
+    /**
+     * filter by majority consensus, using support counts computed by the caller
+     *
+     * @param progressListener
+     * @param splits
+     * @param support          support counts of the splits
+     * @return majority splits
+     */
+    public static SplitSystem filterByMajority(ProgressListener progressListener, SplitSystem splits, SplitSupport support) throws CanceledException {
         progressListener.setTasks("Filter by majority consensus", "Processing splits");
         progressListener.setMaximum(splits.size());
 
         SplitSystem result = new SplitSystem();
 
-        for (Iterator it = splits.iterator(); it.hasNext(); ) {
-            Split split = (Split) it.next();
-
-            int countPossible = 0;
-            int countContainedIn = 0;
-            for (int t = 0; t < tree2taxa.length; t++) {
-                if (split.getA().intersects(tree2taxa[t]) && split.getB().intersects(tree2taxa[t])) {
-                    countPossible++;
-                    Split induced = split.getInduced(tree2taxa[t]);
-                    if (tree2splits[t].contains(induced))
-                        countContainedIn++;
-                }
-            }
-            if (2 * countContainedIn > countPossible)
-                result.addSplit(split);
+        for (int s = 1; s <= splits.size(); s++) {
+            if (!splits.isReplaced(s) && 2 * support.getSupport(s) > support.getPossible(s))
+                result.addSplit(splits.getSplit(s));
             progressListener.incrementProgress();
         }
         return result;
@@ -258,26 +260,26 @@ public class SplitFilter {
      * @return strict majority splits
      */
     public static SplitSystem filterByStrict(ProgressListener progressListener, BitSet[] tree2taxa, SplitSystem[] tree2splits, SplitSystem splits) throws CanceledException {
+        return filterByStrict(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits));
+    }
+
+    /**
+     * filter by strict consensus, using support counts computed by the caller
+     *
+     * @param progressListener
+     * @param splits
+     * @param support          support counts of the splits
+     * @return strict majority splits
+     */
+    public static SplitSystem filterByStrict(ProgressListener progressListener, SplitSystem splits, SplitSupport support) throws CanceledException {
         progressListener.setTasks("Filter by strict consensus", "Processing splits");
         progressListener.setMaximum(splits.size());
 
         SplitSystem result = new SplitSystem();
 
-        for (Iterator it = splits.iterator(); it.hasNext(); ) {
-            Split split = (Split) it.next();
-
-            boolean ok = true;
-            for (int t = 0; t < tree2taxa.length; t++) {
-                if (split.getA().intersects(tree2taxa[t]) && split.getB().intersects(tree2taxa[t])) {
-                    Split induced = split.getInduced(tree2taxa[t]);
-                    if (!tree2splits[t].contains(induced)) {
-                        ok = false;
-                        break;
-                    }
-                }
-            }
-            if (ok)
-                result.addSplit(split);
+        for (int s = 1; s <= splits.size(); s++) {
+            if (!splits.isReplaced(s) && support.getSupport(s) == support.getPossible(s))
+                result.addSplit(splits.getSplit(s));
             progressListener.incrementProgress();
         }
         return result;
@@ -294,28 +296,26 @@ public class SplitFilter {
      * @throws CanceledException
      */
     public static SplitSystem filterByLoose(ProgressListener progressListener, BitSet[] tree2taxa, SplitSystem[] tree2splits, SplitSystem splits) throws CanceledException {
+        return filterByLoose(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits));
+    }
+
+    /**
+     * filter by loose consensus, using support counts computed by the caller
+     *
+     * @param progressListener
+     * @param splits
+     * @param support          support counts of the splits
+     * @return loose consensus splis
+     */
+    public static SplitSystem filterByLoose(ProgressListener progressListener, SplitSystem splits, SplitSupport support) throws CanceledException {
         progressListener.setTasks("Filter by loose consensus", "Processing splits");
         progressListener.setMaximum(splits.size());
 
         SplitSystem result = new SplitSystem();
 
-        for (Iterator it = splits.iterator(); it.hasNext(); ) {
-            Split split = (Split) it.next();
-
-            boolean ok = true;
-            for (int t = 0; ok && t < tree2taxa.length; t++) {
-                if (split.getA().intersects(tree2taxa[t]) && split.getB().intersects(tree2taxa[t])) {
-                    Split induced = split.getInduced(tree2taxa[t]);
-                    for (Iterator it2 = tree2splits[t].iterator(); it2.hasNext(); ) {
-                        if (!induced.isCompatible((Split) it2.next())) {
-                            ok = false;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (ok)
-                result.addSplit(split);
+        for (int s = 1; s <= splits.size(); s++) {
+            if (!splits.isReplaced(s) && support.getConflicts(s) == 0)
+                result.addSplit(splits.getSplit(s));
             progressListener.incrementProgress();
         }
         return result;
@@ -332,27 +332,29 @@ public class SplitFilter {
      * @return majority splits
      */
     public static SplitSystem filterByPrecentThreshold(ProgressListener progressListener, BitSet[] tree2taxa, SplitSystem[] tree2splits, SplitSystem splits, double percentThreshold) throws CanceledException {
+        return filterByPrecentThreshold(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits), percentThreshold);
+    }
+
+    /**
+     * filter by percent threshold, using support counts computed by the caller
+     *
+     * @param progressListener
+     * @param splits
+     * @param support          support counts of the splits
+     * @param percentThreshold
+     * @return filtered splits
+     */
+    public static SplitSystem filterByPrecentThreshold(ProgressListener progressListener, SplitSystem splits, SplitSupport support, double percentThreshold) throws CanceledException {
         progressListener.setTasks("Filter by percent threshold (" + percentThreshold + " %)", "Processing splits");
         progressListener.setMaximum(splits.size());
 
         SplitSystem result = new SplitSystem();
 
-        for (Iterator it = splits.iterator(); it.hasNext(); ) {
-            Split split = (Split) it.next();
-
-            int countPossible = 0;
-            int countContainedIn = 0;
-            for (int t = 0; t < tree2taxa.length; t++) {
-                if (split.getA().intersects(tree2taxa[t]) && split.getB().intersects(tree2taxa[t])) {
-                    countPossible++;
-                    Split induced = split.getInduced(tree2taxa[t]);
-                    if (tree2splits[t].contains(induced))
-                        countContainedIn++;
-                }
-            }
-            if (countPossible > 0 && 100.0 * ((double) countContainedIn / (double) countPossible) > percentThreshold) {
-                result.addSplit(split);
-                //System.err.println("Adding split (possible="+countPossible+", containedIn: "+countContainedIn+"): <"+split+">");
+        for (int s = 1; s <= splits.size(); s++) {
+            final int countPossible = support.getPossible(s);
+            final int countContainedIn = support.getSupport(s);
+            if (!splits.isReplaced(s) && countPossible > 0 && 100.0 * ((double) countContainedIn / (double) countPossible) > percentThreshold) {
+                result.addSplit(splits.getSplit(s));
             }
             progressListener.incrementProgress();
         }
@@ -0,0 +1,222 @@
+/*
+ *   SplitSupport.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.consensus;
+
+import dendroscope.util.ParallelExecutor;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * support counts of a set of candidate splits in a set of (partial) trees. For each split, counts the number of trees
+ * whose taxa meet both sides of the split (possible) and the number of those trees that contain the induced split
+ * (support). Counts are computed in one parallel pass over the trees.
+ * <p>
+ * For a tree that contains all taxa of the candidate splits, the induced splits are the splits themselves, so such
+ * a tree is processed by looking up each of its own splits in the candidate set.
+ * The caller computes the counts once and passes them to all filters that are applied to the same trees and splits
+ */
+public class SplitSupport {
+    private final BitSet[] tree2taxa;
+    private final SplitSystem[] tree2splits;
+    private final SplitSystem splits;
+    private final BitSet allTaxa;
+
+    private final int[] support;
+    private final int[] possible;
+    private int[] conflicts;
+
+    /**
+     * constructor, computes the support counts of the given splits
+     *
+     * @param tree2taxa   taxa contained in i-th tree
+     * @param tree2splits i-th component contains all partial splits of i-th tree
+     * @param splits      candidate splits
+     */
+    public SplitSupport(BitSet[] tree2taxa, SplitSystem[] tree2splits, SplitSystem splits) {
+        this.tree2taxa = tree2taxa;
+        this.tree2splits = tree2splits;
+        this.splits = splits;
+
+        allTaxa = new BitSet();
+        for (int s = 1; s <= splits.size(); s++) {
+            allTaxa.or(splits.getSplit(s).getA());
+            allTaxa.or(splits.getSplit(s).getB());
+        }
+        final int[][] counts = ParallelExecutor.getPool().invoke(new CountTask(0, tree2taxa.length, false));
+        support = counts[0];
+        possible = counts[1];
+
+        // trees with all taxa only count the index that lookup returns for a split, copy it to equal candidates:
+        for (int s = 1; s <= splits.size(); s++) {
+            final int index = splits.indexOf(splits.getSplit(s));
+            if (index != s)
+                support[s] = support[index];
+        }
+    }
+
+    /**
+     * number of trees that contain the split induced by the split of the given index
+     *
+     * @param index split index, 1..splits.size()
+     * @return support
+     */
+    public int getSupport(int index) {
+        return support[index];
+    }
+
+    /**
+     * number of trees whose taxa meet both sides of the split of the given index
+     *
+     * @param index split index, 1..splits.size()
+     * @return number of trees
+     */
+    public int getPossible(int index) {
+        return possible[index];
+    }
+
+    /**
+     * number of trees whose taxa meet both sides of the split of the given index and that contain a split that
+     * is incompatible to the induced split. Computed on first use
+     *
+     * @param index split index, 1..splits.size()
+     * @return number of trees
+     */
+    public synchronized int getConflicts(int index) {
+        if (conflicts == null)
+            conflicts = ParallelExecutor.getPool().invoke(new CountTask(0, tree2taxa.length, true))[0];
+        return conflicts[index];
+    }
+
+    /**
+     * counts over a range of trees
+     */
+    private class CountTask extends RecursiveTask<int[][]> {
+        private final int low;
+        private final int high;
+        private final boolean countConflicts;
+
+        CountTask(int low, int high, boolean countConflicts) {
+            this.low = low;
+            this.high = high;
+            this.countConflicts = countConflicts;
+        }
+
+        protected int[][] compute() {
+            final int blockSize = Math.max(1, tree2taxa.length / (4 * ParallelExecutor.getPool().getParallelism()));
+            if (high - low > blockSize) {
+                final int mid = (low + high) >>> 1;
+                final CountTask right = new CountTask(mid, high, countConflicts);
+                right.fork();
+                final int[][] result = new CountTask(low, mid, countConflicts).compute();
+                final int[][] other = right.join();
+                for (int k = 0; k < result.length; k++) {
+                    for (int s = 0; s < result[k].length; s++)
+                        result[k][s] += other[k][s];
+                }
+                return result;
+            } else {
+                if (countConflicts) {
+                    final int[] conflicts = new int[splits.size() + 1];
+                    for (int t = low; t < high; t++)
+                        countConflicts(t, conflicts);
+                    return new int[][]{conflicts};
+                } else {
+                    final int[] support = new int[splits.size() + 1];
+                    final int[] possible = new int[splits.size() + 1];
+                    for (int t = low; t < high; t++)
+                        countSupport(t, support, possible);
+                    return new int[][]{support, possible};
+                }
+            }
+        }
+    }
+
+    /**
+     * count the support of all splits in tree t
+     *
+     * @param t
+     * @param support
+     * @param possible
+     */
+    private void countSupport(int t, int[] support, int[] possible) {
+        final BitSet treeTaxa = tree2taxa[t];
+        final BitSet missing = (BitSet) allTaxa.clone();
+        missing.andNot(treeTaxa);
+
+        if (missing.isEmpty()) { // tree has all taxa, look up its splits in the candidates
+            for (int s = 1; s <= splits.size(); s++) {
+                final Split split = splits.getSplit(s);
+                if (split.getA().intersects(treeTaxa) && split.getB().intersects(treeTaxa))
+                    possible[s]++;
+            }
+            for (Iterator<Split> it = tree2splits[t].iterator(); it.hasNext(); ) {
+                final int s = splits.indexOf(it.next());
+                if (s != -1)
+                    support[s]++;
+            }
+        } else {
+            for (int s = 1; s <= splits.size(); s++) {
+                final Split split = splits.getSplit(s);
+                if (split.getA().intersects(treeTaxa) && split.getB().intersects(treeTaxa)) {
+                    possible[s]++;
+                    final Split induced = (isSubset(split.getA(), treeTaxa) && isSubset(split.getB(), treeTaxa) ? split : split.getInduced(treeTaxa));
+                    if (tree2splits[t].contains(induced))
+                        support[s]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * count the splits that are in conflict with tree t
+     *
+     * @param t
+     * @param conflicts
+     */
+    private void countConflicts(int t, int[] conflicts) {
+        final BitSet treeTaxa = tree2taxa[t];
+        for (int s = 1; s <= splits.size(); s++) {
+            final Split split = splits.getSplit(s);
+            if (split.getA().intersects(treeTaxa) && split.getB().intersects(treeTaxa)) {
+                final Split induced = split.getInduced(treeTaxa);
+                for (Iterator<Split> it = tree2splits[t].iterator(); it.hasNext(); ) {
+                    if (!induced.isCompatible(it.next())) {
+                        conflicts[s]++;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * is a a subset of b?
+     *
+     * @return true, if subset
+     */
+    private static boolean isSubset(BitSet a, BitSet b) {
+        for (int i = a.nextSetBit(0); i != -1; i = a.nextSetBit(i + 1)) {
+            if (!b.get(i))
+                return false;
+        }
+        return true;
+    }
+}
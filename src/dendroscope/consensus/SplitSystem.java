@@ -38,20 +38,27 @@ import java.util.*;
 /**
  * a collection of splits
  * Daniel Huson, 6.2007
+ * <p>
+ * Splits are kept in an array, indexed 1..size(). Lookup uses an open-addressing table of split indices,
+ * keyed by a 64-bit fingerprint of the split that is computed once when the split is added. If a split is added
+ * that equals one already present, lookup returns the new index and iteration skips the old one
  */
 public class SplitSystem {
     private int nsplits;
 
-    final private Map<Integer, Split> index2split;
-    final private Map<Split, Integer> split2index;
+    private Split[] splits; // splits[0] is not used
+    private long[] fingerprints;
+    private int[] table; // open-addressing table of split indices, 0 marks an empty slot
+    private final BitSet replaced = new BitSet(); // indices of splits replaced by an equal split added later
 
     /**
      * constructor
      */
     public SplitSystem() {
         nsplits = 0;
-        index2split = new HashMap<>();
-        split2index = new HashMap<>();
+        splits = new Split[16];
+        fingerprints = new long[16];
+        table = new int[32];
     }
 
     /**
@@ -82,9 +89,17 @@ public class SplitSystem {
      */
     public int addSplit(Split split) {
         nsplits++;
-        index2split.put(nsplits, split);
-        split2index.put(split, nsplits);
+        if (nsplits == splits.length) {
+            splits = Arrays.copyOf(splits, 2 * splits.length);
+            fingerprints = Arrays.copyOf(fingerprints, 2 * fingerprints.length);
+        }
+        splits[nsplits] = split;
+        fingerprints[nsplits] = fingerprint(split);
 
+        if (2 * nsplits > table.length)
+            rehash(2 * table.length);
+        else
+            insert(nsplits);
         return nsplits;
     }
 
@@ -95,7 +110,20 @@ public class SplitSystem {
      * @return split with given index
      */
     public Split getSplit(int index) {
-        return index2split.get(index);
+        if (index >= 1 && index <= nsplits)
+            return splits[index];
+        else
+            return null;
+    }
+
+    /**
+     * is the split with the given index replaced by an equal split that was added later?
+     *
+     * @param index
+     * @return true, if replaced
+     */
+    public boolean isReplaced(int index) {
+        return replaced.get(index);
     }
 
     /**
@@ -105,11 +133,14 @@ public class SplitSystem {
      * @return index or -1
      */
     public int indexOf(Split split) {
-        Integer index = split2index.get(split);
-        if (index == null)
-            return -1;
-        else
-            return index;
+        final long fingerprint = fingerprint(split);
+        final int mask = table.length - 1;
+        for (int slot = (int) fingerprint & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            final int index = table[slot];
+            if (fingerprints[index] == fingerprint && splits[index].equals(split))
+                return index;
+        }
+        return -1;
     }
 
     /**
@@ -119,7 +150,54 @@ public class SplitSystem {
      * @return true, if contained
      */
     public boolean contains(Split split) {
-        return split2index.keySet().contains(split);
+        return indexOf(split) != -1;
+    }
+
+    /**
+     * puts the given split index into the table. If an equal split is already present, its index is replaced
+     *
+     * @param index
+     */
+    private void insert(int index) {
+        final long fingerprint = fingerprints[index];
+        final int mask = table.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (table[slot] != 0) {
+            final int other = table[slot];
+            if (fingerprints[other] == fingerprint && splits[other].equals(splits[index])) {
+                replaced.set(other);
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index;
+    }
+
+    /**
+     * rebuilds the table with the given capacity
+     *
+     * @param capacity a power of two
+     */
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int index = 1; index <= nsplits; index++)
+            insert(index);
+    }
+
+    /**
+     * computes a 64-bit fingerprint of a split that does not depend on the order of the two parts
+     *
+     * @param split
+     * @return fingerprint
+     */
+    static long fingerprint(Split split) {
+        final long first = Cluster.fingerprint(split.getFirstPart());
+        final long second = Cluster.fingerprint(split.getSecondPart());
+        long h = first * 0x9E3779B97F4A7C15L + second;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return h;
     }
 
     /**
@@ -142,17 +220,33 @@ public class SplitSystem {
      */
     public void clear() {
         nsplits = 0;
-        index2split.clear();
-        split2index.clear();
+        splits = new Split[16];
+        fingerprints = new long[16];
+        table = new int[32];
+        replaced.clear();
     }
 
     /**
-     * gets an iterator over all splits
+     * gets an iterator over all distinct splits, in order of their indices
      *
      * @return iterator
      */
     public Iterator<Split> iterator() {
-        return split2index.keySet().iterator();
+        return new Iterator<Split>() {
+            private int index = replaced.nextClearBit(1);
+
+            public boolean hasNext() {
+                return index <= nsplits;
+            }
+
+            public Split next() {
+                if (index > nsplits)
+                    throw new NoSuchElementException();
+                final Split split = splits[index];
+                index = replaced.nextClearBit(index + 1);
+                return split;
+            }
+        };
     }
 
 
@@ -396,7 +490,7 @@ public class SplitSystem {
         int count = 0;
         for (Iterator it = splits.iterator(); it.hasNext(); ) {
             Split split = (Split) it.next();
-            if (!split2index.keySet().contains(split)) {
+            if (!contains(split)) {
                 addSplit(split);
                 count++;
             }
@@ -410,11 +504,7 @@ public class SplitSystem {
      * @return list of splits
      */
     public List<Split> asList() {
-        List<Split> result = new LinkedList<>();
-        for (Iterator<Split> it = iterator(); it.hasNext(); ) {
-            result.add(it.next());
-        }
-        return result;
+        return new ArrayList<>(Arrays.asList(asArray()));
     }
 
     /**
@@ -423,12 +513,13 @@ public class SplitSystem {
      * @return array of splits
      */
     public Split[] asArray() {
-        Split[] result = new Split[size()];
+        if (replaced.isEmpty())
+            return Arrays.copyOfRange(splits, 1, nsplits + 1);
+        final Split[] array = new Split[nsplits - replaced.cardinality()];
         int count = 0;
-        for (Iterator it = iterator(); it.hasNext(); ) {
-            result[count++] = (Split) it.next();
-        }
-        return result;
+        for (Iterator<Split> it = iterator(); it.hasNext(); )
+            array[count++] = it.next();
+        return array;
     }
 
     /**
@@ -439,12 +530,11 @@ public class SplitSystem {
      * @return split
      */
     public Split get(Split split) {
-        Integer index = split2index.get(split);
-        if (index != null)
+        final int index = indexOf(split);
+        if (index != -1)
             return getSplit(index);
         else
             return null;
-
     }
 
     /**
@@ -0,0 +1,136 @@
+/*
+ *   TreeClusterIndex.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.consensus;
+
+import dendroscope.core.TreeData;
+
+import java.util.*;
+
+/**
+ * cluster counts of the enabled trees of a document, kept up-to-date incrementally.
+ * Each indexed tree remembers its clusters and its modification count. When the index is brought up-to-date,
+ * only trees that were added, removed, enabled, disabled or modified since the last update are processed. If neither
+ * the document nor any of its trees was modified, nothing is done
+ */
+public class TreeClusterIndex {
+    private final ConsensusAccumulator accumulator = new ConsensusAccumulator();
+    private final Map<TreeData, Entry> tree2entry = new IdentityHashMap<>();
+
+    private int documentModificationCount = -1;
+    private long treesModificationCount = -1;
+    private TreeData[] updatedTrees = new TreeData[0];
+
+    /**
+     * bring the index up-to-date with the given trees. Disabled trees are not counted
+     *
+     * @param trees
+     * @param documentModificationCount modification count of the list of trees
+     * @return number of trees whose clusters had to be added or removed
+     */
+    public synchronized int update(TreeData[] trees, int documentModificationCount) {
+        // modification counts only increase, so if the list holds the same trees, their sum tells whether any tree changed:
+        long treesModificationCount = 0;
+        for (TreeData tree : trees) {
+            if (tree != null)
+                treesModificationCount += tree.getModificationCount();
+        }
+        if (documentModificationCount == this.documentModificationCount && treesModificationCount == this.treesModificationCount
+                && isSameTrees(trees, updatedTrees))
+            return 0;
+        this.documentModificationCount = documentModificationCount;
+        this.treesModificationCount = treesModificationCount;
+        this.updatedTrees = trees.clone();
+
+        int changes = 0;
+        final Set<TreeData> enabled = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TreeData tree : trees) {
+            if (tree != null && !tree.isDisabled())
+                enabled.add(tree);
+        }
+
+        for (Iterator<Map.Entry<TreeData, Entry>> it = tree2entry.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<TreeData, Entry> mapEntry = it.next();
+            if (!enabled.contains(mapEntry.getKey()) || mapEntry.getValue().modificationCount != mapEntry.getKey().getModificationCount()) {
+                if (mapEntry.getValue().clusters != null)
+                    accumulator.removeClusters(mapEntry.getValue().clusters);
+                it.remove();
+                changes++;
+            }
+        }
+
+        for (TreeData tree : enabled) {
+            if (!tree2entry.containsKey(tree)) {
+                final Entry entry = new Entry(tree.getModificationCount(), accumulator.getClusters(tree));
+                if (entry.clusters != null)
+                    accumulator.addClusters(entry.clusters);
+                tree2entry.put(tree, entry);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * do the two arrays hold the same tree objects in the same order?
+     *
+     * @param trees1
+     * @param trees2
+     * @return true, if same trees
+     */
+    private static boolean isSameTrees(TreeData[] trees1, TreeData[] trees2) {
+        if (trees1.length != trees2.length)
+            return false;
+        for (int i = 0; i < trees1.length; i++) {
+            if (trees1[i] != trees2[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * gets the accumulated cluster counts. Call update first
+     *
+     * @return accumulator
+     */
+    public ConsensusAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * number of trees that are indexed
+     *
+     * @return number of trees
+     */
+    public synchronized int size() {
+        return tree2entry.size();
+    }
+
+    /**
+     * the clusters of an indexed tree
+     */
+    private static class Entry {
+        final int modificationCount;
+        final Map<BitSet, Double> clusters;
+
+        Entry(int modificationCount, Map<BitSet, Double> clusters) {
+            this.modificationCount = modificationCount;
+            this.clusters = clusters;
+        }
+    }
+}
@@ -18,17 +18,16 @@
  */
 package dendroscope.consensus;
 
+import dendroscope.util.ParallelExecutor;
 import jloda.phylo.PhyloTree;
 import jloda.util.Basic;
 import jloda.util.CanceledException;
-import jloda.util.ProgressCmdLine;
 import jloda.util.ProgressListener;
 
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * computes the Z-closure of a set of splits
@@ -37,7 +36,6 @@ import java.util.concurrent.SynchronousQueue;
 public class ZClosure {
     final int optionSeed = 666;
     final int optionNumberOfRuns = 10;
-    Random rand = null;
 
     Taxa taxa;
 
@@ -74,7 +72,6 @@ public class ZClosure {
      * @param trees            @return full splits obtained by Z-closure
      */
     public SplitSystem apply(ProgressListener progressListener, PhyloTree[] trees) throws CanceledException {
-        this.rand = new Random(this.optionSeed);
         taxa = new Taxa();
         BitSet[] tree2taxa = new BitSet[trees.length];
         SplitSystem[] tree2splits = new SplitSystem[trees.length];
@@ -87,75 +84,42 @@ public class ZClosure {
         splits.addAll(inputSplits);
 
         if (!inputSplitsAreAllFull) {
-            final SplitSystem finalSplits = splits;
             progressListener.setSubtask("Computing Z-closure");
             progressListener.setMaximum(optionNumberOfRuns);
             progressListener.setProgress(0);
 
-            // parallel implementation!
-            ExecutorService executor = Executors.newCachedThreadPool();
+            // runs are computed by the tasks of a fork-join pool, each into its own split system, and the results
+            // are merged pairwise as the tasks complete:
+            final AtomicBoolean canceled = new AtomicBoolean(false);
+            final AtomicInteger runsDone = new AtomicInteger(0);
+            SplitSystem closure;
+            final ForkJoinTask<SplitSystem> task = ParallelExecutor.getPool().submit(new ClosureRuns(inputSplits, 0, optionNumberOfRuns, canceled, runsDone));
             try {
-                progressListener.setCancelable(false);
-
-                int numberOfThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), this.optionNumberOfRuns));
-                final SynchronousQueue<Integer> queue = new SynchronousQueue<>();
-                final CountDownLatch countDownLatch = new CountDownLatch(this.optionNumberOfRuns);
-                final ProgressCmdLine progress = new ProgressCmdLine();
-
-                for (int i = 1; i <= numberOfThreads; i++) {
-                    executor.execute(new Runnable() {
-                        public void run() {
-                            while (true) {
-                                try {
-                                    int i = queue.take(); // ignore the value
-
-                                    List<Split> splitsInRandomOrder = inputSplits.asList();
-                                    Collections.shuffle(splitsInRandomOrder, rand);
-                                    SplitSystem result = null;
-                                    try {
-                                        result = computeClosure(progress, splitsInRandomOrder);
-                                    } catch (CanceledException e) {
-                                    }
-                                    synchronized (finalSplits) {
-                                        finalSplits.addAll(result);
-                                    }
-                                } catch (InterruptedException e) {
-                                    return;
-                                } finally {
-                                    countDownLatch.countDown();
-                                }
-                            }
-                        }
-                    });
-                }
-
-                for (int i = 1; i <= this.optionNumberOfRuns; i++) {
+                while (true) {
                     try {
-                        queue.put(i);
-                        if (i == 1)
-                            progressListener.setCancelable(true);
-                        progressListener.setProgress(i);
-                    } catch (InterruptedException e) {
-                        Basic.caught(e);
+                        closure = task.get(100, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException ex) {
+                        progressListener.setProgress(runsDone.get());
                     }
                 }
-                try {
-                    countDownLatch.await();
-                } catch (InterruptedException e) {
-                    Basic.caught(e);
-                }
             } catch (CanceledException ex) {
                 System.err.println("CANCELED");
                 progressListener.setUserCancelled(false);
-            } finally {
-                executor.shutdownNow();
+                canceled.set(true);
+                closure = task.join(); // contains the runs completed before cancellation
+            } catch (InterruptedException | ExecutionException ex) {
+                Basic.caught(ex);
+                canceled.set(true);
+                closure = new SplitSystem();
             }
+            splits.addAll(closure);
             progressListener.setProgress(-1);
 
-            System.err.println("After z-closure: " + finalSplits.size());
+            System.err.println("After z-closure: " + splits.size());
             //System.err.println("Partial splits after z-closure: " + splits);
 
-            splits = SplitFilter.applyRemovePartialFilter(progressListener, taxa, finalSplits);
+            splits = SplitFilter.applyRemovePartialFilter(progressListener, taxa, splits);
             System.err.println("After removal of partial splits: " + splits.size());
             //System.err.println("Full splits:\n" + splits.toStringAsBinarySequences(taxa));
         }
@@ -193,115 +157,144 @@ public class ZClosure {
                 splits = SplitFilter.filterByDistortion(progressListener, taxa, tree2taxa, trees, splits, getOptionMaxDistortionScore(), getOptionMinNumberTrees(), true);
                 break;
             case FILTER_MAJORITY:
-                splits = SplitFilter.filterByMajority(progressListener, tree2taxa, tree2splits, splits);
+                splits = SplitFilter.filterByMajority(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits));
                 break;
             case FILTER_STRICT:
-                splits = SplitFilter.filterByStrict(progressListener, tree2taxa, tree2splits, splits);
+                splits = SplitFilter.filterByStrict(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits));
                 break;
             case FILTER_LOOSE:
-                splits = SplitFilter.filterByLoose(progressListener, tree2taxa, tree2splits, splits);
+                splits = SplitFilter.filterByLoose(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits));
                 break;
             case FILTER_PERCENT_THRESHOLD:
-                splits = SplitFilter.filterByPrecentThreshold(progressListener, tree2taxa, tree2splits, splits, getOptionPercentThreshold());
+                splits = SplitFilter.filterByPrecentThreshold(progressListener, splits, new SplitSupport(tree2taxa, tree2splits, splits), getOptionPercentThreshold());
                 break;
         }
         return splits;
     }
 
+    /**
+     * computes a range of Z-closure runs. Each run uses its own random order of the input splits, seeded by
+     * the run number, and the results of the two halves of a range are merged
+     */
+    private class ClosureRuns extends RecursiveTask<SplitSystem> {
+        private final SplitSystem inputSplits;
+        private final int low;
+        private final int high;
+        private final AtomicBoolean canceled;
+        private final AtomicInteger runsDone;
+
+        ClosureRuns(SplitSystem inputSplits, int low, int high, AtomicBoolean canceled, AtomicInteger runsDone) {
+            this.inputSplits = inputSplits;
+            this.low = low;
+            this.high = high;
+            this.canceled = canceled;
+            this.runsDone = runsDone;
+        }
+
+        protected SplitSystem compute() {
+            if (high - low > 1) {
+                final int mid = (low + high) >>> 1;
+                final ClosureRuns left = new ClosureRuns(inputSplits, low, mid, canceled, runsDone);
+                final ClosureRuns right = new ClosureRuns(inputSplits, mid, high, canceled, runsDone);
+                right.fork();
+                final SplitSystem result = left.compute();
+                result.addAll(right.join());
+                return result;
+            } else if (high - low == 1 && !canceled.get()) {
+                final List<Split> splitsInRandomOrder = inputSplits.asList();
+                Collections.shuffle(splitsInRandomOrder, new Random(optionSeed + low));
+                try {
+                    final SplitSystem result = computeClosure(splitsInRandomOrder, canceled);
+                    runsDone.incrementAndGet();
+                    return result;
+                } catch (CanceledException ex) {
+                    return new SplitSystem();
+                }
+            } else
+                return new SplitSystem();
+        }
+    }
+
     /**
      * computes the "in place" Z-closure
      *
-     * @param progressListener the progressListenerument
      * @param inputSplits
+     * @param canceled    is checked once per row of pairs, the computation is aborted when set
      */
-    private SplitSystem computeClosure(ProgressListener progressListener, Collection<Split> inputSplits) throws CanceledException {
-        Set<Integer> seniorSplits = new HashSet<>();
-        Set<Integer> activeSplits = new HashSet<>();
-        Set<Integer> newSplits = new HashSet<>();
+    private static SplitSystem computeClosure(Collection<Split> inputSplits, AtomicBoolean canceled) throws CanceledException {
+        final BitSet seniorSplits = new BitSet();
+        BitSet activeSplits = new BitSet();
+        BitSet newSplits = new BitSet();
 
         // setup "in place" array
-        Split[] splits = new Split[inputSplits.size()];
-        {
-            int pos = 0;
-            for (Split inputSplit : inputSplits) {
-                splits[pos] = inputSplit;
-                seniorSplits.add(pos);
-                progressListener.setProgress(-1);
-                pos++;
-            }
-        }
+        final Split[] splits = inputSplits.toArray(new Split[0]);
+        seniorSplits.set(0, splits.length);
 
         // init:
         {
             for (int pos1 = 0; pos1 < splits.length; pos1++) {
+                if (canceled.get())
+                    throw new CanceledException();
 
                 for (int pos2 = pos1 + 1; pos2 < splits.length; pos2++) {
-                    Split ps1 = splits[pos1];
-                    Split ps2 = splits[pos2];
-                    Split qs1 = new Split();
-                    Split qs2 = new Split();
-                    if (applyZRule(ps1, ps2, qs1, qs2)) {
-                        splits[pos1] = qs1;
-                        splits[pos2] = qs2;
-                        newSplits.add(pos1);
-                        newSplits.add(pos2);
-                    }
-                    progressListener.setProgress(-1);
+                    applyZRule(splits, pos1, pos2, newSplits);
                 }
             }
         }
 
         // main loop:
         {
-            while (newSplits.size() != 0) {
-                seniorSplits.addAll(activeSplits);
+            while (newSplits.cardinality() != 0) {
+                seniorSplits.or(activeSplits);
                 activeSplits = newSplits;
-                newSplits = new HashSet<>();
-
-                for (Integer seniorSplit : seniorSplits) {
-
-                    for (Integer activeSplit : activeSplits) {
-                        Split ps1 = splits[(seniorSplit)];
-                        Split ps2 = splits[(activeSplit)];
-                        Split qs1 = new Split();
-                        Split qs2 = new Split();
-                        if (applyZRule(ps1, ps2, qs1, qs2)) {
-                            splits[(seniorSplit)] = qs1;
-                            splits[(activeSplit)] = qs2;
-                            newSplits.add((seniorSplit));
-                            newSplits.add((activeSplit));
-                        }
-                        progressListener.setProgress(-1);
+                newSplits = new BitSet();
+
+                for (int seniorSplit = seniorSplits.nextSetBit(0); seniorSplit != -1; seniorSplit = seniorSplits.nextSetBit(seniorSplit + 1)) {
+                    if (canceled.get())
+                        throw new CanceledException();
+                    for (int activeSplit = activeSplits.nextSetBit(0); activeSplit != -1; activeSplit = activeSplits.nextSetBit(activeSplit + 1)) {
+                        applyZRule(splits, seniorSplit, activeSplit, newSplits);
                     }
                 }
-                for (Integer pos1 : activeSplits) {
-                    for (Integer pos2 : activeSplits) {
-                        Split ps1 = splits[pos1];
-                        Split ps2 = splits[pos2];
-                        Split qs1 = new Split();
-                        Split qs2 = new Split();
-                        if (applyZRule(ps1, ps2, qs1, qs2)) {
-                            splits[pos1] = qs1;
-                            splits[pos2] = qs2;
-                            newSplits.add(pos1);
-                            newSplits.add(pos2);
-                        }
-                        progressListener.setProgress(-1);
+                for (int pos1 = activeSplits.nextSetBit(0); pos1 != -1; pos1 = activeSplits.nextSetBit(pos1 + 1)) {
+                    if (canceled.get())
+                        throw new CanceledException();
+                    for (int pos2 = activeSplits.nextSetBit(0); pos2 != -1; pos2 = activeSplits.nextSetBit(pos2 + 1)) {
+                        applyZRule(splits, pos1, pos2, newSplits);
                     }
                 }
             }
         }
 
-        SplitSystem result = new SplitSystem();
-        for (Integer pos1 : seniorSplits) {
+        final SplitSystem result = new SplitSystem();
+        for (int pos1 = seniorSplits.nextSetBit(0); pos1 != -1; pos1 = seniorSplits.nextSetBit(pos1 + 1)) {
             result.addSplit(splits[pos1]);
         }
-        for (Integer pos1 : activeSplits) {
+        for (int pos1 = activeSplits.nextSetBit(0); pos1 != -1; pos1 = activeSplits.nextSetBit(pos1 + 1)) {
             result.addSplit(splits[pos1]);
         }
         return result;
     }
 
+    /**
+     * applies the Z rule to two splits of the "in place" array, if applicable, and records their positions
+     *
+     * @param splits
+     * @param pos1
+     * @param pos2
+     * @param newSplits
+     */
+    private static void applyZRule(Split[] splits, int pos1, int pos2, BitSet newSplits) {
+        final Split qs1 = new Split();
+        final Split qs2 = new Split();
+        if (applyZRule(splits[pos1], splits[pos2], qs1, qs2)) {
+            splits[pos1] = qs1;
+            splits[pos2] = qs2;
+            newSplits.set(pos1);
+            newSplits.set(pos2);
+        }
+    }
+
     /**
      * apply the Z rule, if applicable. That is, replaces A1/B1 and A2/B2
      * by  A1/(B1uB2)  and (A1uA2)/B2
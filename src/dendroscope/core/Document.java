@@ -18,6 +18,7 @@
  */
 package dendroscope.core;
 
+import dendroscope.consensus.TreeClusterIndex;
 import dendroscope.util.NexusTrees;
 import jloda.phylo.PhyloTree;
 import jloda.util.Basic;
@@ -38,6 +39,8 @@ public class Document {
     private int current; // index of current tree
     private String title = "Untitled";
     private final Connectors connectors = new Connectors();
+    private final TreeClusterIndex clusterIndex = new TreeClusterIndex();
+    private int modificationCount; // incremented whenever the list of trees changes
 
     private boolean documentIsDirty;    // is any tree dirty?
 
@@ -181,6 +184,7 @@ public class Document {
 
         treesBlock.read(new FileReader(file));
 
+        modificationCount++;
         trees = new TreeData[treesBlock.getNtrees()];
         for (int t = 1; t <= treesBlock.getNtrees(); t++) {
             trees[t - 1] = treesBlock.getTree(t);
@@ -225,6 +229,7 @@ public class Document {
      */
     public int appendTree(String name, PhyloTree newTree, int pos) {
         setDocumentIsDirty(true);
+        modificationCount++;
         if (trees == null || trees.length == 0) {
             trees = new TreeData[1];
             trees[0] = new TreeData(name, newTree);
@@ -255,6 +260,7 @@ public class Document {
      */
     public int appendTreeWithoutCopy(String name, TreeData newTree, int pos) {
         setDocumentIsDirty(true);
+        modificationCount++;
         if (trees == null || trees.length == 0) {
             trees = new TreeData[1];
             trees[0] = newTree;
@@ -294,6 +300,7 @@ public class Document {
      */
     public int appendTrees(TreeData[] newTrees, int pos) {
         setDocumentIsDirty(true);
+        modificationCount++;
         if (trees == null || trees.length == 0) {
             trees = new TreeData[newTrees.length];
             System.arraycopy(newTrees, 0, trees, 0, newTrees.length);
@@ -485,6 +492,7 @@ public class Document {
      * @param newTrees
      */
     public void setTrees(TreeData[] newTrees) {
+        modificationCount++;
         if (newTrees == null) {
             trees = new TreeData[0];
             current = -1;
@@ -495,6 +503,18 @@ public class Document {
         }
     }
 
+    /**
+     * gets the cluster counts of all enabled trees. The index is updated incrementally, so that after adding,
+     * removing, disabling or editing a few trees, only those trees are processed. Modifications are recognized by
+     * the modification counts of the document and its trees
+     *
+     * @return up-to-date cluster index
+     */
+    public TreeClusterIndex getClusterIndex() {
+        clusterIndex.update(trees, modificationCount);
+        return clusterIndex;
+    }
+
     /**
      * gets the inter-tree connectors associated with this document
      *
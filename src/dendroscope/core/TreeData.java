@@ -48,6 +48,8 @@ public class TreeData extends PhyloTree {
 
     private boolean disabled;
 
+    private int modificationCount; // incremented whenever the tree is replaced, re-parsed, enabled or disabled
+
     /**
      * constructor
      */
@@ -92,6 +94,7 @@ public class TreeData extends PhyloTree {
     public void syncViewer2Data(TreeViewer treeViewer, boolean currentViewDirty) {
         if (treeViewer.getPhyloTree().getNumberOfNodes() > 0 && currentViewDirty)
             dirty = true; // once dirty, can't become un-dirty
+        modificationCount++;
 
         Document doc = treeViewer.getDoc();
 
@@ -542,15 +545,35 @@ public class TreeData extends PhyloTree {
         return disabled;
     }
 
+    /**
+     * is tree disabled?
+     *
+     * @return true, if disabled
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+
     /**
      * sets the disabled state
      *
      * @param disabled
      */
     public void setDisabled(boolean disabled) {
+        if (disabled != this.disabled)
+            modificationCount++;
         this.disabled = disabled;
     }
 
+    /**
+     * gets the number of modifications of this tree, used to recognize trees that have changed
+     *
+     * @return modification count
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
 
     /**
      * parse a tree in Newick format, as a rooted tree, if desired.
@@ -561,6 +584,7 @@ public class TreeData extends PhyloTree {
      */
     public void parseBracketNotation(String str, boolean rooted, boolean doClear) throws IOException {
         super.parseBracketNotation(str, rooted, doClear);
+        modificationCount++;
         // clean all single quotes from taxon labels:
         boolean changed = false;
         for (Node v = getFirstNode(); v != null; v = v.getNext()) {
@@ -37,6 +37,7 @@ import dendroscope.hybroscale.view.HybridView;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * @author Benjamin Albrecht, 6.2012
@@ -70,6 +71,7 @@ public class ClusterThread extends Thread {
 	boolean hasNoResult = false, verbose = false;
 
 	private Vector<HybridView> views;
+	private BlockingQueue<ClusterThread> finishedQueue;
 
 	public ClusterThread(HybridTree[] clusterTrees, ReplacementInfo rI, MyThreadPool myPool, Boolean isSubCluster, Computation compValue, MyNetPriorThreadPool netExec, Integer maxK,
 						 Vector<HybridView> views, Vector<String> taxaOrdering, boolean speedUp, CheckConstraints checker, boolean verbose) {
@@ -178,10 +180,14 @@ public class ClusterThread extends Thread {
 
 		} catch (Exception e) {
 			e.printStackTrace();
-		}
+		} finally {
+//			maxForests = null;
+			eS = null;
 
-//		maxForests = null;
-		eS = null;
+			// the scheduler waits for this, also if the computation failed
+			if (finishedQueue != null)
+				finishedQueue.add(this);
+		}
 
 	}
 
@@ -192,7 +198,7 @@ public class ClusterThread extends Thread {
 
 				Vector<Integer> newIndices = new Vector<Integer>();
 				Vector<Integer> isoVector = (Vector<Integer>) isomorphVector.clone();
-				for (int index : e.getIndices()) {
+				for (int index : e.indices()) {
 					int newIndex = index;
 					for (int i : isoVector) {
 						if (i <= newIndex)
@@ -201,16 +207,16 @@ public class ClusterThread extends Thread {
 					newIndices.add(newIndex);
 				}
 
-				e.getIndices().clear();
+				e.clearIndices();
 				e.addIndices(newIndices);
 
 				newIndices = new Vector<Integer>();
-				for (int index : e.getIndices()) {
+				for (int index : e.indices()) {
 					newIndices.add(index);
 					if (isomorphMapping.containsKey(index))
 						newIndices.addAll(isomorphMapping.get(index));
 				}
-				e.getIndices().clear();
+				e.clearIndices();
 				e.addIndices(newIndices);
 
 			}
@@ -270,6 +276,26 @@ public class ClusterThread extends Thread {
 		return edgeNumber;
 	}
 
+	public void setThreadPools(MyThreadPool threadPool, MyNetPriorThreadPool netExec) {
+		this.threadPool = threadPool;
+		this.netExec = netExec;
+	}
+
+	public void setMaxK(Integer maxK) {
+		this.maxK = maxK;
+	}
+
+	public Integer getMaxK() {
+		return maxK;
+	}
+
+	/**
+	 * sets a queue to which this thread adds itself when it has finished
+	 */
+	public void setFinishedQueue(BlockingQueue<ClusterThread> finishedQueue) {
+		this.finishedQueue = finishedQueue;
+	}
+
 	public void setCompValue(Computation compValue) {
 		this.compValue = compValue;
 	}
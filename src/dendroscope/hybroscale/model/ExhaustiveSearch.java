@@ -225,22 +225,18 @@ public class ExhaustiveSearch extends Thread {
 					if (maxK == null || approximation < border) {
 
 						for (Runnable t : threads) {
-							futures.add(threadPool.runTask(t));
 							if (stop || isStopped)
 								break;
-							else
-								sleep(500);
+							futures.add(threadPool.runTask(t));
 						}
 
 						subissionCompl = true;
 
-						if (!stop && !isStopped) {
-							// sleep(2000);
-							if (!isNotified) {
-								synchronized (this) {
-									this.wait();
-								}
-							}
+						// small instances may already be finished, so the flags
+						// are checked while holding the lock
+						synchronized (this) {
+							while (!stop && !isStopped && !isNotified)
+								this.wait();
 						}
 
 					}
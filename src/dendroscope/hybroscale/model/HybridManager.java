@@ -37,7 +37,11 @@ import dendroscope.hybroscale.util.graph.MyPhyloTree;
 import dendroscope.hybroscale.view.HybridView;
 
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class HybridManager extends Thread {
 
@@ -48,6 +52,8 @@ public class HybridManager extends Thread {
 	private MyThreadPool myPool = new MyThreadPool();
 	private MyNetPriorThreadPool myNetPool = new MyNetPriorThreadPool();
 	private Vector<ClusterThread> clusterThreads = new Vector<ClusterThread>();
+	private Vector<MyThreadPool> clusterPools = new Vector<MyThreadPool>();
+	private Vector<MyNetPriorThreadPool> clusterNetPools = new Vector<MyNetPriorThreadPool>();
 	private int hybridNumber = 0, edgeNumber = 0, addTaxaValue = -1, timeConsValue = -1, levelDegree = -1;
 	private int maxNumber = 0;
 	private int numOfNets;
@@ -158,18 +164,8 @@ public class HybridManager extends Thread {
 
 			// Running cluster threads ************************************
 
-			// running each cluster thread in parallel
-			for (ClusterThread cT : clusterThreads) {
-				cT.setCompValue(compValue);
-				cT.start();
-				cT.join();
-				if (maxK != null) {
-					cT.join();
-					maxK = cT.getEdgeNumber() < 0 ? -1 : maxK - cT.getEdgeNumber();
-					if (maxK < 0)
-						break;
-				}
-			}
+			// running the cluster threads in parallel
+			runClusterThreads();
 
 			// waiting for each cluster thread
 			for (ClusterThread cT : clusterThreads)
@@ -331,6 +327,79 @@ public class HybridManager extends Thread {
 
 	}
 
+	/**
+	 * Runs the cluster threads concurrently, hardest first, at most one per
+	 * core. Each running cluster gets its own pools, so that stopping the
+	 * search of one cluster does not cancel the tasks of another one, and the
+	 * cores are divided evenly among the running clusters. If maxK is set, a
+	 * cluster is started with the budget that remains after the clusters that
+	 * have finished so far; once the budget is exceeded, no further clusters
+	 * are started and the running ones are stopped.
+	 */
+	private void runClusterThreads() throws InterruptedException {
+		Vector<ClusterThread> queue = new Vector<ClusterThread>(clusterThreads);
+		Collections.sort(queue, new Comparator<ClusterThread>() {
+			public int compare(ClusterThread cT1, ClusterThread cT2) {
+				return Integer.compare(estimateDifficulty(cT2), estimateDifficulty(cT1));
+			}
+		});
+
+		int concurrent = Math.max(1, Math.min(cores, queue.size()));
+		int netPoolSize = Math.max(1, cores / concurrent);
+		BlockingQueue<ClusterThread> finished = new LinkedBlockingQueue<ClusterThread>();
+		Hashtable<ClusterThread, MyThreadPool> clusterToPool = new Hashtable<ClusterThread, MyThreadPool>();
+		Hashtable<ClusterThread, MyNetPriorThreadPool> clusterToNetPool = new Hashtable<ClusterThread, MyNetPriorThreadPool>();
+
+		int next = 0, running = 0, usedEdges = 0;
+		boolean exceeded = false;
+		while (running > 0 || (next < queue.size() && !exceeded && !stop)) {
+			while (running < concurrent && next < queue.size() && !exceeded && !stop) {
+				ClusterThread cT = queue.get(next++);
+				MyThreadPool pool = new MyThreadPool();
+				pool.setSize(1);
+				MyNetPriorThreadPool netPool = new MyNetPriorThreadPool();
+				netPool.setSize(netPoolSize);
+				clusterPools.add(pool);
+				clusterNetPools.add(netPool);
+				clusterToPool.put(cT, pool);
+				clusterToNetPool.put(cT, netPool);
+				cT.setThreadPools(pool, netPool);
+				cT.setCompValue(compValue);
+				cT.setFinishedQueue(finished);
+				if (maxK != null)
+					cT.setMaxK(maxK - usedEdges);
+				cT.start();
+				running++;
+			}
+
+			ClusterThread cT = finished.take();
+			cT.join();
+			running--;
+			clusterToPool.remove(cT).shutDown();
+			clusterToNetPool.remove(cT).forceShutDown();
+
+			if (maxK != null && !exceeded) {
+				usedEdges += cT.getEdgeNumber() < 0 ? maxK + 1 : cT.getEdgeNumber();
+				if (usedEdges > maxK) {
+					exceeded = true;
+					for (ClusterThread other : clusterToPool.keySet())
+						other.stopThread();
+				}
+			}
+		}
+
+		if (maxK != null)
+			maxK = exceeded ? -1 : maxK - usedEdges;
+	}
+
+	/**
+	 * Estimates the difficulty of a cluster by the size of its trees.
+	 */
+	private int estimateDifficulty(ClusterThread cT) {
+		HybridTree[] clusterTrees = cT.getTrees();
+		return clusterTrees.length == 0 ? 0 : clusterTrees.length * clusterTrees[0].getLeaves().size();
+	}
+
 	private void setTimeConsValue(HybridNetwork n, ReplacementInfo rI) {
 		CheckConstraints clusterChecker = new CheckConstraints(constraints, taxaOrdering, rI);
 		timeConsValue += clusterChecker.estimateTimeConsistencyDegree(new SparseNetwork(n), Integer.MAX_VALUE, false,
@@ -403,6 +472,10 @@ public class HybridManager extends Thread {
 			stop = true;
 			for (ClusterThread cT : clusterThreads)
 				cT.stopThread();
+			for (MyNetPriorThreadPool netPool : clusterNetPools)
+				netPool.forceShutDown();
+			for (MyThreadPool pool : clusterPools)
+				pool.shutDown();
 			myNetPool.forceShutDown();
 			myPool.shutDown();
 			if (timeThread != null)
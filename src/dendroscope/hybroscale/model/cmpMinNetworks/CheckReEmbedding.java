@@ -86,7 +86,7 @@ public class CheckReEmbedding {
 						int index = edgeSet.nextSetBit(0);
 						while (index != -1) {
 							SparseNetEdge retEdge = retEdges.get(index);
-							if (retEdge.getIndices().contains(switchIndex) && retEdge.getIndices().size() == 1
+							if (retEdge.containsIndex(switchIndex) && retEdge.getNumberOfIndices() == 1
 									&& !shrinkedEdges.contains(retEdge))
 								solidEdgeSet.set(index);
 							index = edgeSet.nextSetBit(index + 1);
@@ -120,7 +120,7 @@ public class CheckReEmbedding {
 
 		// for (SparseNetEdge e : n.getEdges()) {
 		// if (e.getTarget().getInDegree() > 1 &&
-		// e.getIndices().contains(curIndex) && e.getIndices().size() == 1) {
+		// e.containsIndex(curIndex) && e.getNumberOfIndices() == 1) {
 		for (int i = 0; i < curIndex; i++)
 			// if (treeMapping.get(curIndex) > 1 && treeMapping.get(i) <
 			// treeMapping.get(curIndex)) {
@@ -142,8 +142,8 @@ public class CheckReEmbedding {
 	// HashSet<Integer> switchIndices = new HashSet<Integer>();
 	//
 	// for (SparseNetEdge e : n.getEdges()) {
-	// if (e.getTarget().getInDegree() > 1 && e.getIndices().contains(curIndex)
-	// && e.getIndices().size() == 1) {
+	// if (e.getTarget().getInDegree() > 1 && e.containsIndex(curIndex)
+	// && e.getNumberOfIndices() == 1) {
 	// for (SparseNetEdge eIn : e.getTarget().inEdges().iterator()) {
 	// if (eIn != e) {
 	// SparseNetNode p = eIn.getSource().inEdges().iterator().get(0).getSource();
@@ -153,7 +153,7 @@ public class CheckReEmbedding {
 	// && e2.getTarget().getOutDegree() == 1) {
 	// SparseNetEdge e1 = e2.getTarget().outEdges().iterator().get(0);
 	// for (int e1Index : e1.getIndices()) {
-	// if (eIn.getIndices().contains(e1Index)
+	// if (eIn.containsIndex(e1Index)
 	// && treeMapping.get(e1Index) < treeMapping.get(curIndex))
 	// switchIndices.add(e1Index);
 	// }
@@ -172,15 +172,15 @@ public class CheckReEmbedding {
 		Vector<SparseNetEdge> shrinkedEdges = new Vector<SparseNetEdge>();
 		Vector<SparseNetEdge> toDelete = new Vector<SparseNetEdge>();
 		for (SparseNetEdge e : n.getEdges()) {
-			if (e.getIndices().contains(switchIndex)) {
-				e.getIndices().remove(switchIndex);
+			if (e.containsIndex(switchIndex)) {
+				e.removeIndex(switchIndex);
 				shrinkedEdges.add(e);
 			}
-			if (e.getIndices().contains(curIndex)) {
-				e.getIndices().remove(curIndex);
-				e.getIndices().add(switchIndex);
+			if (e.containsIndex(curIndex)) {
+				e.removeIndex(curIndex);
+				e.addIndex(switchIndex);
 			}
-			if (e.getTarget().getInDegree() > 1 && e.getIndices().isEmpty()) {
+			if (e.getTarget().getInDegree() > 1 && e.hasNoIndices()) {
 				toDelete.add(e);
 				shrinkedEdges.remove(e);
 			}
@@ -218,7 +218,7 @@ public class CheckReEmbedding {
 		if (v.getInDegree() == 1 && v.getOutDegree() == 1) {
 			SparseNetNode p = v.inEdges().iterator().next().getSource();
 			if (p.getInDegree() == 1 || (!n.isSpecial(v.inEdges().iterator().next()) && !n.isSpecial(v.outEdges().iterator().next()))) {
-				HashSet<Integer> indices = (HashSet<Integer>) v.outEdges().iterator().next().getIndices().clone();
+				HashSet<Integer> indices = v.outEdges().iterator().next().copyIndices();
 				SparseNetNode c = v.outEdges().iterator().next().getTarget();
 				p.removeOutEdge(v.inEdges().iterator().next());
 				v.removeOutEdge(v.outEdges().iterator().next());
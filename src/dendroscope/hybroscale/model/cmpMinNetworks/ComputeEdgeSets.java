@@ -93,7 +93,7 @@ public class ComputeEdgeSets {
 	private void filterSingleSets(HashSet<BitSet> uniqueEdgeSets) {
 		BitSet singleSet = new BitSet(reticulateEdges.size());
 		for(SparseNetEdge e : reticulateEdges){
-			if(e.getIndices().contains(singleIndex) && e.getIndices().size() == 1)
+			if(e.containsIndex(singleIndex) && e.getNumberOfIndices() == 1)
 				singleSet.set(reticulateEdges.indexOf(e));
 		}
 
@@ -287,8 +287,8 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			for (SparseNetwork modNet : modNetworks) {
 
 				for (SparseNetEdge e : modNet.getEdges()) {
-					if (modNet.isSpecial(e) && e.getEdgeIndex().contains(1)) {
-						if (e.getTarget().outEdges().iterator().next().getEdgeIndex().contains(1))
+					if (modNet.isSpecial(e) && e.containsEdgeIndex(1)) {
+						if (e.getTarget().outEdges().iterator().next().containsEdgeIndex(1))
 							e.addIndex(insertIndex);
 					}
 				}
@@ -424,7 +424,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 				e.addIndex(index);
 			} else if (v.getInDegree() > 1) {
 				for (SparseNetEdge eIn : v.inEdges()) {
-					if (eIn.getIndices().contains(index)) {
+					if (eIn.containsIndex(index)) {
 						e = eIn;
 						break;
 					}
@@ -484,7 +484,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 
 						int counter0 = 0;
 						for (SparseNetEdge e2 : sourceNode.outEdges()) {
-							if (e2.getEdgeIndex().contains(0)) {
+							if (e2.containsEdgeIndex(0)) {
 								counter0++;
 							}
 						}
@@ -508,7 +508,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 							Vector<BitSet> childNetSets = new Vector<BitSet>();
 							childNetSets.add((BitSet) b.clone());
 							for (SparseNetEdge e : sCopy.outEdges()) {
-								if (e.getEdgeIndex().contains(1)) {
+								if (e.containsEdgeIndex(1)) {
 									BitSet bC = new BitSet(taxaOrdering.size());
 									getClusterByIndex(e.getTarget(), nCopy, bC, 1);
 									b.or(bC);
@@ -578,13 +578,12 @@ public class DFSComputeUpdatedNetworks extends Thread {
 									}
 
 									SparseNetEdge eXCopy = sCopy.inEdges().iterator().next();
-									HashSet<Integer> eIndices = (HashSet<Integer>) eXCopy.getEdgeIndex().clone();
 									SparseNetNode vCopy = eXCopy.getSource();
 									vCopy.removeOutEdge(eXCopy);
 									SparseNetNode xCopy = new SparseNetNode(vCopy, nCopy, sCopy.getLabel());
 									xCopy.addChild(sCopy);
-									xCopy.inEdges().iterator().next().setEdgeIndex(eIndices);
-									xCopy.outEdges().iterator().next().setEdgeIndex(eIndices);
+									xCopy.inEdges().iterator().next().shareEdgeIndex(eXCopy);
+									xCopy.outEdges().iterator().next().shareEdgeIndex(eXCopy);
 									for (SparseNetEdge e : shiftEdges) {
 										SparseNetNode t = e.getTarget();
 										e.getSource().removeOutEdge(e);
@@ -603,7 +602,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 									// System.out.println(nCopy.getPhyloTree()+";");
 									// for(SparseNetEdge e :
 									// nCopy.getEdges()){
-									// if(e.getEdgeIndex().contains(1))
+									// if(e.containsEdgeIndex(1))
 									// System.out.println(e.getSource().getLabel()+"->"+e.getTarget().getLabel());
 									// }
 
@@ -752,11 +751,10 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					// System.out.println(n.getPhyloTree() + ";");
 
 					for (SparseNetEdge eDrag : dragEdges) {
-						HashSet<Integer> eDragIndices = (HashSet<Integer>) eDrag.getEdgeIndex().clone();
 						SparseNetNode t = eDrag.getTarget();
 						v.removeOutEdge(eDrag);
 						SparseNetEdge newEdge = vP.addChild(t);
-						newEdge.setEdgeIndex(eDragIndices);
+						newEdge.shareEdgeIndex(eDrag);
 					}
 					vP.removeOutEdge(v.inEdges().iterator().next());
 
@@ -793,10 +791,11 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		if (eContract != null) {
 
 			SparseNetNode s = eContract.getSource();
-			HashMap<SparseNetNode, HashSet<Integer>> nodeToIndices = new HashMap<SparseNetNode, HashSet<Integer>>();
+			// the removed edges are not modified, so their indices need not be copied
+			HashMap<SparseNetNode, Set<Integer>> nodeToIndices = new HashMap<SparseNetNode, Set<Integer>>();
 			Vector<SparseNetEdge> toDelete = new Vector<SparseNetEdge>();
 			for (SparseNetEdge e : eContract.getTarget().outEdges()) {
-				nodeToIndices.put(e.getTarget(), (HashSet<Integer>) e.getIndices().clone());
+				nodeToIndices.put(e.getTarget(), e.indices());
 				toDelete.add(e);
 			}
 			s.removeOutEdge(eContract);
@@ -804,7 +803,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 				e.getSource().removeOutEdge(e);
 			for (SparseNetNode t : nodeToIndices.keySet()) {
 				SparseNetEdge newEdge = s.addChild(t);
-				newEdge.addIndices((HashSet<Integer>) nodeToIndices.get(t).clone());
+				newEdge.addIndices(nodeToIndices.get(t));
 			}
 
 			modEdgesCurrTrees(n);
@@ -843,7 +842,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			BitSet cluster = new BitSet(taxaOrdering.size());
 			int counterA = 0;
 			for (SparseNetEdge eOut : p.outEdges()) {
-				if ((!n.isSpecial(eOut) || eOut.getIndices().contains(index)) && !eOut.getTarget().equals(v)) {
+				if ((!n.isSpecial(eOut) || eOut.containsIndex(index)) && !eOut.getTarget().equals(v)) {
 					BitSet b = new BitSet(taxaOrdering.size());
 					getClusterByPrevTree(eOut.getTarget(), v.getOwner(), b, index, false);
 					if (!b.isEmpty()) {
@@ -867,7 +866,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			getClusterByPrevTree(v, p.getOwner(), cluster, index, false);
 			int counterB = 0;
 			for (SparseNetEdge eOut : v.outEdges()) {
-				if (!n.isSpecial(eOut) || eOut.getIndices().contains(index)) {
+				if (!n.isSpecial(eOut) || eOut.containsIndex(index)) {
 					BitSet b = new BitSet(taxaOrdering.size());
 					getClusterByPrevTree(eOut.getTarget(), v.getOwner(), b, index, false);
 					if (!b.isEmpty()) {
@@ -1058,11 +1057,10 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					// System.out.println(n.getPhyloTree() + ";");
 
 					for (SparseNetEdge eDrag : dragEdges) {
-						HashSet<Integer> eDragIndices = (HashSet<Integer>) eDrag.getEdgeIndex().clone();
 						SparseNetNode t1 = eDrag.getTarget();
 						v.removeOutEdge(eDrag);
 						SparseNetEdge newEdge = p.addChild(t1);
-						newEdge.setEdgeIndex(eDragIndices);
+						newEdge.shareEdgeIndex(eDrag);
 					}
 					removeOneNode(v, n);
 					if (v.getOutDegree() == 0 && v.getInDegree() != 0) {
@@ -1083,7 +1081,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 	}
 
 	private void collectDraggingNodes1(SparseNetEdge e, Vector<SparseNetNode> draggingNodes) {
-		if (e.getEdgeIndex().contains(1) && !e.getEdgeIndex().contains(0)) {
+		if (e.containsEdgeIndex(1) && !e.containsEdgeIndex(0)) {
 			if (e.getTarget().getOutDegree() > 1) {
 				draggingNodes.add(e.getTarget());
 				for (SparseNetEdge eOut : e.getTarget().outEdges())
@@ -1096,7 +1094,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		Vector<BitSet> childNetSets = new Vector<BitSet>();
 		BitSet cluster = new BitSet(taxaOrdering.size());
 		for (SparseNetEdge e : v.outEdges()) {
-			if (e.getEdgeIndex().contains(1)) {
+			if (e.containsEdgeIndex(1)) {
 				BitSet b = new BitSet(taxaOrdering.size());
 				getClusterByIndex(e.getTarget(), v.getOwner(), b, 1);
 				if (!b.isEmpty())
@@ -1122,7 +1120,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		Vector<BitSet> childNetSets = new Vector<BitSet>();
 		BitSet cluster = new BitSet(taxaOrdering.size());
 		for (SparseNetEdge e : v.outEdges()) {
-			if (e.getEdgeIndex().contains(0)) {
+			if (e.containsEdgeIndex(0)) {
 				BitSet b = new BitSet(taxaOrdering.size());
 				getClusterByIndex(e.getTarget(), v.getOwner(), b, 0);
 				childNetSets.add(b);
@@ -1214,7 +1212,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 	private boolean isDraggedDownNode(SparseNetNode v, int treeIndex) {
 		BitSet netCluster = new BitSet(taxaOrdering.size());
 		for (SparseNetEdge e : v.outEdges()) {
-			if (e.getEdgeIndex().contains(treeIndex)) {
+			if (e.containsEdgeIndex(treeIndex)) {
 				BitSet b = new BitSet(taxaOrdering.size());
 				getClusterByIndex(e.getTarget(), v.getOwner(), b, treeIndex);
 				netCluster.or(b);
@@ -1301,9 +1299,9 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					// getClusterByIndex(e.getTarget(), n, bE1, 1, null, false);
 
 					// if(!bE1.isEmpty()){
-					if (e.getEdgeIndex().contains(1)) {
+					if (e.containsEdgeIndex(1)) {
 						for (SparseNetEdge eOut : vT.outEdges()) {
-							if (eOut.getEdgeIndex().contains(1))
+							if (eOut.containsEdgeIndex(1))
 								e1 = e;
 						}
 						if (vT.getOutDegree() == 0)
@@ -1317,7 +1315,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 						}
 					}
 					// if(!bE0.isEmpty()){
-					if (e.getEdgeIndex().contains(0)) {
+					if (e.containsEdgeIndex(0)) {
 						e0 = e;
 					}
 				}
@@ -1484,7 +1482,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					// computing target node v1
 					if (v1.getLabel().equals("rho") || v1.equals(nCopy.getRoot()))
 						v1 = v;
-					if (v1.getInDegree() == 1 && v1.inEdges().iterator().next().getEdgeIndex().isEmpty()) {
+					if (v1.getInDegree() == 1 && v1.inEdges().iterator().next().hasNoEdgeIndex()) {
 						retNode = v1;
 					} else {
 						retNode = insertTargetNode(nCopy, v1, indices);
@@ -1524,7 +1522,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					// remove empty in-edges
 					Vector<SparseNetEdge> emptyEdges = new Vector<SparseNetEdge>();
 					for (SparseNetEdge e : retNode.inEdges()) {
-						if (e.getEdgeIndex().isEmpty())
+						if (e.hasNoEdgeIndex())
 							emptyEdges.add(e);
 					}
 					for (SparseNetEdge e : emptyEdges) {
@@ -1551,7 +1549,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					if (justInserted.isEmpty()) {
 						// assessing ordering for incoming edges
 						for (SparseNetEdge e : retNode.inEdges()) {
-							if (e.getEdgeIndex().contains(firstIndex))
+							if (e.containsEdgeIndex(firstIndex))
 								e.getSource().setOrder(retNode.getInDegree() - 1);
 							else
 								e.getSource().setOrder(0);
@@ -1571,7 +1569,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 						for (SparseNetwork nDrag : draggedNetworks.keySet()) {
 							SparseNetNode retDragNode = draggedNetworks.get(nDrag);
 							for (SparseNetEdge e : retDragNode.inEdges()) {
-								if (e.getEdgeIndex().contains(firstIndex))
+								if (e.containsEdgeIndex(firstIndex))
 									e.getSource().setOrder(retDragNode.getInDegree() - 1);
 								else
 									e.getSource().setOrder(0);
@@ -1666,7 +1664,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 							 ConcurrentHashMap<SparseNetwork, SparseNetNode> netToRetNode) {
 		SparseNetEdge eRet = null;
 		for (SparseNetEdge e : retNode.inEdges()) {
-			if (e.getEdgeIndex().contains(1)) {
+			if (e.containsEdgeIndex(1)) {
 				eRet = e;
 				break;
 			}
@@ -1720,7 +1718,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 				// getClusterByIndex(e.getTarget(), nCopy, b1, 1);
 				// if (!b0.isEmpty() && b1.isEmpty())
 				// shiftEdges.add(e);
-				if (e.getEdgeIndex().contains(0) && !e.getEdgeIndex().contains(1)) {
+				if (e.containsEdgeIndex(0) && !e.containsEdgeIndex(1)) {
 					// BitSet b0 = new BitSet(taxaOrdering.size());
 					// getClusterByIndex(e.getTarget(), n, b0, 1);
 					// boolean uniqueTaxa = true;
@@ -1738,8 +1736,8 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					if (b0.isEmpty())
 						uniqueOneEdge = true;
 				}
-				// else if (e.getEdgeIndex().contains(1) &&
-				// !e.getEdgeIndex().contains(0)
+				// else if (e.containsEdgeIndex(1) &&
+				// !e.containsEdgeIndex(0)
 				// && !(e.getTarget().getInDegree() == 1 &&
 				// e.getTarget().getOutDegree() == 1))
 				// uniqueOneEdge = true;
@@ -1791,7 +1789,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 							  ConcurrentHashMap<SparseNetwork, SparseNetNode> draggedSwitchedNetworks, boolean recCall, boolean debug) {
 		SparseNetEdge eRet = null;
 		for (SparseNetEdge e : retNode.inEdges()) {
-			if (e.getEdgeIndex().contains(1)) {
+			if (e.containsEdgeIndex(1)) {
 				eRet = e;
 				break;
 			}
@@ -1834,7 +1832,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					for (SparseNetEdge e : s.outEdges()) {
 						BitSet bCheck = new BitSet(taxaOrdering.size());
 						getClusterByIndex(e.getTarget(), n, bCheck, 0);
-						if (e.getEdgeIndex().contains(0) || !bCheck.isEmpty())
+						if (e.containsEdgeIndex(0) || !bCheck.isEmpty())
 							i++;
 					}
 
@@ -1855,12 +1853,12 @@ public class DFSComputeUpdatedNetworks extends Thread {
 						SparseNetNode tCopy = eRetCopy.getTarget();
 						SparseNetNode sCopy = eRetCopy.getSource();
 						SparseNetNode vCopy = eRetCopy.getSource().inEdges().iterator().next().getSource();
-						HashSet<Integer> eIndices = (HashSet<Integer>) sCopy.inEdges().iterator().next().getEdgeIndex().clone();
-						vCopy.removeOutEdge(sCopy.inEdges().iterator().next());
+						SparseNetEdge eSCopy = sCopy.inEdges().iterator().next();
+						vCopy.removeOutEdge(eSCopy);
 						SparseNetNode xCopy = new SparseNetNode(vCopy, nCopy, sCopy.getLabel());
 						xCopy.addChild(sCopy);
-						xCopy.inEdges().iterator().next().setEdgeIndex(eIndices);
-						xCopy.outEdges().iterator().next().setEdgeIndex(eIndices);
+						xCopy.inEdges().iterator().next().shareEdgeIndex(eSCopy);
+						xCopy.outEdges().iterator().next().shareEdgeIndex(eSCopy);
 						sCopy.removeOutEdge(eRetCopy);
 						xCopy.addChild(tCopy);
 						switchT1EdgesRec(nCopy, vCopy, xCopy, null, xCopy.getOutEdges().get(0).getTarget(),
@@ -1912,11 +1910,11 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					getClusterByIndex(e.getTarget(), n, b1, 1);
 					BitSet b0 = new BitSet(taxaOrdering.size());
 					getClusterByIndex(e.getTarget(), n, b0, 0);
-					if (!e.getEdgeIndex().contains(1) || b1.isEmpty()) {
+					if (!e.containsEdgeIndex(1) || b1.isEmpty()) {
 						if (!e.getTarget().equals(s))
 							// addSwitchingEdges(e, switchingEdges);
 							switchingEdges.add(e);
-					} else if (info == "1.1" && isDraggedUpNode1(s) && e.getEdgeIndex().contains(0)) {
+					} else if (info == "1.1" && isDraggedUpNode1(s) && e.containsEdgeIndex(0)) {
 						if (!e.getTarget().equals(s))
 							switchingEdges.add(e);
 					}
@@ -1978,11 +1976,10 @@ public class DFSComputeUpdatedNetworks extends Thread {
 					SparseNetNode retNodeCopy = nodePairs.get(2)[1];
 					SparseNetEdge eCopy = edgePairs.get(0)[1];
 					SparseNetNode tCopy = eCopy.getTarget();
-					HashSet<Integer> edgeIndices = (HashSet<Integer>) eCopy.getEdgeIndex().clone();
 					SparseNetNode eSourceNode = eCopy.getSource();
 					eCopy.getSource().removeOutEdge(eCopy);
 					SparseNetEdge eNew = sCopy.addChild(tCopy);
-					eNew.setEdgeIndex((HashSet<Integer>) edgeIndices.clone());
+					eNew.shareEdgeIndex(eCopy);
 
 					boolean recCall = true;
 					if (vCopy.getOutDegree() == 1) {
@@ -2034,7 +2031,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		if (retNode.getInDegree() == 2 && c.getOutDegree() > 1) {
 			SparseNetEdge eT1 = null;
 			for (SparseNetEdge e : retNode.getInEdges()) {
-				if (e.getEdgeIndex().contains(0)) {
+				if (e.containsEdgeIndex(0)) {
 					eT1 = e;
 					break;
 				}
@@ -2088,7 +2085,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 				vR = retNode;
 				SparseNetEdge eR1 = vR.getInEdges().get(eIndex);
 
-				HashSet<Integer> eR1Indices = (HashSet<Integer>) eR1.getEdgeIndex().clone();
+				Set<Integer> eR1Indices = eR1.edgeIndex();
 				SparseNetEdge eR2 = eR1.getSource().getInEdges().get(0);
 				SparseNetNode p = eR2.getSource();
 
@@ -2111,7 +2108,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 							// .getOutEdges().get(1);
 
 							if ((eSib2.getTarget().getInDegree() == 1 && eSib2.getTarget().getOutDegree() == 1)
-									|| (!eSib2.getEdgeIndex().isEmpty() && !eSib2.getEdgeIndex().contains(firstIndex))) {
+									|| (!eSib2.hasNoEdgeIndex() && !eSib2.containsEdgeIndex(firstIndex))) {
 
 								// System.out.println(">" + n.getPhyloTree() +
 								// ";");
@@ -2130,7 +2127,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 									vSib = eSib2.getTarget();
 								}
 
-								HashSet<Integer> eSib1Indices = (HashSet<Integer>) eSib2.getEdgeIndex().clone();
+								Set<Integer> eSib1Indices = eSib2.edgeIndex();
 
 								if (vSib != vR
 										&& isContractNodeCurrTrees(vR, eSib2.getTarget(), insertIndex, true, false,
@@ -2262,19 +2259,12 @@ public class DFSComputeUpdatedNetworks extends Thread {
 											// *********************************************
 
 											if (txIndex == firstIndex)
-												currIndices = (HashSet<Integer>) eSib1.getIndices().clone();
+												currIndices = eSib1.copyIndices();
 
 											if (eSib1Indices.size() > 1 || eSib2Copy == null) {
-												HashSet<Integer> eSib1IndicesCopy = (HashSet<Integer>) eSib1Copy
-														.getEdgeIndex().clone();
-												eSib1IndicesCopy.remove(txIndex);
-												eSib1Copy.setEdgeIndex(eSib1IndicesCopy);
-												if (eSib2Copy != null) {
-													HashSet<Integer> eSib2IndicesCopy = (HashSet<Integer>) eSib2Copy
-															.getEdgeIndex().clone();
-													eSib2IndicesCopy.remove(txIndex);
-													eSib2Copy.setEdgeIndex(eSib2IndicesCopy);
-												}
+												eSib1Copy.removeEdgeIndex(txIndex);
+												if (eSib2Copy != null)
+													eSib2Copy.removeEdgeIndex(txIndex);
 											} else {
 												eSib1Copy.getSource().removeOutEdge(eSib1Copy);
 												if (eSib2Copy != null) {
@@ -2417,11 +2407,11 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			SparseNetNode p = v.getInEdges().get(0).getSource();
 			if (p.getInDegree() == 1 || (!n.isSpecial(v.getInEdges().get(0)) && !n.isSpecial(v.getOutEdges().get(0)))) {
 				SparseNetNode c = v.getOutEdges().get(0).getTarget();
-				HashSet<Integer> newIndices = (HashSet<Integer>) v.getInEdges().get(0).getEdgeIndex().clone();
-				p.removeOutEdge(v.getInEdges().get(0));
+				SparseNetEdge eIn = v.getInEdges().get(0);
+				p.removeOutEdge(eIn);
 				v.removeOutEdge(v.getOutEdges().get(0));
 				SparseNetEdge e = p.addChild(c);
-				e.setEdgeIndex(newIndices);
+				e.shareEdgeIndex(eIn);
 				return true;
 			}
 		}
@@ -2457,9 +2447,9 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		if (v.getInDegree() != 0) {
 			SparseNetEdge eX = null, e1 = null;
 			for (SparseNetEdge e : v.getInEdges()) {
-				if (e.getEdgeIndex().contains(txIndex))
+				if (e.containsEdgeIndex(txIndex))
 					eX = e;
-				if (e.getEdgeIndex().contains(firstIndex))
+				if (e.containsEdgeIndex(firstIndex))
 					e1 = e;
 			}
 			if (eX != null)
@@ -2598,38 +2588,33 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			Iterator<SparseNetEdge> it = vR.getInEdges().iterator();
 			while (it.hasNext()) {
 				eR = it.next();
-				if (eR.getEdgeIndex().contains(txIndices.firstElement()))
+				if (eR.containsEdgeIndex(txIndices.firstElement()))
 					break;
 			}
 		}
 
 		SparseNetNode sR = eR.getSource();
-		HashSet<Integer> eRIndices = (HashSet<Integer>) eR.getEdgeIndex().clone();
-
 		sR.removeOutEdge(eR);
 
 		SparseNetNode sR2 = new SparseNetNode(null, n, vR.getLabel());
 		SparseNetEdge newEdge = sR.addChild(sR2);
-		newEdge.setEdgeIndex(eRIndices);
+		newEdge.shareEdgeIndex(eR);
 
 		newEdge = sR2.addChild(retNode);
-		newEdge.setEdgeIndex(eRIndices);
-
-		HashSet<Integer> newIndices = (HashSet<Integer>) eRIndices.clone();
-		for (int txIndex : txIndices) {
-			if (!newIndices.contains(txIndex))
-				newIndices.add(txIndex);
-		}
+		newEdge.shareEdgeIndex(eR);
 
 		if (!isSpecial) {
 			newEdge = retNode.addChild(vR);
-			newEdge.setEdgeIndex(newIndices);
+			newEdge.shareEdgeIndex(eR);
+			newEdge.addEdgeIndices(txIndices);
 		} else {
 			SparseNetNode x = new SparseNetNode(null, n, vR.getLabel());
 			newEdge = retNode.addChild(x);
-			newEdge.setEdgeIndex((HashSet<Integer>) newIndices.clone());
+			newEdge.shareEdgeIndex(eR);
+			newEdge.addEdgeIndices(txIndices);
+			SparseNetEdge eX = newEdge;
 			newEdge = x.addChild(vR);
-			newEdge.setEdgeIndex((HashSet<Integer>) newIndices.clone());
+			newEdge.shareEdgeIndex(eX);
 		}
 
 		// System.out.println(n.getPhyloTree() + ";");
@@ -2659,7 +2644,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		Iterator<SparseNetEdge> it = retNode.getInEdges().iterator();
 		while (it.hasNext()) {
 			SparseNetEdge e = it.next();
-			HashSet<Integer> eIndices = (HashSet<Integer>) e.getEdgeIndex().clone();
+			HashSet<Integer> eIndices = e.copyEdgeIndex();
 			for (int index : txIndices)
 				eIndices.remove(index);
 			e.setEdgeIndex((HashSet<Integer>) eIndices.clone());
@@ -2669,11 +2654,11 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			while (b1.isEmpty()) {
 				SparseNetEdge e1 = null;
 				for (SparseNetEdge eIn : e.getSource().inEdges()) {
-					if (eIn.getEdgeIndex().contains(1))
+					if (eIn.containsEdgeIndex(1))
 						e1 = eIn;
 				}
 				if (e1 != null) {
-					HashSet<Integer> e1Indices = (HashSet<Integer>) e1.getEdgeIndex().clone();
+					HashSet<Integer> e1Indices = e1.copyEdgeIndex();
 					for (int index : txIndices)
 						e1Indices.remove(index);
 					e1.setEdgeIndex((HashSet<Integer>) e1Indices.clone());
@@ -2697,12 +2682,12 @@ public class DFSComputeUpdatedNetworks extends Thread {
 				it = vX.getInEdges().iterator();
 				while (it.hasNext()) {
 					eX = it.next();
-					if (eX.getEdgeIndex().contains(txIndices.firstElement()))
+					if (eX.containsEdgeIndex(txIndices.firstElement()))
 						break;
 				}
 			}
 
-			HashSet<Integer> eXIndices = (HashSet<Integer>) eX.getEdgeIndex().clone();
+			HashSet<Integer> eXIndices = eX.copyEdgeIndex();
 
 			SparseNetNode sX = eX.getSource();
 			sX.removeOutEdge(eX);
@@ -2741,12 +2726,12 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		e.setEdgeIndex((HashSet<Integer>) xIndices.clone());
 
 		if (txIndices.get(0).equals(firstIndex))
-			e.addIndices((HashSet<Integer>) currIndices.clone());
+			e.addIndices(currIndices);
 		else
 			e.addIndex(insertIndex);
 		for (SparseNetEdge retEdge : e.getTarget().getInEdges()) {
-			if (retEdge.getIndices().isEmpty())
-				retEdge.addIndices((HashSet<Integer>) lastIndices.clone());
+			if (retEdge.hasNoIndices())
+				retEdge.addIndices(lastIndices);
 		}
 
 		// System.out.println(n.getPhyloTree() + ";");
@@ -2770,7 +2755,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		int inDegree = 0;
 		Iterator<SparseNetEdge> itIn = v.getInEdges().iterator();
 		while (itIn.hasNext()) {
-			if (itIn.next().getEdgeIndex().contains(treeIndex))
+			if (itIn.next().containsEdgeIndex(treeIndex))
 				inDegree++;
 		}
 		int outDegree = 0;
@@ -2779,7 +2764,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			BitSet bChild = new BitSet(taxaOrdering.size());
 			SparseNetEdge eOut = itOut.next();
 			getClusterByIndex(eOut.getTarget(), n, bChild, treeIndex);
-			if (eOut.getEdgeIndex().contains(treeIndex) && !bChild.isEmpty())
+			if (eOut.containsEdgeIndex(treeIndex) && !bChild.isEmpty())
 				outDegree++;
 		}
 		if (inDegree == 1 && outDegree == 1)
@@ -2844,10 +2829,9 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			}
 			if (n.isSpecial(e)) {
 				nodeToCopy.put(c, cCopy);
-				eCopy.addIndices((HashSet<Integer>) e.getIndices().clone());
+				eCopy.shareIndices(e);
 			}
-			HashSet<Integer> treeIndices = (HashSet<Integer>) e.getEdgeIndex().clone();
-			eCopy.setEdgeIndex(treeIndices);
+			eCopy.shareEdgeIndex(e);
 			if (!visited.contains(c)) {
 				visited.add(c);
 				copyNetworkRec(cCopy, c, nCopy, n, visited, nodeToCopy, nodePairs, edgePairs);
@@ -2883,9 +2867,9 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			SparseNetEdge e1 = null, ex = null;
 			while (it.hasNext()) {
 				SparseNetEdge e = it.next();
-				if (e.getEdgeIndex().contains(t1Index))
+				if (e.containsEdgeIndex(t1Index))
 					e1 = e;
-				if (e.getEdgeIndex().contains(txIndex))
+				if (e.containsEdgeIndex(txIndex))
 					ex = e;
 			}
 			if (ex == null && e1 == null && v.getInDegree() == 1)
@@ -2894,7 +2878,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			if (ex != null)
 				p = ex.getSource();
 			else {
-				HashSet<Integer> indices = (HashSet<Integer>) e1.getEdgeIndex().clone();
+				HashSet<Integer> indices = e1.copyEdgeIndex();
 				// edgeToIndices.remove(e1);
 				indices.add(txIndex);
 				e1.setEdgeIndex(indices);
@@ -2911,7 +2895,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		BitSet cluster = new BitSet(taxaOrdering.size());
 		if (v.getOutDegree() != 0) {
 			for (SparseNetEdge e : v.getOutEdges()) {
-				if (e.getEdgeIndex().contains(treeIndex)) {
+				if (e.containsEdgeIndex(treeIndex)) {
 					SparseNetNode child = e.getTarget();
 					HashSet<String> cTaxa = updateClusters(child, treeIndex, t1Index, n, insertedSet);
 					vTaxa.addAll(cTaxa);
@@ -2938,7 +2922,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		boolean isReachable = false;
 		Iterator<SparseNetEdge> it = v.getInEdges().iterator();
 		while (it.hasNext() && !isReachable) {
-			if (it.next().getEdgeIndex().contains(treeIndex))
+			if (it.next().containsEdgeIndex(treeIndex))
 				isReachable = true;
 		}
 		if (isReachable
@@ -2969,7 +2953,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 		if (v.getOutDegree() > 2) {
 			globalConstraintCheck = true;
 			for (SparseNetEdge e1 : v.getOutEdges()) {
-				if (e1.getEdgeIndex().contains(1)) {
+				if (e1.containsEdgeIndex(1)) {
 					SparseNetNode h = e1.getTarget();
 					BitSet b = new BitSet(taxaOrdering.size());
 					getClusterByIndex(h, n, b, 1);
@@ -2987,7 +2971,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			for (SparseNetEdge e1 : v.getOutEdges()) {
 
 				SparseNetNode h = e1.getTarget();
-				if (!n.isSpecial(e1) && !e1.getEdgeIndex().contains(treeIndex)) {
+				if (!n.isSpecial(e1) && !e1.containsEdgeIndex(treeIndex)) {
 
 					boolean leafCheckOne = true;
 					if (h.getOutDegree() == 0) {
@@ -3003,7 +2987,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 						if (constraintCheck) {
 							boolean isHangingNode = true;
 							for (SparseNetEdge e2 : h.outEdges()) {
-								if (e2.getEdgeIndex().contains(treeIndex)) {
+								if (e2.containsEdgeIndex(treeIndex)) {
 									isHangingNode = false;
 									break;
 								}
@@ -3059,7 +3043,7 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			Iterator<SparseNetEdge> it = v.getOutEdges().iterator();
 			while (it.hasNext()) {
 				SparseNetEdge e = it.next();
-				if (e.getEdgeIndex().contains(txIndex))
+				if (e.containsEdgeIndex(txIndex))
 					getClusterByIndex(e.getTarget(), n, b, txIndex);
 			}
 		}
@@ -3072,11 +3056,11 @@ public class DFSComputeUpdatedNetworks extends Thread {
 			Iterator<SparseNetEdge> it = v.getOutEdges().iterator();
 			while (it.hasNext()) {
 				SparseNetEdge e = it.next();
-				if (e.getIndices().contains(index) || e.getTarget().getInDegree() <= 1)
+				if (e.containsIndex(index) || e.getTarget().getInDegree() <= 1)
 					getClusterByPrevTree(e.getTarget(), n, b, index, debug);
 				else if (debug)
 					System.out.println(e.getSource().getLabel() + " -> " + e.getTarget().getLabel() + " "
-							+ e.getIndices().size());
+							+ e.getNumberOfIndices());
 			}
 		}
 	}
@@ -21,6 +21,7 @@ package dendroscope.hybroscale.model.cmpMinNetworks;
 
 import dendroscope.hybroscale.model.HybridManager.Computation;
 import dendroscope.hybroscale.model.cmpAllMAAFs.RefinedFastApproxHNumber;
+import dendroscope.hybroscale.model.parallelization.CompletionCounter;
 import dendroscope.hybroscale.model.parallelization.MyNetPriorThreadPool;
 import dendroscope.hybroscale.model.treeObjects.*;
 import dendroscope.hybroscale.model.util.CheckConstraints;
@@ -72,7 +73,7 @@ public class DFSManager {
 		this.checker = checker;
 		this.verbose = verbose;
 
-		netMem = new NetworkMemory(taxaOrdering);
+		netMem = new NetworkMemory();
 		checkTime = checker == null ? false : checker.doCheckTime();
 		checkAddTaxa = checker == null ? false : checker.doCheckAddTaxa();
 		checkLevel = checker == null ? false : checker.doCheckLevel();
@@ -95,6 +96,13 @@ public class DFSManager {
 
 		if (!isStopped) {
 
+			// the search ends when its last task is finished
+			CompletionCounter searchTasks = new CompletionCounter(new Runnable() {
+				public void run() {
+					stopManager();
+				}
+			});
+
 			for (SparseTree[] sparseTrees : cmpAllTreeOrderings()) {
 
 				HybridTree[] hybridTrees = new HybridTree[trees.length];
@@ -107,15 +115,13 @@ public class DFSManager {
 						new BitSet(), null, sparseTrees, hybridTrees, 1, taxaOrdering, 0, this, compValue,
 						orderingToTreeIndices.get(sparseTrees), heuristicMode, myThreadPool, speedUp, checker,
 						netMem);
-				myThreadPool.submit(thread);
+				myThreadPool.submit(thread, searchTasks);
 
 				if (speedUp)
 					break;
 
 			}
-
-			Thread stoppingThread = getStoppingThread();
-			stoppingThread.run();
+			searchTasks.release();
 
 			try {
 				countDownLatch.await();
@@ -203,7 +209,7 @@ public class DFSManager {
 
 	}
 
-	public void stopManager() {
+	public synchronized void stopManager() {
 		if (!isStopped) {
 			isStopped = true;
 			myThreadPool.stopCurrentExecution();
@@ -212,25 +218,6 @@ public class DFSManager {
 		}
 	}
 
-	public Thread getStoppingThread() {
-		Thread t = new Thread(new Thread() {
-			public void run() {
-				while (!isStopped) {
-					// System.out.println("Stopping: "+k+" "+myThreadPool.getQueue().isEmpty()+" "+myThreadPool.getActiveCount());
-					try {
-						sleep(1000);
-						if (myThreadPool.getQueue().isEmpty() && myThreadPool.getActiveCount() == 0)
-							stopManager();
-					} catch (Exception e) {
-						e.printStackTrace();
-						stopManager();
-					}
-				}
-			}
-		});
-		return t;
-	}
-
 	public Thread getInfoThread() {
 		Thread t = new Thread(new Thread() {
 			public void run() {
@@ -391,24 +378,7 @@ public class DFSManager {
 
 		@Override
 		public void run() {
-			Vector<Integer> multipleIndices = new Vector<Integer>();
-			for (int i = 0; i < nets.size() - 1; i++) {
-				if (!multipleIndices.contains(i)) {
-					for (int j = i + 1; j < nets.size(); j++) {
-						if (!multipleIndices.contains(j)) {
-							SparseNetwork n1 = nets.get(i);
-							SparseNetwork n2 = nets.get(j);
-							if (new NetworkIsomorphismCheck().run(n1, n2)) {
-								// checkIsoEdges(n1, n2);
-								multipleIndices.add(j);
-							}
-						}
-					}
-				}
-			}
-			Collections.sort(multipleIndices);
-			for (int i = multipleIndices.size() - 1; i >= 0; i--)
-				nets.removeElementAt(multipleIndices.get(i));
+			reduceNetworks(nets);
 			countDownLatch.countDown();
 		}
 
@@ -418,7 +388,7 @@ public class DFSManager {
 				if (v.getInDegree() > 1) {
 					Vector<String> labels = new Vector<String>();
 					for (SparseNetEdge e : v.inEdges())
-						labels.add(e.getIndices().toString());
+						labels.add(e.indices().toString());
 					Collections.sort(labels);
 					String s = "";
 					for (String l : labels)
@@ -433,7 +403,7 @@ public class DFSManager {
 				if (v.getInDegree() > 1) {
 					Vector<String> labels = new Vector<String>();
 					for (SparseNetEdge e : v.inEdges())
-						labels.add(e.getIndices().toString());
+						labels.add(e.indices().toString());
 					Collections.sort(labels);
 					String s = "";
 					for (String l : labels)
@@ -463,25 +433,34 @@ public class DFSManager {
 
 	}
 
+	// removes isomorphic networks, keeping the first one; only networks
+	// whose canonical forms have equal hash are compared
 	private void reduceNetworks(Vector<SparseNetwork> networks) {
 
-		Vector<Integer> multipleIndices = new Vector<Integer>();
-		for (int i = 0; i < networks.size() - 1; i++) {
-			if (!multipleIndices.contains(i)) {
-				for (int j = i + 1; j < networks.size(); j++) {
-					if (!multipleIndices.contains(j)) {
-						SparseNetwork n1 = networks.get(i);
-						SparseNetwork n2 = networks.get(j);
-						if (new NetworkIsomorphismCheck().run(n1, n2))
-							multipleIndices.add(j);
-					}
+		HashMap<Long, Vector<Integer>> hashToIndices = new HashMap<Long, Vector<Integer>>();
+		NetworkCanonicalForm[] forms = new NetworkCanonicalForm[networks.size()];
+		Vector<SparseNetwork> uniqueNetworks = new Vector<SparseNetwork>();
+		for (int i = 0; i < networks.size(); i++) {
+			SparseNetwork n = networks.get(i);
+			forms[i] = new NetworkCanonicalForm(n);
+			if (!hashToIndices.containsKey(forms[i].getHash()))
+				hashToIndices.put(forms[i].getHash(), new Vector<Integer>());
+			Vector<Integer> candidates = hashToIndices.get(forms[i].getHash());
+			boolean isMultiple = false;
+			for (int j : candidates) {
+				if (new NetworkIsomorphismCheck().run(networks.get(j), forms[j], n, forms[i])) {
+					isMultiple = true;
+					break;
 				}
 			}
+			if (!isMultiple) {
+				candidates.add(i);
+				uniqueNetworks.add(n);
+			}
 		}
-		Collections.sort(multipleIndices);
 
-		for (int i = multipleIndices.size() - 1; i >= 0; i--)
-			networks.removeElementAt(multipleIndices.get(i));
+		networks.clear();
+		networks.addAll(uniqueNetworks);
 
 	}
 
@@ -204,13 +204,7 @@ public class DFSNetworkReporter {
 		for (int i = treeIndex + 1; i < trees.length; i++)
 			upcomingIndices.add(treeMapping.get(i));
 
-		BitSet netSet = netMem.getNetworkSet(n);
-		n.setInfo(netSet);
-		if (netMem.containsNetwork(n, upcomingIndices))
-			return false;
-		netMem.addNetwork(n, upcomingIndices);
-
-		return true;
+		return netMem.addIfAbsent(n, upcomingIndices);
 	}
 
 	public void reportFinishing() {
@@ -256,7 +250,7 @@ public class DFSNetworkReporter {
 				edgeToEdgeCopy.put(e, eCopy);
 			if (n.isSpecial(e)) {
 				nodeToCopy.put(c, cCopy);
-				eCopy.addIndices((HashSet<Integer>) e.getIndices().clone());
+				eCopy.shareIndices(e);
 			}
 			if (solidTreeEdges != null && solidTreeEdges.contains(e))
 				eCopy.setSolid(true);
@@ -279,7 +273,7 @@ public class DFSNetworkReporter {
 			if (p.getInDegree() == 1 || (!n.isSpecial(v.getInEdges().get(0)) && !n.isSpecial(v.getOutEdges().get(0)))) {
 				boolean isSolid = v.getInEdges().get(0).isSolid();
 				isSolid = isSolid ? isSolid : v.getOutEdges().get(0).isSolid();
-				HashSet<Integer> indices = (HashSet<Integer>) v.getOutEdges().get(0).getIndices().clone();
+				HashSet<Integer> indices = v.getOutEdges().get(0).copyIndices();
 				SparseNetNode c = v.getOutEdges().get(0).getTarget();
 				p.removeOutEdge(v.getInEdges().get(0));
 				v.removeOutEdge(v.getOutEdges().get(0));
@@ -295,16 +289,16 @@ public class DFSNetworkReporter {
 			return;
 		for (SparseNetEdge e : newNet.getEdges()) {
 			HashSet<Integer> newIndices = new HashSet<Integer>();
-			for (int index : e.getIndices())
+			for (int index : e.indices())
 				newIndices.add(treeMapping.get(index));
-			e.getIndices().clear();
+			e.clearIndices();
 			e.addIndices(newIndices);
 		}
 		for (SparseNetEdge e : newNet.getEdges()) {
 			if (newNet.isSpecial(e)) {
 				Vector<Integer> wrongIndices = new Vector<Integer>();
-				for (int index : e.getIndices())
-					if (!e.getTarget().getOutEdges().get(0).getIndices().contains(index)
+				for (int index : e.indices())
+					if (!e.getTarget().getOutEdges().get(0).containsIndex(index)
 							&& e.getTarget().getOutDegree() == 1)
 						wrongIndices.add(index);
 				for (int wrongIndex : wrongIndices) {
@@ -319,7 +313,7 @@ public class DFSNetworkReporter {
 		if (v.getInDegree() == 1) {
 			boolean removeIndex = true;
 			for (SparseNetEdge e : v.getOutEdges()) {
-				if (e.getIndices().contains(wrongIndex))
+				if (e.containsIndex(wrongIndex))
 					removeIndex = false;
 			}
 			if (removeIndex) {
@@ -350,7 +344,7 @@ public class DFSNetworkReporter {
 				e.addIndex(index);
 			} else if (v.getInDegree() > 1) {
 				for (SparseNetEdge eIn : v.getInEdges()) {
-					if (eIn.getIndices().contains(index)) {
+					if (eIn.containsIndex(index)) {
 						e = eIn;
 						break;
 					}
@@ -409,11 +403,11 @@ public class DFSNetworkReporter {
 			Iterator<SparseNetEdge> it = v.outEdges().iterator();
 			while (it.hasNext()) {
 				SparseNetEdge e = it.next();
-				if (e.getIndices().contains(index) || e.getTarget().getInDegree() <= 1)
+				if (e.containsIndex(index) || e.getTarget().getInDegree() <= 1)
 					getClusterByPrevTree(e.getTarget(), n, b, index, prevTreeToTaxa, debug);
 				else if (debug)
 					System.out.println(e.getSource().getLabel() + " -> " + e.getTarget().getLabel() + " "
-							+ e.getIndices().size());
+							+ e.getNumberOfIndices());
 			}
 		}
 	}
@@ -326,7 +326,7 @@ public class DFSUpdateNetworkThread extends Thread {
 				edgeToEdgeCopy.put(e, eCopy);
 			if (n.isSpecial(e)) {
 				nodeToCopy.put(c, cCopy);
-				eCopy.addIndices((HashSet<Integer>) e.getIndices().clone());
+				eCopy.shareIndices(e);
 			}
 			if (solidTreeEdges != null && solidTreeEdges.contains(e))
 				eCopy.setSolid(true);
@@ -378,7 +378,7 @@ public class DFSUpdateNetworkThread extends Thread {
 			if (p.getInDegree() == 1 || (!n.isSpecial(v.inEdges().iterator().next()) && !n.isSpecial(v.outEdges().iterator().next()))) {
 				boolean isSolid = v.inEdges().iterator().next().isSolid();
 				isSolid = isSolid ? isSolid : v.outEdges().iterator().next().isSolid();
-				HashSet<Integer> indices = (HashSet<Integer>) v.outEdges().iterator().next().getIndices().clone();
+				HashSet<Integer> indices = v.outEdges().iterator().next().copyIndices();
 				SparseNetNode c = v.outEdges().iterator().next().getTarget();
 				p.removeOutEdge(v.inEdges().iterator().next());
 				v.removeOutEdge(v.outEdges().iterator().next());
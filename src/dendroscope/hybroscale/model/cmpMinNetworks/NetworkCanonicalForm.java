@@ -0,0 +1,286 @@
+/*
+ *   NetworkCanonicalForm.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dendroscope.hybroscale.model.cmpMinNetworks;
+
+import dendroscope.hybroscale.model.treeObjects.SparseNetEdge;
+import dendroscope.hybroscale.model.treeObjects.SparseNetNode;
+import dendroscope.hybroscale.model.treeObjects.SparseNetwork;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A canonical form of a rooted, leaf-labeled network including the indices
+ * of its edges. Each node gets a signature from the leaf labels and edges
+ * below it and from the signatures of its parents. Nodes are numbered by
+ * their signatures and the network is written as a byte array in this
+ * numbering, so two networks with equal byte arrays are isomorphic. The hash
+ * only depends on the multiset of signatures and is equal for isomorphic
+ * networks. Only if two nodes have equal signatures the numbering is not
+ * unique and isomorphic networks might get different byte arrays, in this
+ * case the form is marked as ambiguous.
+ *
+ * The form is computed in a single pass over the nodes and edges, up to the
+ * sorting of the signatures.
+ *
+ * By default the form keeps the equivalence of the cherry reduction that was
+ * used before: the index sets of the out-edges of a node are compared as a
+ * multiset, regardless of which child an index set leads to, and the indices
+ * of a single edge leaving the root are ignored. If the system property
+ * STRICT_PROPERTY is set, each index set is bound to its child edge, so fewer
+ * networks are considered isomorphic and more minimum networks are reported.
+ */
+
+public class NetworkCanonicalForm {
+
+	/** system property, if true index sets are compared per edge */
+	public static final String STRICT_PROPERTY = "hybroscale.strictIsomorphism";
+
+	private final boolean strict;
+	private final long hash;
+	private final byte[] bytes;
+	private final boolean ambiguous;
+
+	public NetworkCanonicalForm(SparseNetwork n) {
+		this(n, Boolean.getBoolean(STRICT_PROPERTY));
+	}
+
+	public NetworkCanonicalForm(SparseNetwork n, boolean strict) {
+
+		this.strict = strict;
+
+		// nodes in post-order, children before parents
+		Vector<SparseNetNode> nodes = new Vector<SparseNetNode>();
+		HashMap<SparseNetNode, Integer> nodeToIndex = new HashMap<SparseNetNode, Integer>();
+		addNodesRec(n.getRoot(), nodes, nodeToIndex);
+
+		int size = nodes.size();
+		long[] down = new long[size], up = new long[size], signatures = new long[size];
+		HashMap<SparseNetEdge, Long> edgeToHash = new HashMap<SparseNetEdge, Long>();
+
+		// bottom-up: leaf labels and edges below a node
+		for (int i = 0; i < size; i++) {
+			SparseNetNode v = nodes.get(i);
+			if (v.getOutDegree() == 0)
+				down[i] = mix(getLabel(v).hashCode());
+			else {
+				long[] terms = new long[v.getOutDegree()], edgeHashes = new long[v.getOutDegree()];
+				int j = 0;
+				for (SparseNetEdge e : v.outEdges()) {
+					long edgeHash = (isIgnored(n, e) ? 0 : getIndexHash(e));
+					edgeToHash.put(e, edgeHash);
+					long childHash = down[nodeToIndex.get(e.getTarget())];
+					if (strict)
+						terms[j] = mix(31 * edgeHash + childHash);
+					else {
+						terms[j] = childHash;
+						edgeHashes[j] = edgeHash;
+					}
+					j++;
+				}
+				Arrays.sort(terms);
+				Arrays.sort(edgeHashes);
+				long h = 17;
+				for (long t : terms)
+					h = 31 * h + t;
+				for (long t : edgeHashes)
+					h = 31 * h + t;
+				down[i] = mix(h);
+			}
+		}
+
+		// top-down: position of a node below its parents
+		for (int i = size - 1; i >= 0; i--) {
+			SparseNetNode v = nodes.get(i);
+			up[i] += 0x9e3779b97f4a7c15L;
+			for (SparseNetEdge e : v.outEdges()) {
+				long term = mix(31 * (31 * up[i] + down[i]) + (strict ? edgeToHash.get(e) : 0));
+				up[nodeToIndex.get(e.getTarget())] += term;
+			}
+			signatures[i] = mix(31 * down[i] + mix(up[i]));
+		}
+
+		// number the nodes by their signatures
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		final long[] sigs = signatures;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Long.compare(sigs[i1], sigs[i2]);
+			}
+		});
+		int[] rank = new int[size];
+		boolean hasTies = false;
+		long h = size;
+		for (int r = 0; r < size; r++) {
+			rank[order[r]] = r;
+			if (r > 0 && sigs[order[r]] == sigs[order[r - 1]])
+				hasTies = true;
+			h = 31 * h + sigs[order[r]];
+		}
+		hash = h;
+		ambiguous = hasTies;
+		bytes = write(n, nodes, order, rank, nodeToIndex);
+	}
+
+	/**
+	 * The indices of a single edge leaving the root are ignored, unless the
+	 * form is strict.
+	 */
+	private boolean isIgnored(SparseNetwork n, SparseNetEdge e) {
+		return !strict && e.getSource() == n.getRoot() && n.getRoot().getOutDegree() == 1;
+	}
+
+	private void addNodesRec(SparseNetNode v, Vector<SparseNetNode> nodes, HashMap<SparseNetNode, Integer> nodeToIndex) {
+		if (nodeToIndex.containsKey(v))
+			return;
+		nodeToIndex.put(v, -1);
+		for (SparseNetEdge e : v.outEdges())
+			addNodesRec(e.getTarget(), nodes, nodeToIndex);
+		nodeToIndex.put(v, nodes.size());
+		nodes.add(v);
+	}
+
+	private byte[] write(SparseNetwork n, Vector<SparseNetNode> nodes, Integer[] order, int[] rank,
+			HashMap<SparseNetNode, Integer> nodeToIndex) {
+		try {
+			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(byteStream);
+			out.writeInt(nodes.size());
+			out.writeInt(rank[nodes.size() - 1]);
+			for (int i : order) {
+				SparseNetNode v = nodes.get(i);
+				out.writeInt(v.getOutDegree());
+				if (v.getOutDegree() == 0)
+					out.writeUTF(getLabel(v));
+				else {
+					// strict: child rank followed by the indices of its edge,
+					// otherwise the child ranks and the index sets are sorted
+					// separately
+					Vector<int[]> children = new Vector<int[]>(), indexSets = new Vector<int[]>();
+					for (SparseNetEdge e : v.outEdges()) {
+						int[] indices = getSortedIndices(n, e);
+						int childRank = rank[nodeToIndex.get(e.getTarget())];
+						if (strict) {
+							int[] child = new int[indices.length + 1];
+							child[0] = childRank;
+							System.arraycopy(indices, 0, child, 1, indices.length);
+							children.add(child);
+						} else {
+							children.add(new int[] { childRank });
+							indexSets.add(indices);
+						}
+					}
+					Collections.sort(children, new IntArrayComparator());
+					Collections.sort(indexSets, new IntArrayComparator());
+					for (int[] child : children) {
+						out.writeInt(child.length);
+						for (int x : child)
+							out.writeInt(x);
+					}
+					for (int[] indices : indexSets) {
+						out.writeInt(indices.length);
+						for (int x : indices)
+							out.writeInt(x);
+					}
+				}
+			}
+			out.flush();
+			return byteStream.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String getLabel(SparseNetNode v) {
+		return v.getLabel() == null ? "" : v.getLabel().replaceAll(" +", "");
+	}
+
+	private int[] getSortedIndices(SparseNetwork n, SparseNetEdge e) {
+		if (isIgnored(n, e))
+			return new int[0];
+		int[] indices = new int[e.getNumberOfIndices()];
+		int j = 0;
+		for (int index : e.indices())
+			indices[j++] = index;
+		Arrays.sort(indices);
+		return indices;
+	}
+
+	private static long getIndexHash(SparseNetEdge e) {
+		long h = 0;
+		for (int index : e.indices())
+			h += mix(index + 1);
+		return h;
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Hash of the form, equal for isomorphic networks.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * True, if some nodes have equal signatures. Then isomorphic networks
+	 * might have different forms.
+	 */
+	public boolean isAmbiguous() {
+		return ambiguous;
+	}
+
+	/**
+	 * Equal forms imply isomorphic networks.
+	 */
+	public boolean sameForm(NetworkCanonicalForm f) {
+		return strict == f.strict && hash == f.hash && Arrays.equals(bytes, f.bytes);
+	}
+
+	private static class IntArrayComparator implements Comparator<int[]> {
+
+		@Override
+		public int compare(int[] a1, int[] a2) {
+			for (int i = 0; i < Math.min(a1.length, a2.length); i++) {
+				if (a1[i] != a2[i])
+					return Integer.compare(a1[i], a2[i]);
+			}
+			return Integer.compare(a1.length, a2.length);
+		}
+
+	}
+
+}
@@ -27,7 +27,9 @@ import java.util.*;
 
 /**
  * Given two rooted, bifurcating phylogenetic networks N1 and N2, this function
- * checks whether N1 and N2 are isomorphic.
+ * checks whether N1 and N2 are isomorphic. The networks are compared by their
+ * canonical forms, only if a form is ambiguous the cherries of both networks
+ * are reduced step by step.
  *
  * @author Benjamin Albrecht, 6.2010
  */
@@ -35,6 +37,23 @@ import java.util.*;
 public class NetworkIsomorphismCheck {
 
 	public boolean run(SparseNetwork n1, SparseNetwork n2) {
+		return run(n1, new NetworkCanonicalForm(n1), n2, new NetworkCanonicalForm(n2));
+	}
+
+	/**
+	 * Compares two networks whose canonical forms have already been computed.
+	 */
+	public boolean run(SparseNetwork n1, NetworkCanonicalForm f1, SparseNetwork n2, NetworkCanonicalForm f2) {
+		if (f1.getHash() != f2.getHash())
+			return false;
+		if (f1.sameForm(f2))
+			return true;
+		if (f1.isAmbiguous() || f2.isAmbiguous())
+			return runCherryReduction(n1, n2);
+		return false;
+	}
+
+	private boolean runCherryReduction(SparseNetwork n1, SparseNetwork n2) {
 
 		SparseNetwork n1Copy = new SparseNetwork(n1);
 		SparseNetwork n2Copy = new SparseNetwork(n2);
@@ -176,7 +195,7 @@ public class NetworkIsomorphismCheck {
 					Vector<String> allIndices = new Vector<String>();
 					for (SparseNetEdge e : p.getOutEdges()) {
 						Vector<Integer> indices = new Vector<Integer>();
-						indices.addAll(e.getIndices());
+						indices.addAll(e.indices());
 						Collections.sort(indices);
 						String indexString = "";
 						for (int index : indices)
@@ -19,146 +19,191 @@
 
 package dendroscope.hybroscale.model.cmpMinNetworks;
 
-import dendroscope.hybroscale.model.treeObjects.SparseNetEdge;
-import dendroscope.hybroscale.model.treeObjects.SparseNetNode;
 import dendroscope.hybroscale.model.treeObjects.SparseNetwork;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the networks reported during the depth-first search, so that
+ * networks that were already reported for the same upcoming trees are
+ * pruned. Networks are indexed by the upcoming tree indices together with
+ * the hash of their canonical form, which covers the leaf labels, the
+ * clusters and the reticulation structure, so only networks with equal hash
+ * are compared. The store can be used by all worker threads of
+ * the search. Its size is bounded by a byte budget, when the budget is
+ * exceeded the oldest networks are evicted.
+ */
 
 public class NetworkMemory {
 
-	private Vector<SparseNetwork> cachedNetworks = new Vector<SparseNetwork>();
-	private HashMap<String, Vector<Integer>> treeIndicesToNetworkIndices = new HashMap<String, Vector<Integer>>();
+	/** system property giving the byte budget in megabytes */
+	public static final String MAX_MEGABYTES_PROPERTY = "hybroscale.networkMemoryMB";
 
-	private Vector<String> taxaOrdering;
+	// rough size of a cached node and edge, including the index sets of an
+	// edge
+	private static final long NODE_BYTES = 96, EDGE_BYTES = 160;
 
-	private double netCounter = 0, bitCounter = 0, counter = 0;
+	private final ConcurrentHashMap<String, Vector<Entry>> keyToEntries = new ConcurrentHashMap<String, Vector<Entry>>();
+	private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<Entry>();
 
-	public NetworkMemory(Vector<String> taxaOrdering) {
-		this.taxaOrdering = taxaOrdering;
-	}
+	private final long maxBytes;
 
-	public void addNetwork(SparseNetwork n, Vector<Integer> treeIndices) {
+	private final AtomicLong usedBytes = new AtomicLong(0);
+	private final AtomicLong hits = new AtomicLong(0), misses = new AtomicLong(0);
+	private final AtomicLong isoChecks = new AtomicLong(0), evictions = new AtomicLong(0);
 
-		try {
-			if (storeNetwork() && cachedNetworks != null) {
-				cachedNetworks.add(n);
-				String indexID = getIndexID(treeIndices);
-				if (!treeIndicesToNetworkIndices.containsKey(indexID))
-					treeIndicesToNetworkIndices.put(indexID, new Vector<Integer>());
-				treeIndicesToNetworkIndices.get(indexID).add(cachedNetworks.size() - 1);
-			}
-		} catch (Exception e) {
+	private volatile boolean freed = false;
 
-		}
+	public NetworkMemory() {
+		this(getDefaultMaxBytes());
+	}
 
+	public NetworkMemory(long maxBytes) {
+		this.maxBytes = maxBytes;
 	}
 
-	private boolean storeNetwork() {
+	/**
+	 * The default byte budget, given by the system property
+	 * MAX_MEGABYTES_PROPERTY or a quarter of the maximal heap size.
+	 */
+	public static long getDefaultMaxBytes() {
+		Long megaBytes = Long.getLong(MAX_MEGABYTES_PROPERTY);
+		if (megaBytes != null && megaBytes > 0)
+			return megaBytes << 20;
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
 
-		double maxMemory = java.lang.Runtime.getRuntime().maxMemory();
-		double totalMemory = java.lang.Runtime.getRuntime().totalMemory();
-		double usedMemory = totalMemory - java.lang.Runtime.getRuntime().freeMemory();
+	/**
+	 * Adds a network unless an isomorphic network has already been stored
+	 * for the same upcoming trees.
+	 *
+	 * @return true, if the network was new
+	 */
+	public boolean addIfAbsent(SparseNetwork n, Vector<Integer> treeIndices) {
 
-		if ((usedMemory / maxMemory) < 0.5)
+		if (freed)
 			return true;
-		return false;
-
-	}
 
-	public boolean containsNetwork(SparseNetwork n, Vector<Integer> treeIndices) {
-
-		try {
-			String indexID = getIndexID(treeIndices);
-			if (treeIndicesToNetworkIndices != null && treeIndicesToNetworkIndices.containsKey(indexID)) {
-				Vector<Integer> networkPointer = (Vector<Integer>) treeIndicesToNetworkIndices.get(indexID).clone();
-				for (int i : networkPointer) {
-
-					counter++;
-					SparseNetwork nCached = cachedNetworks.get(i);
-
-					BitSet bN = (BitSet) n.getInfo();
-					BitSet bCached = (BitSet) nCached.getInfo();
-
-					if (bN.equals(bCached)) {
-						bitCounter++;
-						if (new NetworkIsomorphismCheck().run(n, nCached)) {
-							netCounter++;
-							return true;
-						}
+		NetworkCanonicalForm form = new NetworkCanonicalForm(n);
+		String key = getIndexID(treeIndices) + "#" + Long.toHexString(form.getHash());
+		Entry entry = new Entry(key, n, form, estimateBytes(n) + form.getBytes().length);
+
+		while (true) {
+			Vector<Entry> entries = keyToEntries.get(key);
+			if (entries == null) {
+				Vector<Entry> newEntries = new Vector<Entry>();
+				entries = keyToEntries.putIfAbsent(key, newEntries);
+				if (entries == null)
+					entries = newEntries;
+			}
+			synchronized (entries) {
+				// the list might have been dropped by an eviction meanwhile
+				if (keyToEntries.get(key) != entries)
+					continue;
+				for (Entry cached : entries) {
+					isoChecks.incrementAndGet();
+					if (isIsomorphic(n, form, cached)) {
+						hits.incrementAndGet();
+						return false;
 					}
 				}
+				entries.add(entry);
 			}
-			return false;
+			break;
+		}
+
+		misses.incrementAndGet();
+		insertionOrder.add(entry);
+		usedBytes.addAndGet(entry.bytes);
+		evict();
+
+		return true;
+	}
+
+	private boolean isIsomorphic(SparseNetwork n, NetworkCanonicalForm form, Entry cached) {
+		try {
+			return new NetworkIsomorphismCheck().run(n, form, cached.network, cached.form);
 		} catch (Exception e) {
 			return false;
 		}
 	}
 
+	private void evict() {
+		while (usedBytes.get() > maxBytes) {
+			Entry entry = insertionOrder.poll();
+			if (entry == null)
+				break;
+			Vector<Entry> entries = keyToEntries.get(entry.key);
+			if (entries != null) {
+				synchronized (entries) {
+					entries.remove(entry);
+					if (entries.isEmpty())
+						keyToEntries.remove(entry.key, entries);
+				}
+			}
+			usedBytes.addAndGet(-entry.bytes);
+			evictions.incrementAndGet();
+		}
+	}
+
 	private String getIndexID(Vector<Integer> indices) {
-		String indexID = "";
+		StringBuilder buf = new StringBuilder();
 		for (int i : indices)
-			indexID = indexID.concat(i + ":");
-		return indexID;
+			buf.append(i).append(':');
+		return buf.toString();
 	}
 
 	public void freeMemory() {
-		cachedNetworks = null;
-		treeIndicesToNetworkIndices = null;
+		freed = true;
+		keyToEntries.clear();
+		insertionOrder.clear();
+		usedBytes.set(0);
 	}
 
-	public BitSet getNetworkSet(SparseNetwork n) {
+	private static long estimateBytes(SparseNetwork n) {
+		int numOfEdges = n.getEdges().size();
+		return NODE_BYTES * (numOfEdges + 1) + EDGE_BYTES * numOfEdges;
+	}
 
-		Vector<SparseNetNode> retNodes = new Vector<SparseNetNode>();
-		for (SparseNetNode v : n.getNodes()) {
-			if (v.getInDegree() > 1)
-				retNodes.add(v);
-		}
+	public long getHits() {
+		return hits.get();
+	}
 
-		Vector<BitSet> leafSets = new Vector<BitSet>();
-		for (SparseNetNode v : retNodes) {
-			BitSet bV = new BitSet(taxaOrdering.size());
-			cmpLeafSet(v, bV);
-			leafSets.add(bV);
-		}
-		Collections.sort(leafSets, new BitSetComparator());
+	public long getMisses() {
+		return misses.get();
+	}
 
-		BitSet netSet = new BitSet(leafSets.size() * taxaOrdering.size());
-		for (int i = 0; i < leafSets.size(); i++) {
-			for (int j = 0; j < taxaOrdering.size(); j++) {
-				netSet.set((taxaOrdering.size() * i) + j, leafSets.get(i).get(j));
-			}
-		}
+	public long getEvictions() {
+		return evictions.get();
+	}
 
-		return netSet;
+	public long getUsedBytes() {
+		return usedBytes.get();
 	}
 
-	private void cmpLeafSet(SparseNetNode v, BitSet bV) {
-		if (v.getOutDegree() == 0)
-			bV.set(taxaOrdering.indexOf(v.getLabel()));
-		else {
-			for (SparseNetEdge e : v.outEdges())
-				cmpLeafSet(e.getTarget(), bV);
-		}
+	public void printStatistics() {
+		System.out.println("Statistics: hits " + hits + " / misses " + misses + " / isomorphism checks " + isoChecks
+				+ " / evictions " + evictions);
+		System.out.println("Memory: " + (usedBytes.get() >> 10) + " of " + (maxBytes >> 10) + " KB");
 	}
 
-	public class BitSetComparator implements Comparator<BitSet> {
+	private static class Entry {
 
-		@Override
-		public int compare(BitSet b1, BitSet b2) {
-			if (b1.equals(b2))
-				return 0;
-			BitSet xor = (BitSet) b1.clone();
-			xor.xor(b2);
-			int firstSetBit = xor.length() - 1;
-			return b2.get(firstSetBit) ? 1 : -1;
-		}
+		private final String key;
+		private final SparseNetwork network;
+		private final NetworkCanonicalForm form;
+		private final long bytes;
 
-	}
+		public Entry(String key, SparseNetwork network, NetworkCanonicalForm form, long bytes) {
+			this.key = key;
+			this.network = network;
+			this.form = form;
+			this.bytes = bytes;
+		}
 
-	public void printStatistics() {
-		System.out.println("Statstics: " + counter + " / " + bitCounter + " / " + netCounter);
-		System.out.println("BitEfficency: " + (1. - (bitCounter / counter)));
 	}
 
 }
@@ -96,8 +96,8 @@ public class NetworkToTreeAdaptor {
 							vNet.removeOutEdge(e);
 							boolean b = treeEdges.remove(e);
 							SparseNetEdge e2 = newNode.addChild(cNet);
-							e2.addIndices((HashSet<Integer>) e.getIndices().clone());
-							e1.addIndices((HashSet<Integer>) e.getIndices().clone());
+							e2.addIndices(e.indices());
+							e1.addIndices(e.indices());
 							if (b)
 								treeEdges.add(e2);
 						}
@@ -140,7 +140,7 @@ public class NetworkToTreeAdaptor {
 						vNet.removeOutEdge(e);
 						boolean b = treeEdges.remove(e);
 						SparseNetEdge e2 = vNetParent.addChild(cNet);
-						e2.addIndices((HashSet<Integer>) e.getIndices().clone());
+						e2.addIndices(e.indices());
 						newEdges.add(e2);
 						if (b)
 							treeEdges.add(e2);
@@ -154,7 +154,7 @@ public class NetworkToTreeAdaptor {
 					vNet.removeOutEdge(e);
 					boolean b = treeEdges.remove(e);
 					SparseNetEdge e2 = vNetParent.addChild(cNet);
-					e2.addIndices((HashSet<Integer>) e.getIndices().clone());
+					e2.addIndices(e.indices());
 					newEdges.add(e2);
 					if (b)
 						treeEdges.add(e2);
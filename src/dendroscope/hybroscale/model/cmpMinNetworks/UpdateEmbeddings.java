@@ -111,7 +111,7 @@ public class UpdateEmbeddings {
 
 		Vector<SparseNetEdge> toDelete = new Vector<SparseNetEdge>();
 		for (SparseNetEdge e : upNet.getEdges()) {
-			if (e.getTarget().getInDegree() > 1 && e.getIndices().isEmpty())
+			if (e.getTarget().getInDegree() > 1 && e.hasNoIndices())
 				toDelete.add(e);
 		}
 		for (SparseNetEdge e : toDelete) {
@@ -160,7 +160,7 @@ public class UpdateEmbeddings {
 		if (v.getInDegree() == 1 && v.getOutDegree() == 1) {
 			SparseNetNode p = v.getInEdges().get(0).getSource();
 			if (p.getInDegree() == 1 || (!n.isSpecial(v.getInEdges().get(0)) && !n.isSpecial(v.getOutEdges().get(0)))) {
-				HashSet<Integer> indices = (HashSet<Integer>) v.getOutEdges().get(0).getIndices().clone();
+				HashSet<Integer> indices = v.getOutEdges().get(0).copyIndices();
 				SparseNetNode c = v.getOutEdges().get(0).getTarget();
 				p.removeOutEdge(v.getInEdges().get(0));
 				v.removeOutEdge(v.getOutEdges().get(0));
@@ -188,7 +188,7 @@ public class UpdateEmbeddings {
 					retEdgesCopy.add(edgePair[1]);
 
 				for (SparseNetEdge e : nCopy.getEdges())
-					e.getIndices().remove(treeIndex);
+					e.removeIndex(treeIndex);
 				int bitIndex = b.nextSetBit(0);
 				while (bitIndex != -1) {
 					retEdgesCopy.get(bitIndex).addIndex(treeIndex);
@@ -197,7 +197,7 @@ public class UpdateEmbeddings {
 				updateIndices(nCopy, addedTrees[treeIndex], treeIndex);
 				for (SparseNetEdge e : retEdgesCopy) {
 					SparseNetEdge eX = e.getSource().getInEdges().get(0);
-					if (!eX.getIndices().contains(treeIndex))
+					if (!eX.containsIndex(treeIndex))
 						e.removeIndex(treeIndex);
 				}
 
@@ -228,7 +228,7 @@ public class UpdateEmbeddings {
 		} else if (v.getInDegree() > 1) {
 			SparseNetEdge eIn = null;
 			for (SparseNetEdge e : v.getInEdges()) {
-				if (e.getIndices().contains(treeIndex)) {
+				if (e.containsIndex(treeIndex)) {
 					eIn = e;
 					break;
 				}
@@ -292,10 +292,9 @@ public class UpdateEmbeddings {
 			}
 			if (n.isSpecial(e)) {
 				nodeToCopy.put(c, cCopy);
-				eCopy.addIndices((HashSet<Integer>) e.getIndices().clone());
+				eCopy.shareIndices(e);
 			}
-			HashSet<Integer> treeIndices = (HashSet<Integer>) e.getEdgeIndex().clone();
-			eCopy.setEdgeIndex(treeIndices);
+			eCopy.shareEdgeIndex(e);
 			if (!visited.contains(c)) {
 				visited.add(c);
 				copyNetworkRec(cCopy, c, nCopy, n, visited, nodeToCopy, edgePairs);
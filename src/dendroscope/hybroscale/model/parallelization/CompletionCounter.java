@@ -0,0 +1,68 @@
+/*
+ *   CompletionCounter.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dendroscope.hybroscale.model.parallelization;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the pending tasks of one computation running on a
+ * MyNetPriorThreadPool. The owner of the computation holds one count until
+ * it calls release(), each submitted task holds one until it is finished or
+ * cancelled. Tasks submitted by a running task are counted as well, so the
+ * completion action is run exactly once, by the thread finishing the last
+ * task.
+ */
+
+public class CompletionCounter {
+
+	private final AtomicInteger pending = new AtomicInteger(1);
+	private final AtomicBoolean completed = new AtomicBoolean(false);
+	private final Runnable onCompletion;
+
+	public CompletionCounter(Runnable onCompletion) {
+		this.onCompletion = onCompletion;
+	}
+
+	void increment() {
+		pending.incrementAndGet();
+	}
+
+	void decrement() {
+		if (pending.decrementAndGet() == 0 && completed.compareAndSet(false, true))
+			onCompletion.run();
+	}
+
+	/**
+	 * Called by the owner after all initial tasks have been submitted.
+	 */
+	public void release() {
+		decrement();
+	}
+
+	public int getPendingTasks() {
+		return pending.get();
+	}
+
+	public boolean isCompleted() {
+		return completed.get();
+	}
+
+}
@@ -24,20 +24,36 @@ import java.util.Vector;
 import java.util.concurrent.*;
 
 
+/**
+ * Thread pool executing the tasks of the network computation. A task can be
+ * submitted together with a CompletionCounter, which is notified when the
+ * task is finished or cancelled. Tasks submitted from within a running task
+ * are added to the counter of that task, so the end of a computation is
+ * detected as soon as its last task is finished.
+ */
+
 public class MyNetPriorThreadPool extends ThreadPoolExecutor {
 
+	private static final ThreadLocal<CompletionCounter> currentCounter = new ThreadLocal<CompletionCounter>();
+
 	private Vector<Future<?>> futures = new Vector<Future<?>>();
 	private boolean isStopped = false;
 
 	public MyNetPriorThreadPool() {
 		super(1, 1, 60L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(11,
-				new PriorityTaskComparator()), new ThreadPoolExecutor.DiscardPolicy());
+				new PriorityTaskComparator()), new CancelPolicy());
 		allowCoreThreadTimeOut(true);
 	}
 
 	public void setSize(int size) {
-		setCorePoolSize(size);
-		setMaximumPoolSize(size);
+		// the core size must not exceed the maximum size
+		if (size > getMaximumPoolSize()) {
+			setMaximumPoolSize(size);
+			setCorePoolSize(size);
+		} else {
+			setCorePoolSize(size);
+			setMaximumPoolSize(size);
+		}
 	}
 
 	public void forceShutDown() {
@@ -46,9 +62,8 @@ public class MyNetPriorThreadPool extends ThreadPoolExecutor {
 			if (f != null)
 				f.cancel(true);
 		}
+		cancelQueuedTasks();
 		purge();
-		for (Runnable r : getQueue())
-			remove(r);
 		shutdownNow();
 	}
 
@@ -58,15 +73,32 @@ public class MyNetPriorThreadPool extends ThreadPoolExecutor {
 			if (f != null)
 				f.cancel(true);
 		}
-		for (Runnable r : getQueue())
-			remove(r);
+		cancelQueuedTasks();
 		isStopped = false;
 	}
 
+	// removed tasks are cancelled, so that their counters are notified
+	private void cancelQueuedTasks() {
+		for (Runnable r : getQueue()) {
+			((Future<?>) r).cancel(false);
+			remove(r);
+		}
+	}
+
 	@Override
 	public Future<?> submit(final Runnable task) {
-		Future<?> f = super.submit(task);
-		if(!isStopped)
+		return submit(task, currentCounter.get());
+	}
+
+	/**
+	 * Submits a task whose completion is reported to the given counter.
+	 */
+	public Future<?> submit(final Runnable task, CompletionCounter counter) {
+		if (task == null)
+			throw new NullPointerException();
+		PriorityTask<Object> f = new PriorityTask<Object>(0, task, null, counter);
+		execute(f);
+		if (!isStopped)
 			futures.add(f);
 		return f;
 	}
@@ -92,16 +124,36 @@ public class MyNetPriorThreadPool extends ThreadPoolExecutor {
 
 	@Override
 	protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, final T value) {
-		return new PriorityTask<T>(0, runnable, value);
+		return new PriorityTask<T>(0, runnable, value, currentCounter.get());
 	}
 
 	private static final class PriorityTask<T> extends FutureTask<T> implements Comparable<PriorityTask<T>> {
 
 		private final int priority;
+		private final CompletionCounter counter;
 
-		public PriorityTask(final int priority, final Runnable runnable, final T result) {
+		public PriorityTask(final int priority, final Runnable runnable, final T result, CompletionCounter counter) {
 			super(runnable, result);
 			this.priority = priority;
+			this.counter = counter;
+			if (counter != null)
+				counter.increment();
+		}
+
+		@Override
+		public void run() {
+			currentCounter.set(counter);
+			try {
+				super.run();
+			} finally {
+				currentCounter.remove();
+			}
+		}
+
+		@Override
+		protected void done() {
+			if (counter != null)
+				counter.decrement();
 		}
 
 		@Override
@@ -117,6 +169,14 @@ public class MyNetPriorThreadPool extends ThreadPoolExecutor {
 
 	}
 
+	// rejected tasks are never run, cancelling them notifies their counters
+	private static class CancelPolicy implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			((Future<?>) r).cancel(false);
+		}
+	}
+
 	private static class PriorityTaskComparator implements Comparator<Runnable> {
 		@Override
 		public int compare(final Runnable left, final Runnable right) {
@@ -74,8 +74,14 @@ public class MyThreadPool {
 	}
 
 	public void setSize(int size) {
-		threadPool.setCorePoolSize(size);
-		threadPool.setMaximumPoolSize(size);
+		// the core size must not exceed the maximum size
+		if (size > threadPool.getMaximumPoolSize()) {
+			threadPool.setMaximumPoolSize(size);
+			threadPool.setCorePoolSize(size);
+		} else {
+			threadPool.setCorePoolSize(size);
+			threadPool.setMaximumPoolSize(size);
+		}
 	}
 
 	public ThreadPoolExecutor getPool() {
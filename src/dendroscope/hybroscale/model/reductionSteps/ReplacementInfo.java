@@ -87,7 +87,7 @@ public class ReplacementInfo {
 	}
 
 	@SuppressWarnings("unchecked")
-	public void addNetwork(HybridNetwork n, boolean isClusterNetwork) {
+	public synchronized void addNetwork(HybridNetwork n, boolean isClusterNetwork) {
 
 		n.removeOutgroup();
 		String repChar = n.getReplacementCharacter();
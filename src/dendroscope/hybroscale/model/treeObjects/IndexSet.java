@@ -0,0 +1,139 @@
+/*
+ *   IndexSet.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dendroscope.hybroscale.model.treeObjects;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of edge indices, stored as a sorted int array. Modifying
+ * operations return a new set (or this set, if nothing changes), so a set can
+ * be shared freely between edges and copied networks.
+ */
+public final class IndexSet extends AbstractSet<Integer> {
+
+	public static final IndexSet EMPTY = new IndexSet(new int[0]);
+
+	private final int[] values;
+
+	private IndexSet(int[] values) {
+		this.values = values;
+	}
+
+	public static IndexSet of(Collection<Integer> indices) {
+		if (indices instanceof IndexSet)
+			return (IndexSet) indices;
+		if (indices.isEmpty())
+			return EMPTY;
+		int[] values = new int[indices.size()];
+		int size = 0;
+		for (int index : indices)
+			values[size++] = index;
+		Arrays.sort(values);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (distinct == 0 || values[distinct - 1] != values[i])
+				values[distinct++] = values[i];
+		}
+		return new IndexSet(distinct == size ? values : Arrays.copyOf(values, distinct));
+	}
+
+	public boolean contains(int index) {
+		return Arrays.binarySearch(values, index) >= 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+
+	public IndexSet with(int index) {
+		int pos = Arrays.binarySearch(values, index);
+		if (pos >= 0)
+			return this;
+		pos = -pos - 1;
+		int[] newValues = new int[values.length + 1];
+		System.arraycopy(values, 0, newValues, 0, pos);
+		newValues[pos] = index;
+		System.arraycopy(values, pos, newValues, pos + 1, values.length - pos);
+		return new IndexSet(newValues);
+	}
+
+	public IndexSet without(int index) {
+		int pos = Arrays.binarySearch(values, index);
+		if (pos < 0)
+			return this;
+		if (values.length == 1)
+			return EMPTY;
+		int[] newValues = new int[values.length - 1];
+		System.arraycopy(values, 0, newValues, 0, pos);
+		System.arraycopy(values, pos + 1, newValues, pos, values.length - pos - 1);
+		return new IndexSet(newValues);
+	}
+
+	public IndexSet union(Collection<Integer> indices) {
+		if (indices.isEmpty())
+			return this;
+		if (isEmpty())
+			return of(indices);
+		IndexSet other = of(indices);
+		int[] newValues = new int[values.length + other.values.length];
+		int i = 0, j = 0, size = 0;
+		while (i < values.length || j < other.values.length) {
+			if (j == other.values.length || (i < values.length && values[i] < other.values[j]))
+				newValues[size++] = values[i++];
+			else if (i == values.length || other.values[j] < values[i])
+				newValues[size++] = other.values[j++];
+			else {
+				newValues[size++] = values[i++];
+				j++;
+			}
+		}
+		if (size == values.length)
+			return this;
+		return new IndexSet(size == newValues.length ? newValues : Arrays.copyOf(newValues, size));
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			private int i = 0;
+
+			public boolean hasNext() {
+				return i < values.length;
+			}
+
+			public Integer next() {
+				if (i == values.length)
+					throw new NoSuchElementException();
+				return values[i++];
+			}
+		};
+	}
+
+}
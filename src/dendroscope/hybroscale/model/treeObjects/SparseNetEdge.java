@@ -19,13 +19,19 @@
 
 package dendroscope.hybroscale.model.treeObjects;
 
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Vector;
+import java.util.Set;
 
+/**
+ * Edge of a sparse network. The index sets of an edge are immutable, so the
+ * corresponding edge of a copied network simply shares them, and an edge
+ * replaces a set instead of modifying it.
+ */
 public class SparseNetEdge {
 
-	private HashSet<Integer> edgeIndex = new HashSet<Integer>();
-	private HashSet<Integer> indices = new HashSet<Integer>();
+	private IndexSet edgeIndex = IndexSet.EMPTY;
+	private IndexSet indices = IndexSet.EMPTY;
 	private SparseNetNode source, target;
 
 	private boolean solid = false;
@@ -43,44 +49,98 @@ public class SparseNetEdge {
 		return target;
 	}
 
-	public void addIndices(HashSet<Integer> newIndices) {
-		indices.addAll(newIndices);
+	/**
+	 * Lets this edge share the indices of the given edge.
+	 */
+	public void shareIndices(SparseNetEdge e) {
+		indices = e.indices;
+	}
+
+	/**
+	 * Lets this edge share the edge index of the given edge.
+	 */
+	public void shareEdgeIndex(SparseNetEdge e) {
+		edgeIndex = e.edgeIndex;
 	}
 
-	public void addIndices(Vector<Integer> newIndices) {
-		indices.addAll(newIndices);
+	public void addIndices(Collection<Integer> newIndices) {
+		indices = indices.union(newIndices);
 	}
 
 	public void addIndex(int newIndex) {
-		indices.add(newIndex);
+		indices = indices.with(newIndex);
 	}
 
 	public void removeIndex(int index) {
-		indices.remove(index);
+		indices = indices.without(index);
 	}
 
-	public HashSet<Integer> getIndices() {
+	/**
+	 * Returns the indices, which cannot be modified.
+	 */
+	public Set<Integer> indices() {
 		return indices;
 	}
 
+	public void clearIndices() {
+		indices = IndexSet.EMPTY;
+	}
+
+	public boolean containsIndex(int index) {
+		return indices.contains(index);
+	}
+
+	public boolean hasNoIndices() {
+		return indices.isEmpty();
+	}
+
+	public int getNumberOfIndices() {
+		return indices.size();
+	}
+
+	/**
+	 * Returns a modifiable copy of the indices.
+	 */
+	public HashSet<Integer> copyIndices() {
+		return new HashSet<Integer>(indices);
+	}
+
 	public void removeEdgeIndex(int index){
-		edgeIndex.remove(index);
+		edgeIndex = edgeIndex.without(index);
 	}
 
 	public void addEdgeIndex(int index){
-		edgeIndex.add(index);
+		edgeIndex = edgeIndex.with(index);
 	}
 
-	public void addEdgeIndices(HashSet<Integer> indices){
-		edgeIndex.addAll(indices);
+	public void addEdgeIndices(Collection<Integer> indices){
+		edgeIndex = edgeIndex.union(indices);
 	}
 
-	public HashSet<Integer> getEdgeIndex() {
+	/**
+	 * Returns the edge index, which cannot be modified.
+	 */
+	public Set<Integer> edgeIndex() {
 		return edgeIndex;
 	}
 
-	public void setEdgeIndex(HashSet<Integer> edgeIndex) {
-		this.edgeIndex = edgeIndex;
+	public boolean containsEdgeIndex(int index) {
+		return edgeIndex.contains(index);
+	}
+
+	public boolean hasNoEdgeIndex() {
+		return edgeIndex.isEmpty();
+	}
+
+	/**
+	 * Returns a modifiable copy of the edge index.
+	 */
+	public HashSet<Integer> copyEdgeIndex() {
+		return new HashSet<Integer>(edgeIndex);
+	}
+
+	public void setEdgeIndex(Collection<Integer> edgeIndex) {
+		this.edgeIndex = IndexSet.of(edgeIndex);
 	}
 
 	public String toMyString() {
@@ -50,6 +50,10 @@ public class SparseNetwork {
 		copy(t);
 	}
 
+	/**
+	 * Copies the given network. The edge index sets are immutable and are
+	 * shared with the given network.
+	 */
 	public SparseNetwork(SparseNetwork t) {
 		SparseNetNode v = t.getRoot();
 		root = new SparseNetNode(null, this, v.getLabel());
@@ -64,14 +68,14 @@ public class SparseNetwork {
 			if (visited.containsKey(c)) {
 				SparseNetNode cCopy = visited.get(c);
 				SparseNetEdge eCopy = vCopy.addChild(cCopy);
-				eCopy.addIndices((HashSet<Integer>) e.getIndices().clone());
-				eCopy.addEdgeIndices((HashSet<Integer>) e.getEdgeIndex().clone());
+				eCopy.shareIndices(e);
+				eCopy.shareEdgeIndex(e);
 			} else {
 				SparseNetNode cCopy = new SparseNetNode(vCopy, this,
 						c.getLabel());
 				SparseNetEdge eCopy = cCopy.inEdges().iterator().next();
-				eCopy.addIndices((HashSet<Integer>) e.getIndices().clone());
-				eCopy.addEdgeIndices((HashSet<Integer>) e.getEdgeIndex().clone());
+				eCopy.shareIndices(e);
+				eCopy.shareEdgeIndex(e);
 				if (c.getOutDegree() != 0)
 					copyTreeRec(t, c, cCopy, visited);
 			}
@@ -155,7 +159,7 @@ public class SparseNetwork {
 				newEdge = t.newEdge(vCopy, cCopy);
 				getPhyloTreeRec(t, c, cCopy, visited);
 			}
-			newEdge.setInfo(eOut.getIndices());
+			newEdge.setInfo(eOut.copyIndices());
 		}
 	}
 
@@ -119,8 +119,7 @@ public class ComputeSparseNodeWeights {
 			Iterator<SparseNetEdge> it = v.outEdges().iterator();
 			while (it.hasNext()) {
 				SparseNetEdge e = it.next();
-				HashSet<Integer> indices = e.getIndices();
-				if (indices.contains(treeIndex)) {
+				if (e.containsIndex(treeIndex)) {
 					SparseNetNode c = e.getTarget();
 					computeClusterRec(n, c, cluster, treeIndex);
 				}
@@ -19,24 +19,35 @@
 
 package dendroscope.hybroscale.terminals;
 
+import dendroscope.hybroscale.model.parallelization.CompletionCounter;
 import dendroscope.hybroscale.model.parallelization.MyNetPriorThreadPool;
 import dendroscope.hybroscale.util.graph.MyNode;
 import dendroscope.hybroscale.util.graph.MyPhyloTree;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
 
 public class TerminalManager extends Thread {
 
+	// seconds the sequential search may run before switching to the thread pool
+	private static final int SEQUENTIAL_SECONDS = 10;
+
+	private static final ScheduledExecutorService timer = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "TerminalManager-timer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
 	private MyPhyloTree tOne, tTwo;
 	private Vector<String> taxaOrdering;
 	private int labelIndex = 0;
 	private int start = 0, stop = Integer.MAX_VALUE;
 
-	private TerminalAlg_Sparse tA;
-	private boolean isStopped = false;
+	private volatile TerminalAlg_Sparse tA;
+	private volatile boolean isStopped = false;
 
 	private MyNetPriorThreadPool myThreadPool;
 	private Vector<Future<?>> futures = new Vector<Future<?>>();
@@ -106,8 +117,15 @@ public class TerminalManager extends Thread {
 				resArray[i] = 0;
 
 			isStopped = false;
+			ScheduledFuture<?> timeout = null;
 			if (myThreadPool != null)
-				new StoppingThread(10).start();
+				timeout = timer.schedule(new Runnable() {
+					public void run() {
+						isStopped = true;
+						if (tA != null)
+							tA.stopExecution();
+					}
+				}, SEQUENTIAL_SECONDS, TimeUnit.SECONDS);
 
 			ConcurrentHashMap<BitSet, Integer> prevFailedCutSets = new ConcurrentHashMap<BitSet, Integer>();
 			int lowerBound = 0;
@@ -134,6 +152,8 @@ public class TerminalManager extends Thread {
 				}
 
 			}
+			if (timeout != null)
+				timeout.cancel(false);
 
 			// System.out.println("Result: " + result + " | " + lowerBound + " "
 			// + maxR);
@@ -149,11 +169,21 @@ public class TerminalManager extends Thread {
 					terminalThreads.add(t);
 				}
 
-				threadIterator = terminalThreads.iterator();
-				for (int i = 0; i < myThreadPool.getCorePoolSize(); i++) {
-					if (threadIterator.hasNext())
-						futures.add(myThreadPool.submit(threadIterator.next()));
+				// threads started by a terminal thread are counted as well,
+				// the counter completes when the last thread is finished
+				CompletionCounter terminalTasks = new CompletionCounter(new Runnable() {
+					public void run() {
+						finishTerminalThreads();
+					}
+				});
+				synchronized (this) {
+					threadIterator = terminalThreads.iterator();
+					for (int i = 0; i < myThreadPool.getCorePoolSize(); i++) {
+						if (threadIterator.hasNext())
+							futures.add(myThreadPool.submit(threadIterator.next(), terminalTasks));
+					}
 				}
+				terminalTasks.release();
 
 				try {
 					countDownLatch.await();
@@ -278,12 +308,22 @@ public class TerminalManager extends Thread {
 		if (res == 0 && threadIterator.hasNext()) {
 			TerminalThread thread = threadIterator.next();
 			myThreadPool.submit(thread);
-		} else if (res == 0 && !threadIterator.hasNext() && myThreadPool.getActiveCount() == 1) {
-			result = Integer.MAX_VALUE;
-			stopThreads();
 		}
 	}
 
+	// all terminal threads are finished or cancelled, if all of them failed
+	// there is no solution within the bound
+	private synchronized void finishTerminalThreads() {
+		boolean allFailed = true;
+		for (int res : resArray) {
+			if (res != 0)
+				allFailed = false;
+		}
+		if (result == -1 && allFailed)
+			result = Integer.MAX_VALUE;
+		countDownLatch.countDown();
+	}
+
 	private synchronized int checkResultArray(int pos, int val) {
 
 		resArray[pos] = val;
@@ -312,25 +352,4 @@ public class TerminalManager extends Thread {
 		countDownLatch.countDown();
 	}
 
-	public class StoppingThread extends Thread {
-
-		private int sleepingTime;
-
-		public StoppingThread(int sleepingTime) {
-			this.sleepingTime = sleepingTime;
-		}
-
-		public void run() {
-			try {
-				sleep(sleepingTime * 1000);
-				isStopped = true;
-				if (tA != null)
-					tA.stopExecution();
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-	}
-
 }
@@ -95,50 +95,90 @@ public class HybridView extends JFrame implements Runnable {
 		repaint();
 	}
 
-	public void setInfo(String s) {
-		statusBar.setInfo(s);
-		repaint();
+	public void setInfo(final String s) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				statusBar.setInfo(s);
+				repaint();
+			}
+		});
 	}
 
-	public void updateTime(long time) {
-		statusBar.updateTime(time);
+	public void updateTime(final long time) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				statusBar.updateTime(time);
+			}
+		});
 	}
 
-	public void reportRetNetworks(int num, int edgeNumber) {
-		statusBar.reportRetNetworks(num, edgeNumber);
-		bP.compFinished();
+	public void reportRetNetworks(final int num, final int edgeNumber) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				statusBar.reportRetNetworks(num, edgeNumber);
+				bP.compFinished();
+			}
+		});
 	}
 
-	public void reportEdgeNumber(int edgeNumber) {
-		statusBar.reportEdgeNumber(edgeNumber);
-		bP.compFinished();
+	public void reportEdgeNumber(final int edgeNumber) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				statusBar.reportEdgeNumber(edgeNumber);
+				bP.compFinished();
+			}
+		});
 	}
 
-	public void updateProc(int num) {
-		statusBar.updateProc(num);
+	public void updateProc(final int num) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				statusBar.updateProc(num);
+			}
+		});
 	}
 
-	public void addClusterThread(ClusterThread thread) {
-		cT.addClusterThread(thread);
+	public void addClusterThread(final ClusterThread thread) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				cT.addClusterThread(thread);
+			}
+		});
 	}
 
-	public void stopClusterThread(ClusterThread thread) {
-		cT.stopCluster(thread);
-		setProgress(thread, -1);
-		setProgress(thread, -1);
+	public void stopClusterThread(final ClusterThread thread) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				cT.stopCluster(thread);
+				cT.setProgress(thread, -1);
+				cT.setProgress(thread, -1);
+			}
+		});
 	}
 
-	public void finishClusterThread(ClusterThread thread) {
-		cT.finishCluster(thread);
-		setProgress(thread, 100);
+	public void finishClusterThread(final ClusterThread thread) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				cT.finishCluster(thread);
+				cT.setProgress(thread, 100);
+			}
+		});
 	}
 
-	public void setStatus(ClusterThread thread, String info) {
-		cT.setStatus(thread, info);
+	public void setStatus(final ClusterThread thread, final String info) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				cT.setStatus(thread, info);
+			}
+		});
 	}
 
-	public void setProgress(ClusterThread thread, int i) {
-		cT.setProgress(thread, i);
+	public void setProgress(final ClusterThread thread, final int i) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				cT.setProgress(thread, i);
+			}
+		});
 	}
 
 	public void enableMarkingTrees() {
@@ -151,19 +191,27 @@ public class HybridView extends JFrame implements Runnable {
 		frame.setVisible(true);
 	}
 
-	public void setDetails(ClusterThread thread, String details) {
-		cT.setDetails(thread, details);
+	public void setDetails(final ClusterThread thread, final String details) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				cT.setDetails(thread, details);
+			}
+		});
 	}
 
 	public void setVisible(boolean isVisible) {
 		this.isVisible = isVisible;
 	}
 
-	public void showProblematicConstraints(String badConstraints) {
-		JOptionPane.showMessageDialog(this, "The following constraint(s) can not be realized:\n" + badConstraints);
-		bP.compFinished();
-		statusBar.setInfo("No result computed - please check constraints!");
-		cT.stopAllCluster();
+	public void showProblematicConstraints(final String badConstraints) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JOptionPane.showMessageDialog(HybridView.this, "The following constraint(s) can not be realized:\n" + badConstraints);
+				bP.compFinished();
+				statusBar.setInfo("No result computed - please check constraints!");
+				cT.stopAllCluster();
+			}
+		});
 	}
 
 }
@@ -62,14 +62,14 @@ public class DistanceOutput {
      * @return simple matrix
      */
     public static String toSimpleString(double[][] distances, String[] names) {
-        String result = "";
+        StringBuilder buf = new StringBuilder();
         for (int i = 0; i < distances.length; i++) {
-            result += String.format("%20s", names[i]);
+            buf.append(String.format("%20s", names[i]));
             for (int j = 0; j < distances[0].length; j++) {
-                result += String.format(" %2.2f", distances[i][j]);
+                buf.append(String.format(" %2.2f", distances[i][j]));
             }
-            result += "\n";
+            buf.append("\n");
         }
-        return result;
+        return buf.toString();
     }
 }
@@ -0,0 +1,175 @@
+/*
+ *   MappedNewickRecordReader.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * splits a Newick file into tree records by scanning the bytes of a memory-mapped file.
+ * The file is mapped in windows, so files larger than 2GB are supported. Record boundaries are found on the raw
+ * bytes, which is safe for UTF-8 input, and only the bytes of a returned record are decoded into a string;
+ * skipped records are never decoded
+ */
+public class MappedNewickRecordReader extends NewickRecordReader {
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    private MappedByteBuffer buffer;
+    private long bufferStart = 0;
+    private long position = 0;
+
+    /**
+     * constructor
+     *
+     * @param file
+     */
+    public MappedNewickRecordReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        fileSize = channel.size();
+    }
+
+    /**
+     * gets the next tree record, including its terminating semicolon, if present
+     *
+     * @return next record or null, if there are no more records
+     */
+    public String next() throws IOException {
+        final long start = position;
+        if (!scan())
+            return null;
+        return normalize(decode(start, position));
+    }
+
+    /**
+     * skips the next tree record
+     *
+     * @return true, if a record was skipped, false, if there are no more records
+     */
+    public boolean skip() throws IOException {
+        return scan();
+    }
+
+    /**
+     * advances the position to the end of the next record
+     *
+     * @return true, if a non-empty record was found
+     */
+    private boolean scan() throws IOException {
+        boolean inQuotes = false;
+        int commentDepth = 0;
+        boolean nonEmpty = false;
+
+        while (position < fileSize) {
+            if (buffer == null || position >= bufferStart + buffer.limit())
+                map(position);
+            final byte b = buffer.get((int) (position - bufferStart));
+            position++;
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r')
+                nonEmpty = true;
+
+            if (inQuotes) {
+                if (b == '\'')
+                    inQuotes = false;
+            } else if (commentDepth > 0) {
+                if (b == '[')
+                    commentDepth++;
+                else if (b == ']')
+                    commentDepth--;
+            } else if (b == '\'')
+                inQuotes = true;
+            else if (b == '[')
+                commentDepth++;
+            else if (b == ';') {
+                numberOfRecords++;
+                return true;
+            }
+        }
+        if (nonEmpty) {
+            numberOfRecords++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * maps the window starting at the given file position
+     *
+     * @param start
+     */
+    private void map(long start) throws IOException {
+        bufferStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+    }
+
+    /**
+     * decodes the bytes from start to end. If they lie in the current window, they are taken from the mapped buffer,
+     * otherwise they are read from the channel
+     *
+     * @param start
+     * @param end
+     * @return string
+     */
+    private String decode(long start, long end) throws IOException {
+        final long length = end - start;
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Tree too long: " + length + " bytes");
+        final byte[] bytes = new byte[(int) length];
+        if (start >= bufferStart) {
+            final ByteBuffer slice = buffer.duplicate();
+            slice.position((int) (start - bufferStart));
+            slice.get(bytes);
+        } else {
+            final ByteBuffer target = ByteBuffer.wrap(bytes);
+            while (target.hasRemaining()) {
+                if (channel.read(target, start + target.position()) < 0)
+                    throw new IOException("Unexpected end of file");
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * as when reading line by line, trims all lines and joins them
+     *
+     * @param record
+     * @return normalized record
+     */
+    private static String normalize(String record) {
+        if (record.indexOf('\n') == -1 && record.indexOf('\r') == -1)
+            return record.trim();
+        final StringBuilder buf = new StringBuilder(record.length());
+        for (String line : record.split("\r\n|\r|\n")) {
+            buf.append(line.trim());
+        }
+        return buf.toString();
+    }
+
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
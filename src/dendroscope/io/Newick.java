@@ -19,11 +19,21 @@
 package dendroscope.io;
 
 import dendroscope.core.TreeData;
+import dendroscope.util.ParallelExecutor;
+import jloda.graph.Node;
 import jloda.util.Basic;
+import jloda.util.ProgramProperties;
 
 import java.io.*;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * read and write trees in Newick format
@@ -34,6 +44,8 @@ public class Newick extends IOBase implements IOFormat {
     public static final String NAME = "Newick";
     public static final String EXTENSION = ".tree";
 
+    public static final String MAPPED_LOAD_MB = "newick-mapped-load-MB";
+
     private boolean saveEdgeWeights = true;
 
     /**
@@ -68,40 +80,126 @@ public class Newick extends IOBase implements IOFormat {
      * @throws IOException
      */
     public TreeData[] read(Reader r0) throws IOException {
+        return read(new NewickRecordReader(r0));
+    }
+
+    /**
+     * read trees from a file. Large files are memory-mapped
+     *
+     * @param file
+     * @return trees
+     * @throws IOException
+     */
+    public TreeData[] read(File file) throws IOException {
+        if (file.length() >= 1024L * 1024L * ProgramProperties.get(MAPPED_LOAD_MB, 64))
+            return read(new MappedNewickRecordReader(file));
+        else
+            return read(new FileReader(file));
+    }
+
+    /**
+     * read trees from a source of tree records
+     *
+     * @param r0
+     * @return trees
+     * @throws IOException
+     */
+    private TreeData[] read(NewickRecordReader r0) throws IOException {
         boolean warned = false;
-        try (BufferedReader r = new BufferedReader(r0)) {
-            final List<TreeData> list = new LinkedList<>();
-            final StringBuilder buf = new StringBuilder();
-            String aLine;
-            while ((aLine = r.readLine()) != null) {
-                aLine = aLine.trim();
-                if (!aLine.endsWith(";")) {
-                    buf.append(aLine);
-                } else // got a whole tree
-                {
-                    buf.append(aLine);
-                    final TreeData tmpTreeData = new TreeData();
-                    tmpTreeData.setName(createNewTreeName());
-                    if (!warned && buf.toString().contains("#")) {
-                        System.err.println("Input contains the special character '#', will try to interpret as extended-Newick");
-                        warned = true;
-                    }
-                    tmpTreeData.parseBracketNotation(buf.toString(), true);
-                    buf.delete(0, buf.length());
-                    list.add(tmpTreeData);
+        final ForkJoinPool pool = ParallelExecutor.getPool();
+        final int maxPending = 4 * pool.getParallelism();
+        final Map<String, String> taxa = new ConcurrentHashMap<>();
+
+        // this thread splits the input into tree records, the pool parses them. Results are collected in input order
+        final Deque<Future<TreeData>> pending = new ArrayDeque<>();
+        try (NewickRecordReader r = r0) {
+            final List<TreeData> list = new ArrayList<>();
+            String record;
+            while ((record = r.next()) != null) {
+                if (!warned && record.contains("#")) {
+                    System.err.println("Input contains the special character '#', will try to interpret as extended-Newick");
+                    warned = true;
+                }
+                final String treeString = record;
+                final String name = createNewTreeName();
+                if (pool.getParallelism() == 1) {
+                    list.add(parseTree(treeString, name, taxa));
+                } else {
+                    if (pending.size() >= maxPending)
+                        list.add(getResult(pending.removeFirst()));
+                    pending.addLast(pool.submit(() -> parseTree(treeString, name, taxa)));
                 }
             }
-            if (buf.length() > 0) {
-                TreeData tree = new TreeData();
-                tree.parseBracketNotation(buf.toString(), true);
-                tree.setName(createNewTreeName());
-                buf.delete(0, buf.length());
-                list.add(tree);
+            while (pending.size() > 0)
+                list.add(getResult(pending.removeFirst()));
+            return list.toArray(new TreeData[0]);
+        } finally {
+            // if a record could not be read or parsed, the trees still waiting in the pool are not needed:
+            for (Future<TreeData> future : pending)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * parse a single tree. Node labels are replaced by the first equal instance seen, so that all trees share
+     * a single copy of each taxon label
+     * <p>
+     * This is called concurrently for different records. Parsing only modifies the new tree, the static settings
+     * of PhyloTree (such as setWarnMultiLabeled) are only read and are set once at program start. The label table
+     * is the only state shared between calls and is a concurrent map. The trees are named in input order by the
+     * reading thread, before they are submitted
+     *
+     * @param treeString
+     * @param name
+     * @param taxa       shared table of labels
+     * @return tree
+     */
+    private static TreeData parseTree(String treeString, String name, Map<String, String> taxa) throws IOException {
+        final TreeData tree = new TreeData();
+        tree.setName(name);
+        tree.parseBracketNotation(treeString, true);
+        for (Node v : tree.nodes()) {
+            final String label = tree.getLabel(v);
+            if (label != null) {
+                final String shared = taxa.putIfAbsent(label, label);
+                if (shared != null && shared != label)
+                    tree.setLabel(v, shared);
             }
-            return list.toArray(new TreeData[list.size()]);
         }
+        return tree;
     }
 
+    /**
+     * waits for a parsed tree
+     *
+     * @param future
+     * @return tree
+     */
+    private static TreeData getResult(Future<TreeData> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            else
+                throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * iterate over the trees in a file without loading them all
+     *
+     * @param file
+     * @param burnIn         number of leading trees to skip
+     * @param sampleInterval take every sampleInterval-th tree after the burn-in
+     * @return iterator, must be closed after use
+     * @throws IOException
+     */
+    public static NewickTreeIterator iterator(File file, int burnIn, int sampleInterval) throws IOException {
+        return new NewickTreeIterator(file, burnIn, sampleInterval);
+    }
 
     /**
      * write trees
@@ -0,0 +1,141 @@
+/*
+ *   NewickRecordReader.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * splits Newick input into tree records, one at a time. A record ends at a semicolon that is not contained
+ * in a quoted label or in a bracketed comment. As in Newick.read, lines are trimmed and concatenated.
+ * Only the current line and the current record are held in memory, and records can be skipped without
+ * building their string
+ */
+public class NewickRecordReader implements Closeable {
+    private final BufferedReader reader;
+
+    private String line = "";
+    private int pos = 0;
+    private boolean inQuotes = false;
+    private int commentDepth = 0;
+    private boolean done = false;
+
+    protected int numberOfRecords = 0;
+
+    /**
+     * constructor
+     *
+     * @param reader
+     */
+    public NewickRecordReader(Reader reader) {
+        this.reader = (reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader));
+    }
+
+    /**
+     * constructor for subclasses that do not read from a reader
+     */
+    protected NewickRecordReader() {
+        this.reader = null;
+    }
+
+    /**
+     * gets the next tree record, including its terminating semicolon, if present
+     *
+     * @return next record or null, if there are no more records
+     */
+    public String next() throws IOException {
+        final StringBuilder buf = new StringBuilder();
+        return scan(buf) ? buf.toString() : null;
+    }
+
+    /**
+     * skips the next tree record
+     *
+     * @return true, if a record was skipped, false, if there are no more records
+     */
+    public boolean skip() throws IOException {
+        return scan(null);
+    }
+
+    /**
+     * number of records returned or skipped so far
+     *
+     * @return number of records
+     */
+    public int getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+    /**
+     * scans the next record
+     *
+     * @param buf collects the record, if non-null
+     * @return true, if a non-empty record was found
+     */
+    private boolean scan(StringBuilder buf) throws IOException {
+        boolean nonEmpty = false;
+        while (!done) {
+            if (pos >= line.length()) {
+                final String aLine = reader.readLine();
+                if (aLine == null) {
+                    done = true;
+                    break;
+                }
+                line = aLine.trim();
+                pos = 0;
+                continue;
+            }
+            final char ch = line.charAt(pos++);
+            if (buf != null)
+                buf.append(ch);
+            if (!Character.isWhitespace(ch))
+                nonEmpty = true;
+
+            if (inQuotes) {
+                if (ch == '\'')
+                    inQuotes = false;
+            } else if (commentDepth > 0) {
+                if (ch == '[')
+                    commentDepth++;
+                else if (ch == ']')
+                    commentDepth--;
+            } else if (ch == '\'')
+                inQuotes = true;
+            else if (ch == '[')
+                commentDepth++;
+            else if (ch == ';') {
+                numberOfRecords++;
+                return true;
+            }
+        }
+        if (nonEmpty) // last tree was not terminated by a semicolon
+        {
+            numberOfRecords++;
+            return true;
+        }
+        return false;
+    }
+
+    public void close() throws IOException {
+        if (reader != null)
+            reader.close();
+    }
+}
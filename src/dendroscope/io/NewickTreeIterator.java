@@ -0,0 +1,139 @@
+/*
+ *   NewickTreeIterator.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.io;
+
+import dendroscope.core.TreeData;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * iterates over the trees of a Newick file, parsing one tree at a time, so that files of any size can be
+ * processed in bounded memory. Supports a burn-in, i.e. a number of leading trees to skip, and thinning,
+ * i.e. taking only every k-th tree after the burn-in. Skipped trees are not parsed.
+ * Trees are named Tree1, Tree2,... by their position in the file
+ */
+public class NewickTreeIterator implements Iterator<TreeData>, Closeable {
+    private final NewickRecordReader recordReader;
+    private final int burnIn;
+    private final int sampleInterval;
+
+    private TreeData nextTree;
+    private boolean warned = false;
+
+    /**
+     * iterate over all trees in a file
+     *
+     * @param file
+     */
+    public NewickTreeIterator(File file) throws IOException {
+        this(file, 0, 1);
+    }
+
+    /**
+     * iterate over trees in a file
+     *
+     * @param file
+     * @param burnIn         number of leading trees to skip
+     * @param sampleInterval take every sampleInterval-th tree after the burn-in
+     */
+    public NewickTreeIterator(File file, int burnIn, int sampleInterval) throws IOException {
+        this(new FileReader(file), burnIn, sampleInterval);
+    }
+
+    /**
+     * iterate over trees
+     *
+     * @param reader
+     * @param burnIn         number of leading trees to skip
+     * @param sampleInterval take every sampleInterval-th tree after the burn-in
+     */
+    public NewickTreeIterator(Reader reader, int burnIn, int sampleInterval) {
+        this.recordReader = new NewickRecordReader(reader);
+        this.burnIn = Math.max(0, burnIn);
+        this.sampleInterval = Math.max(1, sampleInterval);
+    }
+
+    /**
+     * are there more trees?
+     *
+     * @return true, if more trees
+     */
+    public boolean hasNext() {
+        if (nextTree == null) {
+            try {
+                nextTree = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return nextTree != null;
+    }
+
+    /**
+     * gets the next tree
+     *
+     * @return next tree
+     */
+    public TreeData next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        final TreeData result = nextTree;
+        nextTree = null;
+        return result;
+    }
+
+    /**
+     * number of trees read or skipped so far
+     *
+     * @return number of records
+     */
+    public int getNumberOfTreesScanned() {
+        return recordReader.getNumberOfRecords();
+    }
+
+    /**
+     * skip to the next tree to be sampled and parse it
+     *
+     * @return tree or null
+     */
+    private TreeData readNext() throws IOException {
+        while (recordReader.getNumberOfRecords() < burnIn
+                || (recordReader.getNumberOfRecords() - burnIn) % sampleInterval != 0) {
+            if (!recordReader.skip())
+                return null;
+        }
+        final String record = recordReader.next();
+        if (record == null)
+            return null;
+        if (!warned && record.contains("#")) {
+            System.err.println("Input contains the special character '#', will try to interpret as extended-Newick");
+            warned = true;
+        }
+        final TreeData tree = new TreeData();
+        tree.parseBracketNotation(record, true);
+        tree.setName("Tree" + recordReader.getNumberOfRecords());
+        return tree;
+    }
+
+    public void close() throws IOException {
+        recordReader.close();
+    }
+}
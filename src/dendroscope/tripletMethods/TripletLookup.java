@@ -0,0 +1,93 @@
+/*
+ *   TripletLookup.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.tripletMethods;
+
+/**
+ * bit-packed lookup table of triplets on leaves 1..n, replacing a boolean[][][] table.
+ * <p>
+ * Row (x,y) is a bit set of all leaves c such that the triplet xc|y is present. Each row occupies a fixed
+ * number of consecutive longs, so "all c with xc|y" is available as a bit mask, which lets
+ * the SN-set computation proceed a word at a time. The table uses n^3 bits, an eighth of the boolean table
+ */
+class TripletLookup {
+    private final int dim;
+    private final int rowWords;
+    private final long[] bits;
+
+    /**
+     * constructor
+     *
+     * @param dim one more than the largest leaf number
+     */
+    public TripletLookup(int dim) {
+        this.dim = dim;
+        this.rowWords = (dim + 63) >>> 6;
+        final long size = (long) dim * dim * rowWords;
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many leaves for triplet lookup: " + dim);
+        this.bits = new long[(int) size];
+    }
+
+    public int getDim() {
+        return dim;
+    }
+
+    /**
+     * number of longs used per row
+     *
+     * @return row words
+     */
+    public int getRowWords() {
+        return rowWords;
+    }
+
+    private int rowOffset(int x, int y) {
+        return (x * dim + y) * rowWords;
+    }
+
+    /**
+     * adds the triplet ab|c
+     */
+    public void add(int a, int b, int c) {
+        int offset = rowOffset(a, c) + (b >>> 6);
+        bits[offset] |= (1L << b);
+        offset = rowOffset(b, c) + (a >>> 6);
+        bits[offset] |= (1L << a);
+    }
+
+    /**
+     * does the table contain the triplet ab|c (or, equivalently, ba|c)?
+     */
+    public boolean contains(int a, int b, int c) {
+        return (bits[rowOffset(a, c) + (b >>> 6)] & (1L << b)) != 0;
+    }
+
+    /**
+     * ors the set of all c with xc|y into the given mask
+     *
+     * @param x
+     * @param y
+     * @param mask array of at least getRowWords() longs
+     */
+    public void orRow(int x, int y, long[] mask) {
+        final int offset = rowOffset(x, y);
+        for (int w = 0; w < rowWords; w++)
+            mask[w] |= bits[offset + w];
+    }
+}
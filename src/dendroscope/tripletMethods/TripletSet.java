@@ -18,6 +18,7 @@
  */
 package dendroscope.tripletMethods;
 
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Stack;
 import java.util.Vector;
@@ -33,7 +34,7 @@ class TripletSet {
     private Vector tripVec;
     private int numLeaves;
     private boolean finalised;
-    private boolean[][][] lookup;
+    private TripletLookup lookup;
 
     public TripletSet() {
         tripVec = new Vector();
@@ -65,16 +66,16 @@ class TripletSet {
         this.finalised = finalised;
     }
 
-    public boolean[][][] getLookup() {
+    public TripletLookup getLookup() {
         return lookup;
     }
 
-    public void setLookup(boolean[][][] lookup) {
+    public void setLookup(TripletLookup lookup) {
         this.lookup = lookup;
     }
 
     public void initLookup(int size) {
-        this.lookup = new boolean[size + 1][size + 1][size + 1];
+        this.lookup = new TripletLookup(size + 1);
     }
 
     public Enumeration elements() {
@@ -142,13 +143,11 @@ class TripletSet {
 
 
     public boolean containsTripletFast(int a, int b, int c) {
-        return (lookup[a][b][c] || lookup[b][a][c]);
+        return lookup.contains(a, b, c);
     }
 
     public void addTripletInMatrix(int a, int b, int c) {
-
-        lookup[a][b][c] = true;
-        lookup[b][a][c] = true;
+        lookup.add(a, b, c);
     }
 
 
@@ -180,7 +179,7 @@ class TripletSet {
         int swap;
 
         if (finalised == true) {
-            return (lookup[a][b][c] || lookup[b][a][c]);
+            return lookup.contains(a, b, c);
         }
 
         //! swap a and b around, if necessary...
@@ -206,7 +205,7 @@ class TripletSet {
     public void finaliseAndOptimise() {
         finalised = true;
 
-        lookup = new boolean[numLeaves + 1][numLeaves + 1][numLeaves + 1];
+        lookup = new TripletLookup(numLeaves + 1);
 
         Enumeration e = this.tripVec.elements();
 
@@ -217,8 +216,7 @@ class TripletSet {
             int y = t[1];
             int z = t[2];
 
-            lookup[x][y][z] = true;
-            lookup[y][x][z] = true;
+            lookup.add(x, y, z);
         }
 
     }
@@ -231,6 +229,9 @@ class TripletSet {
     //! added because of triplets of the form x1 * | x2
 
     public KSet FastComputeSN(int x, int y) {
+        if (finalised && lookup != null && lookup.getDim() > numLeaves)
+            return wordParallelComputeSN(x, y);
+
         int n = numLeaves;
 
         KSet X = new KSet(n);
@@ -263,6 +264,53 @@ class TripletSet {
         return X;
     }
 
+    //! Same as above, but using the bit-packed lookup table: for the current z and every a in X,
+    //! all c with ac|z or zc|a are obtained as bit masks and added to Z a word at a time.
+    //! The result is the closure of {x,y} and does not depend on the order in which z's are processed
+
+    private KSet wordParallelComputeSN(int x, int y) {
+        final int words = lookup.getRowWords();
+        final long[] X = new long[words];
+        final long[] Z = new long[words];
+        final long[] candidates = new long[words];
+
+        X[x >>> 6] |= (1L << x);
+        Z[y >>> 6] |= (1L << y);
+
+        int z;
+        while ((z = firstBit(Z)) != -1) {
+            Z[z >>> 6] &= ~(1L << z);
+            X[z >>> 6] |= (1L << z);
+
+            Arrays.fill(candidates, 0L);
+            for (int w = 0; w < words; w++) {
+                for (long word = X[w]; word != 0; word &= word - 1) {
+                    final int a = (w << 6) + Long.numberOfTrailingZeros(word);
+                    lookup.orRow(a, z, candidates);
+                    lookup.orRow(z, a, candidates);
+                }
+            }
+            for (int w = 0; w < words; w++)
+                Z[w] |= candidates[w] & ~X[w];
+        }
+
+        final KSet result = new KSet(numLeaves);
+        for (int w = 0; w < words; w++) {
+            for (long word = X[w]; word != 0; word &= word - 1) {
+                result.addLeaf((w << 6) + Long.numberOfTrailingZeros(word));
+            }
+        }
+        return result;
+    }
+
+    private static int firstBit(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+        }
+        return -1;
+    }
+
     //! Returns a vector of KSets, one KSet per leaf. This to
     //! retain compatibility with computeCTBRs routine from
     //! KSet
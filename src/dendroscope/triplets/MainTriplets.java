@@ -69,8 +69,13 @@ public class MainTriplets {
         }
 
 
-        TripletMatrix matrix = new TripletMatrix();
-        matrix.setDim(allTaxa.size());
+        // each tree displays one triplet per set of three of its own taxa, and there are at most three triplets
+        // per set of three taxa, so this bounds the number of distinct triplets observed:
+        long expectedNumberOfTriplets = 0;
+        for (PhyloTreeTri tree : Trees)
+            expectedNumberOfTriplets += TripletMatrix.numberOfTaxonTriples(tree.computeSetOfLeaves().size());
+        expectedNumberOfTriplets = Math.min(expectedNumberOfTriplets, 3 * TripletMatrix.numberOfTaxonTriples(allTaxa.size()));
+        TripletMatrix matrix = TripletMatrix.create(allTaxa.size(), expectedNumberOfTriplets);
 
         for (int m = 0; m < Trees.length; m++) {
             System.out.println("Tree " + m);
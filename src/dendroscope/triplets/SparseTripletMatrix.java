@@ -0,0 +1,141 @@
+/*
+ *   SparseTripletMatrix.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.triplets;
+
+import java.util.Arrays;
+
+/**
+ * Triplet matrix for inputs in which only few of the n^3 triplets are observed.
+ * Counts are kept in an open-addressing hash table with primitive long keys, that encode ij|z with i<=j
+ */
+
+public class SparseTripletMatrix extends TripletMatrix {
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int dim;
+
+    public void setDim(int dimTrees) {
+        dim = dimTrees;
+        keys = new long[16];
+        Arrays.fill(keys, EMPTY);
+        values = new int[16];
+        size = 0;
+    }
+
+    public void deleteMatrix() {
+        setDim(dim);
+    }
+
+    int getDim() {
+        return dim;
+    }
+
+    /**
+     * number of triplets with non-zero count
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    private long key(int i, int j, int z) {
+        if (i <= j)
+            return ((long) i * dim + j) * dim + z;
+        else
+            return ((long) j * dim + i) * dim + z;
+    }
+
+    /**
+     * slot of the given key, or of the empty slot at which it would be inserted
+     */
+    private int slot(long key) {
+        final int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int pos = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[pos] != EMPTY && keys[pos] != key)
+            pos = (pos + 1) & mask;
+        return pos;
+    }
+
+    int getValue(int i, int j, int z) {
+        final int pos = slot(key(i, j, z));
+        return keys[pos] == EMPTY ? 0 : values[pos];
+    }
+
+    void setValue(int i, int j, int z, int value) {
+        final long key = key(i, j, z);
+        int pos = slot(key);
+        if (keys[pos] == EMPTY) {
+            if (value == 0)
+                return;
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                pos = slot(key);
+            }
+            keys[pos] = key;
+            size++;
+        }
+        values[pos] = value;
+    }
+
+    public void addOne(int i, int j, int z) {
+        setValue(i, j, z, getValue(i, j, z) + 1);
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+        values = new int[2 * oldValues.length];
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != EMPTY) {
+                final int pos = slot(oldKeys[k]);
+                keys[pos] = oldKeys[k];
+                values[pos] = oldValues[k];
+            }
+        }
+    }
+
+    void print() {
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] != EMPTY && values[k] != 0) {
+                final int z = (int) (keys[k] % dim);
+                final int j = (int) ((keys[k] / dim) % dim);
+                final int i = (int) (keys[k] / ((long) dim * dim));
+                System.out.println(i + "," + j + "|" + z);
+            }
+        }
+    }
+
+    void copy(TripletMatrix R) {
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] != EMPTY && values[k] != 0) {
+                final int z = (int) (keys[k] % dim);
+                final int j = (int) ((keys[k] / dim) % dim);
+                final int i = (int) (keys[k] / ((long) dim * dim));
+                R.setValue(i, j, z, values[k]);
+            }
+        }
+    }
+}
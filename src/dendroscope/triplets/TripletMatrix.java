@@ -18,45 +18,66 @@
  */
 package dendroscope.triplets;
 
-import java.util.Vector;
-
 /**
  * This class encode triplets
+ * <p>
+ * Counts are kept in a single flat int array. As a triplet ij|z is the same as ji|z, only pairs i<=j are stored:
+ * the pair is mapped to its rank in the upper triangle and z is the fastest-varying index
  *
  * @author celine scornavacca, 6.2010
  */
 
 public class TripletMatrix {
 
-    private Vector<Vector<Vector<Integer>>> GroupOfTriplets;
+    private int[] counts;
     private int dim; // the dimension of the matrix dim * dim * dim
 
+    /**
+     * creates a triplet matrix for the given number of taxa, choosing the sparse representation if only few
+     * triplets are expected to be observed
+     *
+     * @param dim                      number of taxa
+     * @param expectedNumberOfTriplets upper bound on number of distinct triplets that will be set
+     * @return triplet matrix
+     */
+    public static TripletMatrix create(int dim, long expectedNumberOfTriplets) {
+        final TripletMatrix matrix;
+        if (4 * expectedNumberOfTriplets < numberOfCells(dim))
+            matrix = new SparseTripletMatrix();
+        else
+            matrix = new TripletMatrix();
+        matrix.setDim(dim);
+        return matrix;
+    }
+
+    /**
+     * number of sets of three taxa
+     *
+     * @param numberOfTaxa
+     * @return n choose 3
+     */
+    public static long numberOfTaxonTriples(long numberOfTaxa) {
+        return numberOfTaxa * (numberOfTaxa - 1) * (numberOfTaxa - 2) / 6;
+    }
+
+    /**
+     * number of cells required by the dense representation
+     */
+    static long numberOfCells(int dim) {
+        return (long) dim * (dim + 1) / 2 * dim;
+    }
 
     public void setDim(int dimTrees) {
         dim = dimTrees;
-        GroupOfTriplets = new Vector<>();
-        GroupOfTriplets.setSize(dimTrees);
-        for (int i = 0; i < dimTrees; ++i) {
-            GroupOfTriplets.setElementAt(new Vector<Vector<Integer>>(), i);
-            GroupOfTriplets.get(i).setSize(dimTrees);
-            for (int j = 0; j < dimTrees; ++j) {
-                GroupOfTriplets.get(i).setElementAt(new Vector<Integer>(), j);
-                GroupOfTriplets.get(i).get(j).setSize(dimTrees);
-                for (int z = 0; z < dimTrees; ++z)
-                    GroupOfTriplets.get(i).get(j).set(z, 0);
-            }
-        }
+        final long size = numberOfCells(dimTrees);
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many taxa for dense triplet matrix: " + dimTrees);
+        counts = new int[(int) size];
     }
 
 
     public void deleteMatrix() {
-        for (int i = 0; i < dim; i++) {
-            for (int j = 0; j < dim; j++) {
-                (GroupOfTriplets.get(i).get(j)).removeAllElements();
-            }
-            (GroupOfTriplets.get(i)).removeAllElements();
-        }
-        (GroupOfTriplets).removeAllElements();
+        counts = new int[0];
     }
 
 
@@ -64,23 +85,33 @@ public class TripletMatrix {
         return dim;
     }
 
+    /**
+     * index of the triplet ij|z in the flat array, requires i<=j
+     */
+    private int index(int i, int j, int z) {
+        return ((i * (2 * dim - i + 1)) / 2 + (j - i)) * dim + z;
+    }
+
     int getValue(int i, int j, int z) {
         if (i <= j)
-            return GroupOfTriplets.get(i).get(j).get(z);
+            return counts[index(i, j, z)];
         else
-            return GroupOfTriplets.get(j).get(i).get(z);
+            return counts[index(j, i, z)];
     }
 
     void setValue(int i, int j, int z, int value) {
         if (i <= j)
-            GroupOfTriplets.get(i).get(j).set(z, value);
+            counts[index(i, j, z)] = value;
         else
-            GroupOfTriplets.get(j).get(i).set(z, value);
+            counts[index(j, i, z)] = value;
     }
 
 
     public void addOne(int i, int j, int z) {
-        setValue(i, j, z, getValue(i, j, z) + 1);
+        if (i <= j)
+            counts[index(i, j, z)]++;
+        else
+            counts[index(j, i, z)]++;
     }
 
     void eraseTriplet(int i, int j, int z) {
@@ -92,8 +123,9 @@ public class TripletMatrix {
 
         for (int i = 0; i < dim; i++) {
             for (int j = i; j < dim; j++) {
+                final int offset = index(i, j, 0);
                 for (int z = 0; z < dim; z++) {
-                    if (GroupOfTriplets.get(i).get(j).get(z) != 0) {
+                    if (counts[offset + z] != 0) {
                         System.out.println(i + "," + j + "|" + z);
                     }
                 }
@@ -105,9 +137,10 @@ public class TripletMatrix {
     void copy(TripletMatrix R) {
         for (int i = 0; i < dim; i++) {
             for (int j = i; j < dim; j++) {
+                final int offset = index(i, j, 0);
                 for (int z = 0; z < dim; z++) {
-                    if (getValue(i, j, z) != 0)
-                        R.setValue(i, j, z, getValue(i, j, z));
+                    if (counts[offset + z] != 0)
+                        R.setValue(i, j, z, counts[offset + z]);
 
                 }
             }
@@ -115,6 +148,3 @@ public class TripletMatrix {
     }
 
 }
-
-
-    
@@ -26,6 +26,7 @@ import jloda.phylo.PhyloTree;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * compute different distances between two networks: - Hardwired Cluster
@@ -36,31 +37,63 @@ import java.util.*;
 
 public class DistanceMethods {
 
+    /**
+     * computes all pairwise distances between the given trees or networks in parallel, for a distance that
+     * is half the size of the symmetric difference of a set of features. The features of each tree are computed once
+     *
+     * @param trees
+     * @param features computes the features of a single tree, must be safe to call concurrently
+     * @return symmetric distance matrix
+     */
+    @SuppressWarnings("unchecked")
+    private static double[][] computeDistanceMatrix(List<PhyloTree> trees, Function<PhyloTree, Set<String>> features) {
+        final PhyloTree[] array = trees.toArray(new PhyloTree[0]);
+        final Set<String>[] tree2features = new Set[array.length];
+        ParallelExecutor.forEach(array.length, i -> tree2features[i] = features.apply(array[i]));
+        return ParallelDistanceMatrix.apply(array.length, (i, j) -> computeDifference(tree2features[i], tree2features[j]));
+    }
+
+    /**
+     * half the size of the symmetric difference of two sets of features
+     *
+     * @param features1
+     * @param features2
+     * @return distance
+     */
+    private static double computeDifference(Set<String> features1, Set<String> features2) {
+        int count = 0;
+        for (String s : features1) {
+            if (!features2.contains(s))
+                count++;
+        }
+        for (String s : features2) {
+            if (!features1.contains(s))
+                count++;
+        }
+        return ((double) count) / 2;
+    }
+
+    /**
+     * the labels of all leaves of the given trees, sorted
+     *
+     * @param trees
+     * @return sorted taxa
+     */
+    private static Vector<String> collectTaxa(List<PhyloTree> trees) {
+        final TreeSet<String> taxa = new TreeSet<>();
+        for (PhyloTree tree : trees) {
+            for (Node v : tree.computeSetOfLeaves())
+                taxa.add(tree.getLabel(v));
+        }
+        return new Vector<>(taxa);
+    }
+
     // **********************************************************************************
     // Hardwired Cluster Distance
     // **********************************************************************************
 
     public static double[][] computeHardwiredClusterDistance(List<PhyloTree> trees) {
-        PhyloTree[] array = trees.toArray(new PhyloTree[trees.size()]);
-        Set<Set<String>>[] clusters = (Set<Set<String>>[]) new HashSet[trees.size()];
-        for (int i = 0; i < array.length; i++) {
-            clusters[i] = PhyloTreeUtils.collectAllHardwiredClusters(array[i]);
-        }
-
-        double[][] distance = new double[trees.size()][array.length];
-
-        for (int i = 0; i < array.length; i++) {
-            for (int j = i + 1; j < array.length; j++) {
-                Set<Set<String>> common = new HashSet<Set<String>>();
-                for (Set<String> cluster : clusters[i]) {
-                    if (clusters[j].contains(cluster))
-                        common.add(cluster);
-                }
-                distance[i][j] = distance[j][i] = (clusters[i].size() + clusters[j].size() - 2 * common.size()) / 2;
-            }
-        }
-
-        return distance;
+        return HardwiredClusterDistance.apply(trees);
     }
 
     // **********************************************************************************
@@ -79,20 +112,19 @@ public class DistanceMethods {
         HashSet<String> n2PathVectors = collectPathMultiplicityVectors(
                 trees.get(1), taxa);
 
-        HashSet<String> diffVectors = new HashSet<String>();
-        for (String pV : n1PathVectors) {
-            if (!n2PathVectors.contains(pV))
-                diffVectors.add(pV);
-        }
-        for (String pV : n2PathVectors) {
-            if (!n1PathVectors.contains(pV))
-                diffVectors.add(pV);
-        }
-
-        return ((double) diffVectors.size()) / 2;
+        return computeDifference(n1PathVectors, n2PathVectors);
     }
 
-    private static int numOfPaths = 0;
+    /**
+     * computes the path multiplicity distances between all given trees or networks, using the taxa of all of them
+     *
+     * @param trees
+     * @return symmetric distance matrix
+     */
+    public static double[][] computePathMultiplicityDistances(List<PhyloTree> trees) {
+        final Vector<String> taxa = collectTaxa(trees);
+        return computeDistanceMatrix(trees, t -> collectPathMultiplicityVectors(t, taxa));
+    }
 
     private static HashSet<String> collectPathMultiplicityVectors(PhyloTree t, Vector<String> taxa) {
         HashSet<String> pathVectors = new HashSet<String>();
@@ -100,9 +132,7 @@ public class DistanceMethods {
             if (v.getOutDegree() != 0) {
                 String s = "";
                 for (String taxon : taxa) {
-                    numOfPaths = 0;
-                    computeMultiplicity(t, v, taxon);
-                    s = s.concat(String.valueOf(numOfPaths));
+                    s = s.concat(String.valueOf(computeMultiplicity(t, v, taxon)));
                 }
                 pathVectors.add(s);
             }
@@ -110,13 +140,15 @@ public class DistanceMethods {
         return pathVectors;
     }
 
-    private static void computeMultiplicity(PhyloTree t, Node v, String taxon) {
+    private static int computeMultiplicity(PhyloTree t, Node v, String taxon) {
+        int numOfPaths = 0;
         for (Node w : v.children()) {
             if (t.getLabel(w) != null && t.getLabel(w).equals(taxon))
                 numOfPaths++;
             else
-                computeMultiplicity(t, w, taxon);
+                numOfPaths += computeMultiplicity(t, w, taxon);
         }
+        return numOfPaths;
     }
 
     // **********************************************************************************
@@ -128,28 +160,26 @@ public class DistanceMethods {
         HashSet<String> n1MultiSet = collectNestedLabels(trees.get(0));
         HashSet<String> n2MultiSet = collectNestedLabels(trees.get(1));
 
-        HashSet<String> diffLabels = new HashSet<String>();
-        for (String nL : n1MultiSet) {
-            if (!n2MultiSet.contains(nL))
-                diffLabels.add(nL);
-        }
-        for (String nL : n2MultiSet) {
-            if (!n1MultiSet.contains(nL))
-                diffLabels.add(nL);
-        }
-
-        return ((double) diffLabels.size()) / 2;
+        return computeDifference(n1MultiSet, n2MultiSet);
     }
 
-    private static final Hashtable<Node, String> nodeToLabel = new Hashtable<Node, String>();
+    /**
+     * computes the nested-labels distances between all given trees or networks
+     *
+     * @param trees
+     * @return symmetric distance matrix
+     */
+    public static double[][] computeNestedLabelsDistances(List<PhyloTree> trees) {
+        return computeDistanceMatrix(trees, DistanceMethods::collectNestedLabels);
+    }
 
     private static HashSet<String> collectNestedLabels(PhyloTree t) {
 
-        nodeToLabel.clear();
+        final Map<Node, String> nodeToLabel = new HashMap<Node, String>();
         for (Node v : t.computeSetOfLeaves())
             nodeToLabel.put(v, t.getLabel(v));
 
-        computeNestedLabels(t.getRoot());
+        computeNestedLabels(t.getRoot(), nodeToLabel);
 
         HashSet<String> multiSet = new HashSet<String>();
         for (String s : nodeToLabel.values())
@@ -158,7 +188,7 @@ public class DistanceMethods {
         return multiSet;
     }
 
-    private static String computeNestedLabels(Node v) {
+    private static String computeNestedLabels(Node v, Map<Node, String> nodeToLabel) {
         if (!nodeToLabel.containsKey(v)) {
 
             Vector<String> childLabels = new Vector<>();
@@ -166,7 +196,7 @@ public class DistanceMethods {
                 if (nodeToLabel.containsKey(c))
                     childLabels.add(nodeToLabel.get(c));
                 else
-                    childLabels.add(computeNestedLabels(c));
+                    childLabels.add(computeNestedLabels(c, nodeToLabel));
             }
 
             String label = "{";
@@ -196,29 +226,28 @@ public class DistanceMethods {
         HashSet<String> n2Tripartitions = collectTripartitions(trees.get(1),
                 taxa);
 
-        HashSet<String> diffTripartitions = new HashSet<String>();
-        for (String trip : n1Tripartitions) {
-            if (!n2Tripartitions.contains(trip))
-                diffTripartitions.add(trip);
-        }
-        for (String trip : n2Tripartitions) {
-            if (!n1Tripartitions.contains(trip))
-                diffTripartitions.add(trip);
-        }
-
-        return ((double) diffTripartitions.size()) / 2;
+        return computeDifference(n1Tripartitions, n2Tripartitions);
     }
 
-    private static final Hashtable<String, HashSet<HashSet<Edge>>> taxonToPaths = new Hashtable<String, HashSet<HashSet<Edge>>>();
+    /**
+     * computes the tripartition distances between all given trees or networks, using the taxa of all of them
+     *
+     * @param trees
+     * @return symmetric distance matrix
+     */
+    public static double[][] computeTripartitionDistances(List<PhyloTree> trees) {
+        final Vector<String> taxa = collectTaxa(trees);
+        return computeDistanceMatrix(trees, t -> collectTripartitions(t, taxa));
+    }
 
     @SuppressWarnings("unchecked")
     private static HashSet<String> collectTripartitions(PhyloTree t,
                                                         Vector<String> taxa) {
 
         HashSet<String> tripartitions = new HashSet<String>();
-        taxonToPaths.clear();
+        final Map<String, HashSet<HashSet<Edge>>> taxonToPaths = new HashMap<String, HashSet<HashSet<Edge>>>();
 
-        initPathTable(t.getRoot(), new HashSet<Edge>(), t);
+        initPathTable(t.getRoot(), new HashSet<Edge>(), t, taxonToPaths);
 
         Iterator<Edge> it = t.edgeIterator();
         while (it.hasNext()) {
@@ -279,13 +308,13 @@ public class DistanceMethods {
     }
 
     @SuppressWarnings("unchecked")
-    private static void initPathTable(Node v, HashSet<Edge> path, PhyloTree t) {
+    private static void initPathTable(Node v, HashSet<Edge> path, PhyloTree t, Map<String, HashSet<HashSet<Edge>>> taxonToPaths) {
         if (v.getOutDegree() != 0) {
             for (Edge e : v.outEdges()) {
                 HashSet<Edge> pathCopy = (HashSet<Edge>) path.clone();
                 if (!t.isSpecial(e) && e.getTarget().getOutDegree() != 0)
                     pathCopy.add(e);
-                initPathTable(e.getTarget(), pathCopy, t);
+                initPathTable(e.getTarget(), pathCopy, t, taxonToPaths);
             }
         } else {
             String taxon = t.getLabel(v);
@@ -294,12 +323,7 @@ public class DistanceMethods {
                 set.add(path);
                 taxonToPaths.put(taxon, set);
             } else {
-                HashSet<HashSet<Edge>> set = (HashSet<HashSet<Edge>>) taxonToPaths
-                        .get(taxon).clone();
-                taxonToPaths.remove(taxon);
-                if (!set.contains(path))
-                    set.add(path);
-                taxonToPaths.put(taxon, set);
+                taxonToPaths.get(taxon).add(path);
             }
         }
     }
@@ -318,17 +342,17 @@ public class DistanceMethods {
         Set<String> n1TreeStrings = computeTreeStrings(n1DisplayesTrees);
         Set<String> n2TreeStrings = computeTreeStrings(n2DisplayesTrees);
 
-        HashSet<String> diffTrees = new HashSet<String>();
-        for (String s1 : n1TreeStrings) {
-            if (!n2TreeStrings.contains(s1))
-                diffTrees.add(s1);
-        }
-        for (String s2 : n2TreeStrings) {
-            if (!n1TreeStrings.contains(s2))
-                diffTrees.add(s2);
-        }
+        return computeDifference(n1TreeStrings, n2TreeStrings);
+    }
 
-        return ((double) diffTrees.size()) / 2;
+    /**
+     * computes the displayed-trees distances between all given trees or networks
+     *
+     * @param trees
+     * @return symmetric distance matrix
+     */
+    public static double[][] computeDisplayedTreesDistances(List<PhyloTree> trees) {
+        return computeDistanceMatrix(trees, t -> computeTreeStrings(collectDisplayedTrees(t)));
     }
 
     private static Set<String> computeTreeStrings(HashSet<PhyloTree> trees) {
@@ -340,12 +364,17 @@ public class DistanceMethods {
         return treeStrings;
     }
 
-    private static final HashSet<PhyloTree> displayedTrees = new HashSet<PhyloTree>();
+    private static HashSet<PhyloTree> collectDisplayedTrees(PhyloTree tree) {
 
-    @SuppressWarnings("unchecked")
-    private static HashSet<PhyloTree> collectDisplayedTrees(PhyloTree t) {
+        final HashSet<PhyloTree> displayedTrees = new HashSet<PhyloTree>();
 
-        displayedTrees.clear();
+        // work on a copy, as the node and edge infos are used to number reticulations:
+        PhyloTree t = new PhyloTree();
+        t.copy(tree);
+        for (Node v : t.nodes()) {
+            if (v.getInDegree() == 0)
+                t.setRoot(v);
+        }
 
         int id = 0;
         for (Node v : t.nodes()) {
@@ -359,15 +388,15 @@ public class DistanceMethods {
         }
 
         try {
-            computeTrees(0, t);
+            computeTrees(0, t, displayedTrees);
         } catch (IOException e) {
             e.printStackTrace();
         }
 
-        return (HashSet<PhyloTree>) displayedTrees.clone();
+        return displayedTrees;
     }
 
-    private static void computeTrees(int id, PhyloTree t) throws IOException {
+    private static void computeTrees(int id, PhyloTree t, Set<PhyloTree> displayedTrees) throws IOException {
 
         Node r = getNodeFromID(t, id);
 
@@ -399,7 +428,7 @@ public class DistanceMethods {
                     tCopy.setWeight(treeEdge, 1.0);
                 }
                 int newID = id + 1;
-                computeTrees(newID, tCopy);
+                computeTrees(newID, tCopy, displayedTrees);
 
             }
         } else {
@@ -473,32 +502,30 @@ public class DistanceMethods {
         HashSet<PhyloTree> n2DisplayesTrees = collectDisplayedTrees(trees
                 .get(1));
 
-        HashSet<String> n1Clusters = new HashSet<String>();
-        for (PhyloTree t : n1DisplayesTrees) {
-            Set<Set<String>> clusters = PhyloTreeUtils
-                    .collectAllHardwiredClusters(t);
-            for (Set<String> o : clusters)
-                n1Clusters.add(o.toString());
-        }
+        HashSet<String> n1Clusters = computeClusterStrings(n1DisplayesTrees);
+        HashSet<String> n2Clusters = computeClusterStrings(n2DisplayesTrees);
+
+        return computeDifference(n1Clusters, n2Clusters);
+    }
 
-        HashSet<String> n2Clusters = new HashSet<String>();
-        for (PhyloTree t : n2DisplayesTrees) {
+    /**
+     * computes the softwired distances between all given trees or networks
+     *
+     * @param trees
+     * @return symmetric distance matrix
+     */
+    public static double[][] computeSoftwiredDistances(List<PhyloTree> trees) {
+        return computeDistanceMatrix(trees, t -> computeClusterStrings(collectDisplayedTrees(t)));
+    }
+
+    private static HashSet<String> computeClusterStrings(HashSet<PhyloTree> trees) {
+        HashSet<String> clusterStrings = new HashSet<String>();
+        for (PhyloTree t : trees) {
             Set<Set<String>> clusters = PhyloTreeUtils.collectAllHardwiredClusters(t);
             for (Set<String> o : clusters)
-                n2Clusters.add(o.toString());
-        }
-
-        HashSet<String> diffClusters = new HashSet<String>();
-        for (String c : n1Clusters) {
-            if (!n2Clusters.contains(c))
-                diffClusters.add(c);
-        }
-        for (String c : n2Clusters) {
-            if (!n1Clusters.contains(c))
-                diffClusters.add(c);
+                clusterStrings.add(o.toString());
         }
-
-        return ((double) diffClusters.size()) / 2;
+        return clusterStrings;
     }
 
     // **********************************************************************************
@@ -513,33 +540,32 @@ public class DistanceMethods {
         HashSet<String> n1IsoStrings = computeIsoStrings(n1Subnetworks);
         HashSet<String> n2IsoStrings = computeIsoStrings(n2Subnetworkst);
 
-        HashSet<String> diffIsoStrings = new HashSet<String>();
-        for (String s1 : n1IsoStrings) {
-            if (!n2IsoStrings.contains(s1))
-                diffIsoStrings.add(s1);
-        }
-        for (String s2 : n2IsoStrings) {
-            if (!n1IsoStrings.contains(s2))
-                diffIsoStrings.add(s2);
-        }
-        return ((double) diffIsoStrings.size()) / 2;
+        return computeDifference(n1IsoStrings, n2IsoStrings);
     }
 
-    private static final Hashtable<Node, Node> nodeToCopy = new Hashtable<Node, Node>();
+    /**
+     * computes the subnetwork distances between all given trees or networks
+     *
+     * @param trees
+     * @return symmetric distance matrix
+     */
+    public static double[][] computeSubnetworkDistances(List<PhyloTree> trees) {
+        return computeDistanceMatrix(trees, t -> computeIsoStrings(collectSubnetworks(t)));
+    }
 
     public static HashSet<PhyloTree> collectSubnetworks(PhyloTree t) {
         HashSet<PhyloTree> multiSet = new HashSet<PhyloTree>();
         for (Node v : t.nodes()) {
 
             PhyloTree subnet = new PhyloTree();
-            nodeToCopy.clear();
+            final Map<Node, Node> nodeToCopy = new HashMap<Node, Node>();
 
             Node vCopy = subnet.newNode(v);
             subnet.setLabel(vCopy, t.getLabel(v));
             nodeToCopy.put(v, vCopy);
             subnet.setRoot(vCopy);
 
-            computeSubnetwork(v, t, vCopy, subnet);
+            computeSubnetwork(v, t, vCopy, subnet, nodeToCopy);
 
             refineTree(subnet);
             multiSet.add(subnet);
@@ -547,7 +573,7 @@ public class DistanceMethods {
         return multiSet;
     }
 
-    private static void computeSubnetwork(Node v, PhyloTree t, Node vCopy, PhyloTree subnet) {
+    private static void computeSubnetwork(Node v, PhyloTree t, Node vCopy, PhyloTree subnet, Map<Node, Node> nodeToCopy) {
         for (Node c : v.children()) {
             if (nodeToCopy.containsKey(c)) {
                 Node cCopy = nodeToCopy.get(c);
@@ -561,7 +587,7 @@ public class DistanceMethods {
                 subnet.setLabel(cCopy, t.getLabel(c));
                 subnet.newEdge(vCopy, cCopy);
                 nodeToCopy.put(c, cCopy);
-                computeSubnetwork(c, t, cCopy, subnet);
+                computeSubnetwork(c, t, cCopy, subnet, nodeToCopy);
             }
         }
 
@@ -578,40 +604,42 @@ public class DistanceMethods {
     // Galled tree - Galled network - Level-k network
     // **********************************************************************************
 
-    private static boolean isGalledTree;
-    private static boolean isGalledNetwork;
+    /**
+     * state of a single computation of the tree definitions
+     */
+    private static class TreeDefinitions {
+        private boolean isGalledTree = true;
+        private boolean isGalledNetwork = true;
 
-    private static Hashtable<Node, HashSet<BitSet>> retToBiComponents;
-    private static Vector<Edge> edgeOrder;
+        private final Hashtable<Node, HashSet<BitSet>> retToBiComponents = new Hashtable<Node, HashSet<BitSet>>();
+        private final Vector<Edge> edgeOrder = new Vector<Edge>();
+    }
 
     public static Object[] computeTreeDefinitions(PhyloTree tree) {
 
-        isGalledTree = true;
-        isGalledNetwork = true;
-        retToBiComponents = new Hashtable<Node, HashSet<BitSet>>();
+        final TreeDefinitions state = new TreeDefinitions();
 
-        edgeOrder = new Vector<Edge>();
         Iterator<Edge> it = tree.edgeIterator();
         while (it.hasNext())
-            edgeOrder.add(it.next());
+            state.edgeOrder.add(it.next());
 
         for (Node v : tree.nodes()) {
             if (v.getInDegree() > 1)
-                collectBiComponents(v);
+                collectBiComponents(state, v);
         }
 
         int levelK = 1;
-        for (Node r1 : retToBiComponents.keySet()) {
+        for (Node r1 : state.retToBiComponents.keySet()) {
             int k = 1;
-            for (Node r2 : retToBiComponents.keySet()) {
+            for (Node r2 : state.retToBiComponents.keySet()) {
                 boolean isContained = false;
                 if (!r1.equals(r2)) {
-                    for (BitSet b1 : retToBiComponents.get(r1)) {
-                        for (BitSet b2 : retToBiComponents.get(r2)) {
+                    for (BitSet b1 : state.retToBiComponents.get(r1)) {
+                        for (BitSet b2 : state.retToBiComponents.get(r2)) {
                             BitSet b = (BitSet) b1.clone();
                             b.and(b2);
                             if (b.cardinality() > 0) {
-                                isGalledTree = false;
+                                state.isGalledTree = false;
                                 isContained = true;
                                 break;
                             }
@@ -627,11 +655,11 @@ public class DistanceMethods {
                 levelK = k;
         }
 
-        Object[] definitions = {isGalledTree, isGalledNetwork, levelK};
+        Object[] definitions = {state.isGalledTree, state.isGalledNetwork, levelK};
         return definitions;
     }
 
-    private static void collectBiComponents(Node v) {
+    private static void collectBiComponents(TreeDefinitions state, Node v) {
         Vector<Edge> inEdges = new Vector<Edge>();
         for (Edge e : v.inEdges())
             inEdges.add(e);
@@ -639,28 +667,28 @@ public class DistanceMethods {
 
         for (int i = 0; i < inEdges.size() - 1; i++) {
             for (int j = i + 1; j < inEdges.size(); j++)
-                computeBiComponentsStepOne(new Vector<Edge>(), inEdges.get(i), inEdges.get(j), v);
+                computeBiComponentsStepOne(state, new Vector<Edge>(), inEdges.get(i), inEdges.get(j), v);
         }
     }
 
-    private static void computeBiComponentsStepOne(Vector<Edge> e1Edges,
+    private static void computeBiComponentsStepOne(TreeDefinitions state, Vector<Edge> e1Edges,
                                                    Edge e1, Edge e2, Node v) {
         e1Edges.add(e1);
         Node s = e1.getSource();
         if (s.getInDegree() == 0)
-            computeBiComponentsStepTwo(e1Edges, e2, new HashSet<Edge>(), v);
+            computeBiComponentsStepTwo(state, e1Edges, e2, new HashSet<Edge>(), v);
         else if (s.getInDegree() > 1) {
-            isGalledTree = false;
-            isGalledNetwork = false;
+            state.isGalledTree = false;
+            state.isGalledNetwork = false;
             for (Edge e : s.inEdges()) {
                 Vector<Edge> e1EdgesCopy = (Vector<Edge>) e1Edges.clone();
-                computeBiComponentsStepOne(e1EdgesCopy, e, e2, v);
+                computeBiComponentsStepOne(state, e1EdgesCopy, e, e2, v);
             }
         } else
-            computeBiComponentsStepOne(e1Edges, s.getFirstInEdge(), e2, v);
+            computeBiComponentsStepOne(state, e1Edges, s.getFirstInEdge(), e2, v);
     }
 
-    private static void computeBiComponentsStepTwo(Vector<Edge> e1Edges, Edge e2, HashSet<Edge> e2Edges, Node v) {
+    private static void computeBiComponentsStepTwo(TreeDefinitions state, Vector<Edge> e1Edges, Edge e2, HashSet<Edge> e2Edges, Node v) {
         if (!e1Edges.contains(e2)) {
             e2Edges.add(e2);
             Node s = e2.getSource();
@@ -668,38 +696,38 @@ public class DistanceMethods {
                 HashSet<Edge> biComponent = new HashSet<Edge>();
                 biComponent.addAll(e1Edges);
                 biComponent.addAll(e2Edges);
-                putRetToComponent(v, biComponent);
+                putRetToComponent(state, v, biComponent);
             } else if (s.getInDegree() > 1) {
-                isGalledTree = false;
-                isGalledNetwork = false;
+                state.isGalledTree = false;
+                state.isGalledNetwork = false;
                 for (Edge e : s.inEdges()) {
                     HashSet<Edge> e2EdgesCopy = (HashSet<Edge>) e2Edges.clone();
-                    computeBiComponentsStepTwo(e1Edges, e, e2EdgesCopy, v);
+                    computeBiComponentsStepTwo(state, e1Edges, e, e2EdgesCopy, v);
                 }
             } else
-                computeBiComponentsStepTwo(e1Edges, s.getFirstInEdge(),
+                computeBiComponentsStepTwo(state, e1Edges, s.getFirstInEdge(),
                         e2Edges, v);
         } else {
             int index = e1Edges.indexOf(e2);
             HashSet<Edge> biComponent = new HashSet<Edge>();
             biComponent.addAll(e2Edges);
             biComponent.addAll(e1Edges.subList(0, index));
-            putRetToComponent(v, biComponent);
+            putRetToComponent(state, v, biComponent);
         }
 
     }
 
-    private static void putRetToComponent(Node v, HashSet<Edge> biComponent) {
-        BitSet b = new BitSet(edgeOrder.size());
+    private static void putRetToComponent(TreeDefinitions state, Node v, HashSet<Edge> biComponent) {
+        BitSet b = new BitSet(state.edgeOrder.size());
         for (Edge e : biComponent)
-            b.set(edgeOrder.indexOf(e));
-        if (retToBiComponents.containsKey(v)) {
-            HashSet<BitSet> set = retToBiComponents.get(v);
+            b.set(state.edgeOrder.indexOf(e));
+        if (state.retToBiComponents.containsKey(v)) {
+            HashSet<BitSet> set = state.retToBiComponents.get(v);
             set.add(b);
         } else {
             HashSet<BitSet> set = new HashSet<BitSet>();
             set.add(b);
-            retToBiComponents.put(v, set);
+            state.retToBiComponents.put(v, set);
         }
     }
 
@@ -757,152 +785,157 @@ public class DistanceMethods {
     // Time-consistent Property
     // **********************************************************************************
 
-    private static boolean isTimeConsistent;
-
     public static Boolean hasTimeConsistentProperty(PhyloTree tree) {
+        return new TimeConsistency().apply(tree);
+    }
 
-        isTimeConsistent = false;
+    /**
+     * state of a single computation of the time-consistent property
+     */
+    private static class TimeConsistency {
+        private Hashtable<Integer, Node> levelToNode;
+        private Hashtable<Node, Integer> nodeToLevel;
+        private boolean hasSelfCycle;
 
-        try {
+        private Boolean apply(PhyloTree tree) {
+            boolean isTimeConsistent;
 
-            PhyloTree t = new PhyloTree();
-            t.parseBracketNotation(tree.toBracketString(), true);
+            try {
 
-            HashSet<HashSet<Node>> retSets = new HashSet<HashSet<Node>>();
-            Vector<Node> reticulations = new Vector<Node>();
-            for (Node v : t.nodes()) {
-                if (v.getInDegree() > 1)
-                    reticulations.add(v);
-            }
-            while (!reticulations.isEmpty()) {
-                HashSet<Node> retSet = new HashSet<Node>();
-                collectRetSet(reticulations.firstElement(), reticulations,
-                        retSet);
-                retSets.add(retSet);
+                PhyloTree t = new PhyloTree();
+                t.parseBracketNotation(tree.toBracketString(), true);
+
+                HashSet<HashSet<Node>> retSets = new HashSet<HashSet<Node>>();
+                Vector<Node> reticulations = new Vector<Node>();
+                for (Node v : t.nodes()) {
+                    if (v.getInDegree() > 1)
+                        reticulations.add(v);
+                }
+                while (!reticulations.isEmpty()) {
+                    HashSet<Node> retSet = new HashSet<Node>();
+                    collectRetSet(reticulations.firstElement(), reticulations,
+                            retSet);
+                    retSets.add(retSet);
+                }
+
+                Graph g = computeDependencyGraph(retSets, t);
+                if (hasSelfCycle)
+                    isTimeConsistent = false;
+                else
+                    isTimeConsistent = !hasDirectedCycle(g);
+
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
             }
 
-            Graph g = computeDependencyGraph(retSets, t);
-            if (hasSelfCycle)
-                isTimeConsistent = false;
-            else
-                isTimeConsistent = !hasDirectedCycle(g);
+            return isTimeConsistent;
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
         }
 
-        return isTimeConsistent;
+        private boolean hasDirectedCycle(Graph g) {
 
-    }
+            levelToNode = new Hashtable<Integer, Node>();
+            nodeToLevel = new Hashtable<Node, Integer>();
 
-    private static Hashtable<Integer, Node> levelToNode;
-    private static Hashtable<Node, Integer> nodeToLevel;
-    private static boolean hasSelfCycle;
+            Node start = g.newNode();
+            Iterator<Node> itNodes = g.nodeIterator();
+            while (itNodes.hasNext()) {
+                Node v = itNodes.next();
+                if (!v.equals(start))
+                    g.newEdge(start, v);
+            }
 
-    private static boolean hasDirectedCycle(Graph g) {
+            initLevels(start, 0, new Vector<Node>());
 
-        levelToNode = new Hashtable<Integer, Node>();
-        nodeToLevel = new Hashtable<Node, Integer>();
+            for (int i = g.getNumberOfNodes() - 1; i >= 0; i--) {
+                Node v = levelToNode.get(i);
+                for (Node w : v.parents()) {
+                    if (nodeToLevel.get(w) <= i)
+                        return true;
+                }
+            }
 
-        Node start = g.newNode();
-        Iterator<Node> itNodes = g.nodeIterator();
-        while (itNodes.hasNext()) {
-            Node v = itNodes.next();
-            if (!v.equals(start))
-                g.newEdge(start, v);
+            return false;
         }
 
-        initLevels(start, 0, new Vector<Node>());
-
-        for (int i = g.getNumberOfNodes() - 1; i >= 0; i--) {
-            Node v = levelToNode.get(i);
-            for (Node w : v.parents()) {
-                if (nodeToLevel.get(w) <= i)
-                    return true;
+        private int initLevels(Node v, int level, Vector<Node> visited) {
+            visited.add(v);
+            int value = level;
+            for (Node c : v.children()) {
+                if (!visited.contains(c))
+                    value = initLevels(c, value, visited) + 1;
+            }
+            levelToNode.put(value, v);
+            nodeToLevel.put(v, value);
+            return value;
+        }
+
+        private Graph computeDependencyGraph(HashSet<HashSet<Node>> retSets,
+                                                    PhyloTree t) {
+            Graph g = new Graph();
+
+            int id = 1;
+            Hashtable<Integer, HashSet<Node>> idToRetSet = new Hashtable<Integer, HashSet<Node>>();
+            Hashtable<HashSet<Node>, Node> retSetToNode = new Hashtable<HashSet<Node>, Node>();
+            for (HashSet<Node> retSet : retSets) {
+                Node v = g.newNode();
+                retSetToNode.put(retSet, v);
+                idToRetSet.put(id, retSet);
+                for (Node r : retSet)
+                    r.setInfo(id);
+                id++;
             }
-        }
 
-        return false;
-    }
+            createEdges(t.getRoot(), g, idToRetSet, retSetToNode, (Integer) t
+                    .getRoot().getInfo());
 
-    private static int initLevels(Node v, int level, Vector<Node> visited) {
-        visited.add(v);
-        int value = level;
-        for (Node c : v.children()) {
-            if (!visited.contains(c))
-                value = initLevels(c, value, visited) + 1;
-        }
-        levelToNode.put(value, v);
-        nodeToLevel.put(v, value);
-        return value;
-    }
-
-    private static Graph computeDependencyGraph(HashSet<HashSet<Node>> retSets,
-                                                PhyloTree t) {
-        Graph g = new Graph();
-
-        int id = 1;
-        Hashtable<Integer, HashSet<Node>> idToRetSet = new Hashtable<Integer, HashSet<Node>>();
-        Hashtable<HashSet<Node>, Node> retSetToNode = new Hashtable<HashSet<Node>, Node>();
-        for (HashSet<Node> retSet : retSets) {
-            Node v = g.newNode();
-            retSetToNode.put(retSet, v);
-            idToRetSet.put(id, retSet);
-            for (Node r : retSet)
-                r.setInfo(id);
-            id++;
+            return g;
         }
 
-        createEdges(t.getRoot(), g, idToRetSet, retSetToNode, (Integer) t
-                .getRoot().getInfo());
-
-        return g;
-    }
-
-    private static void createEdges(Node v, Graph g,
-                                    Hashtable<Integer, HashSet<Node>> idToRetSet,
-                                    Hashtable<HashSet<Node>, Node> retSetToNode, Integer lastID) {
-        for (Node c : v.children()) {
-            if (c.getInfo() != null) {
-                if (lastID != null) {
-                    Node v1 = retSetToNode.get(idToRetSet.get(lastID));
-                    Node v2 = retSetToNode.get(idToRetSet.get(c.getInfo()));
-                    if (c.getInDegree() == 1) {
-                        if (!v1.equals(v2) && g.findDirectedEdge(v1, v2) == null)
-                            g.newEdge(v1, v2);
-                        else if (v1.equals(v2))
-                            hasSelfCycle = true;
+        private void createEdges(Node v, Graph g,
+                                        Hashtable<Integer, HashSet<Node>> idToRetSet,
+                                        Hashtable<HashSet<Node>, Node> retSetToNode, Integer lastID) {
+            for (Node c : v.children()) {
+                if (c.getInfo() != null) {
+                    if (lastID != null) {
+                        Node v1 = retSetToNode.get(idToRetSet.get(lastID));
+                        Node v2 = retSetToNode.get(idToRetSet.get(c.getInfo()));
+                        if (c.getInDegree() == 1) {
+                            if (!v1.equals(v2) && g.findDirectedEdge(v1, v2) == null)
+                                g.newEdge(v1, v2);
+                            else if (v1.equals(v2))
+                                hasSelfCycle = true;
+                        }
                     }
-                }
-                createEdges(c, g, idToRetSet, retSetToNode,
-                        (Integer) c.getInfo());
-            } else
-                createEdges(c, g, idToRetSet, retSetToNode, lastID);
+                    createEdges(c, g, idToRetSet, retSetToNode,
+                            (Integer) c.getInfo());
+                } else
+                    createEdges(c, g, idToRetSet, retSetToNode, lastID);
+            }
         }
-    }
 
-    private static void collectRetSet(Node v, Vector<Node> reticulations,
-                                      HashSet<Node> reticulationSet) {
-        if (v.getInDegree() > 1) {
-            reticulations.remove(v);
-            reticulationSet.add(v);
-            Iterator<Edge> it = v.inEdges().iterator();
-            while (it.hasNext()) {
-                Node p = it.next().getSource();
-                reticulationSet.add(p);
-                collectRetSet(p, reticulations, reticulationSet);
-                Iterator<Edge> pIt = p.outEdges().iterator();
-                while (pIt.hasNext()) {
-                    Node c = pIt.next().getTarget();
-                    if (!c.equals(v))
-                        collectRetSet(c, reticulations, reticulationSet);
+        private void collectRetSet(Node v, Vector<Node> reticulations,
+                                          HashSet<Node> reticulationSet) {
+            if (v.getInDegree() > 1) {
+                reticulations.remove(v);
+                reticulationSet.add(v);
+                Iterator<Edge> it = v.inEdges().iterator();
+                while (it.hasNext()) {
+                    Node p = it.next().getSource();
+                    reticulationSet.add(p);
+                    collectRetSet(p, reticulations, reticulationSet);
+                    Iterator<Edge> pIt = p.outEdges().iterator();
+                    while (pIt.hasNext()) {
+                        Node c = pIt.next().getTarget();
+                        if (!c.equals(v))
+                            collectRetSet(c, reticulations, reticulationSet);
+                    }
+                }
+                for (Node c : v.children()) {
+                    collectRetSet(c, reticulations, reticulationSet);
                 }
-            }
-            for (Node c : v.children()) {
-                collectRetSet(c, reticulations, reticulationSet);
             }
         }
     }
-
 }
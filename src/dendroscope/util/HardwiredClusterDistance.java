@@ -0,0 +1,207 @@
+/*
+ *   HardwiredClusterDistance.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.util;
+
+import dendroscope.consensus.Cluster;
+import jloda.graph.Edge;
+import jloda.graph.Node;
+import jloda.phylo.PhyloTree;
+
+import java.util.*;
+
+/**
+ * computes all pairwise hardwired cluster distances between a list of trees or networks.
+ * Taxa are mapped to indices once, each cluster is a BitSet with a 64-bit fingerprint and the clusters of each
+ * tree are kept sorted by fingerprint, so that the number of shared clusters of two trees is obtained by a merge.
+ * Both the cluster sets and the matrix rows are computed in parallel
+ */
+public class HardwiredClusterDistance {
+    /**
+     * computes the hardwired cluster distance matrix
+     *
+     * @param trees
+     * @return distances
+     */
+    public static double[][] apply(List<PhyloTree> trees) {
+        final PhyloTree[] array = trees.toArray(new PhyloTree[0]);
+
+        final Map<String, Integer> taxon2index = new HashMap<>();
+        for (PhyloTree tree : array) {
+            for (Node v : tree.nodes()) {
+                if (v.getOutDegree() == 0 && !taxon2index.containsKey(tree.getLabel(v)))
+                    taxon2index.put(tree.getLabel(v), taxon2index.size());
+            }
+        }
+
+        final ClusterSet[] clusters = new ClusterSet[array.length];
+        ParallelExecutor.forEach(array.length, i -> clusters[i] = new ClusterSet(array[i], taxon2index));
+
+        return ParallelDistanceMatrix.apply(array.length, (i, j) -> {
+            final int common = clusters[i].countCommon(clusters[j]);
+            return (clusters[i].size() + clusters[j].size() - 2 * common) / 2;
+        });
+    }
+
+    /**
+     * computes the hardwired cluster distance matrix for a stream of trees. Each tree is reduced to its
+     * cluster set as soon as it is read, so that the trees themselves need not be held in memory
+     *
+     * @param trees
+     * @param names if non-null, the names of the trees are added to this list
+     * @return distances
+     */
+    public static double[][] apply(Iterator<? extends PhyloTree> trees, List<String> names) {
+        final Map<String, Integer> taxon2index = new HashMap<>();
+        final List<ClusterSet> list = new ArrayList<>();
+        while (trees.hasNext()) {
+            final PhyloTree tree = trees.next();
+            for (Node v : tree.nodes()) {
+                if (v.getOutDegree() == 0 && !taxon2index.containsKey(tree.getLabel(v)))
+                    taxon2index.put(tree.getLabel(v), taxon2index.size());
+            }
+            list.add(new ClusterSet(tree, taxon2index));
+            if (names != null)
+                names.add(tree.getName());
+        }
+        final ClusterSet[] clusters = list.toArray(new ClusterSet[0]);
+
+        return ParallelDistanceMatrix.apply(clusters.length, (i, j) -> {
+            final int common = clusters[i].countCommon(clusters[j]);
+            return (clusters[i].size() + clusters[j].size() - 2 * common) / 2;
+        });
+    }
+
+    /**
+     * the set of hardwired clusters of a tree or network, sorted by fingerprint
+     */
+    static class ClusterSet {
+        private final long[] fingerprints;
+        private final BitSet[] clusters;
+
+        /**
+         * constructor
+         *
+         * @param tree
+         * @param taxon2index
+         */
+        ClusterSet(PhyloTree tree, Map<String, Integer> taxon2index) {
+            final Map<Node, BitSet> node2cluster = new HashMap<>();
+            if (tree.getRoot() != null)
+                computeClustersRec(tree, tree.getRoot(), taxon2index, node2cluster);
+
+            final BitSet[] all = node2cluster.values().toArray(new BitSet[0]);
+            final long[] allFingerprints = new long[all.length];
+            final Integer[] order = new Integer[all.length];
+            for (int i = 0; i < all.length; i++) {
+                allFingerprints[i] = Cluster.fingerprint(all[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int c = Long.compare(allFingerprints[a], allFingerprints[b]);
+                return c != 0 ? c : compareBitSets(all[a], all[b]);
+            });
+
+            // remove duplicate clusters, e.g. from reticulations with a single child:
+            int count = 0;
+            final long[] fingerprints = new long[all.length];
+            final BitSet[] clusters = new BitSet[all.length];
+            for (int i : order) {
+                if (count == 0 || fingerprints[count - 1] != allFingerprints[i] || !clusters[count - 1].equals(all[i])) {
+                    fingerprints[count] = allFingerprints[i];
+                    clusters[count] = all[i];
+                    count++;
+                }
+            }
+            this.fingerprints = Arrays.copyOf(fingerprints, count);
+            this.clusters = Arrays.copyOf(clusters, count);
+        }
+
+        /**
+         * recursively computes the cluster of every node
+         *
+         * @return cluster of v
+         */
+        private static BitSet computeClustersRec(PhyloTree tree, Node v, Map<String, Integer> taxon2index, Map<Node, BitSet> node2cluster) {
+            BitSet cluster = node2cluster.get(v);
+            if (cluster == null) {
+                cluster = new BitSet();
+                if (v.getOutDegree() == 0) {
+                    cluster.set(taxon2index.get(tree.getLabel(v)));
+                } else {
+                    for (Edge f = v.getFirstOutEdge(); f != null; f = v.getNextOutEdge(f)) {
+                        cluster.or(computeClustersRec(tree, f.getTarget(), taxon2index, node2cluster));
+                    }
+                }
+                node2cluster.put(v, cluster);
+            }
+            return cluster;
+        }
+
+        int size() {
+            return clusters.length;
+        }
+
+        /**
+         * count the number of clusters contained in both sets
+         *
+         * @param that
+         * @return number of common clusters
+         */
+        int countCommon(ClusterSet that) {
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < this.fingerprints.length && j < that.fingerprints.length) {
+                if (this.fingerprints[i] < that.fingerprints[j])
+                    i++;
+                else if (this.fingerprints[i] > that.fingerprints[j])
+                    j++;
+                else {
+                    final long fingerprint = this.fingerprints[i];
+                    int iEnd = i;
+                    while (iEnd < this.fingerprints.length && this.fingerprints[iEnd] == fingerprint)
+                        iEnd++;
+                    int jEnd = j;
+                    while (jEnd < that.fingerprints.length && that.fingerprints[jEnd] == fingerprint)
+                        jEnd++;
+                    for (int a = i; a < iEnd; a++) {
+                        for (int b = j; b < jEnd; b++) {
+                            if (this.clusters[a].equals(that.clusters[b])) {
+                                count++;
+                                break;
+                            }
+                        }
+                    }
+                    i = iEnd;
+                    j = jEnd;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * lexicographic comparison of two bit sets
+     */
+    private static int compareBitSets(BitSet a, BitSet b) {
+        final long[] wordsA = a.toLongArray();
+        final long[] wordsB = b.toLongArray();
+        return Arrays.compareUnsigned(wordsA, wordsB);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *   ParallelDistanceMatrix.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.util;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * fills a symmetric distance matrix in parallel. Rows are processed in blocks by the tasks of a fork-join pool,
+ * and each task computes the entries to the right of the diagonal of its rows. The tasks run on the pool of
+ * ParallelExecutor
+ */
+public class ParallelDistanceMatrix {
+    /**
+     * distance between two items, identified by index
+     */
+    public interface PairDistance {
+        double apply(int i, int j) throws Exception;
+    }
+
+    /**
+     * computes all pairwise distances between n items
+     *
+     * @param n        number of items
+     * @param distance the distance function, must be safe to call concurrently
+     * @return symmetric matrix with zero diagonal
+     */
+    public static double[][] apply(int n, PairDistance distance) {
+        final double[][] matrix = new double[n][n];
+        if (n > 1)
+            ParallelExecutor.getPool().invoke(new RowBlock(matrix, distance, 0, n - 1));
+        return matrix;
+    }
+
+    /**
+     * computes a block of rows, splitting it until the number of entries is small
+     */
+    private static class RowBlock extends RecursiveAction {
+        private static final int MIN_ENTRIES = 256;
+
+        private final double[][] matrix;
+        private final PairDistance distance;
+        private final int low;
+        private final int high;
+
+        RowBlock(double[][] matrix, PairDistance distance, int low, int high) {
+            this.matrix = matrix;
+            this.distance = distance;
+            this.low = low;
+            this.high = high;
+        }
+
+        protected void compute() {
+            final int n = matrix.length;
+            final long entries = (long) (high - low) * (2L * n - low - high - 1) / 2;
+            if (high - low > 1 && entries > MIN_ENTRIES) {
+                final int mid = (low + high) >>> 1;
+                invokeAll(new RowBlock(matrix, distance, low, mid), new RowBlock(matrix, distance, mid, high));
+            } else {
+                try {
+                    for (int i = low; i < high; i++) {
+                        for (int j = i + 1; j < n; j++) {
+                            matrix[i][j] = matrix[j][i] = distance.apply(i, j);
+                        }
+                    }
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *   ParallelExecutor.java Copyright (C) 2020 Daniel H. Huson
+ *
+ *   (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dendroscope.util;
+
+import jloda.util.ProgramProperties;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * the fork-join pool shared by all parallel computations of the program, and a parallel loop over items
+ */
+public class ParallelExecutor {
+    private static ForkJoinPool pool;
+
+    /**
+     * action on a single item
+     */
+    public interface ItemAction {
+        void apply(int i) throws Exception;
+    }
+
+    /**
+     * applies a computation to each of n items in parallel
+     *
+     * @param n      number of items
+     * @param action the action, must be safe to call concurrently
+     */
+    public static void forEach(final int n, final ItemAction action) {
+        getPool().invoke(new RecursiveAction() {
+            protected void compute() {
+                forEachRange(0, n, action);
+            }
+        });
+    }
+
+    /**
+     * submits a computation for each of n items to the pool, so that the caller can report progress while waiting
+     *
+     * @param n      number of items
+     * @param action the action, must be safe to call concurrently
+     * @return task, completes when all items have been processed
+     */
+    public static ForkJoinTask<Void> submitForEach(final int n, final ItemAction action) {
+        return getPool().submit(new RecursiveAction() {
+            protected void compute() {
+                forEachRange(0, n, action);
+            }
+        });
+    }
+
+    private static void forEachRange(int low, int high, ItemAction action) {
+        if (high - low <= 1) {
+            for (int i = low; i < high; i++) {
+                try {
+                    action.apply(i);
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        } else {
+            final int mid = (low + high) >>> 1;
+            RecursiveAction.invokeAll(new RecursiveAction() {
+                protected void compute() {
+                    forEachRange(low, mid, action);
+                }
+            }, new RecursiveAction() {
+                protected void compute() {
+                    forEachRange(mid, high, action);
+                }
+            });
+        }
+    }
+
+    /**
+     * gets the shared pool. Its size is given by the additional-threads program property plus one
+     *
+     * @return pool
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            final int additionalThreads = Math.max(0, ProgramProperties.get("additional-threads", Runtime.getRuntime().availableProcessors() - 1));
+            pool = new ForkJoinPool(additionalThreads + 1);
+        }
+        return pool;
+    }
+}